@@ -0,0 +1,43 @@
+package com.example.timetablegenerator.controller;
+
+import com.example.timetablegenerator.service.TimetableService.SubjectPlan;
+import com.example.timetablegenerator.service.Workloads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** The form's plan parsers on the same plan as CSV and as JSON. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlanParseBenchmark {
+
+    @Param({"6", "60"})
+    public int divisions;
+
+    @Param({"6"})
+    public int subjects;
+
+    private String csv;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        csv = Workloads.planCsv(divisions, subjects, 2);
+        json = Workloads.planJson(divisions, subjects, 2);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, SubjectPlan>> csv() {
+        return GenerationForm.parsePlanCsv(csv);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, SubjectPlan>> json() {
+        return GenerationForm.parsePlanJson(json);
+    }
+}
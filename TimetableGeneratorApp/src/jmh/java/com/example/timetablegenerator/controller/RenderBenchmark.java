@@ -0,0 +1,39 @@
+package com.example.timetablegenerator.controller;
+
+import com.example.timetablegenerator.service.GeneratedTimetable;
+import com.example.timetablegenerator.service.TimetableService;
+import com.example.timetablegenerator.service.TimetableService.Lecture;
+import com.example.timetablegenerator.service.Workloads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** HTML tables of the result page ({@link TimetableController#buildDivisionTablesHtml}). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    @Param({"6", "60"})
+    public int divisions;
+
+    private GeneratedTimetable result;
+    private Map<String, Map<String, Map<Integer, Lecture>>> table;
+
+    @Setup
+    public void setUp() {
+        TimetableService service = Workloads.service(false);
+        result = service.generate(Workloads.planRequest(divisions, 6, 2, 8));
+        service.shutdownSolverPool();
+        table = result.asMap();
+    }
+
+    @Benchmark
+    public Map<String, String> divisionTables() {
+        return TimetableController.buildDivisionTablesHtml(result.days(), result.numSlots(), table, result);
+    }
+}
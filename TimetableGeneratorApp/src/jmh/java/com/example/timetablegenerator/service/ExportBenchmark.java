@@ -0,0 +1,38 @@
+package com.example.timetablegenerator.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** CSV and Excel export of a generated timetable. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+
+    @Param({"6", "60"})
+    public int divisions;
+
+    private final ExportService exportService = new ExportService(null);
+    private GeneratedTimetable timetable;
+
+    @Setup
+    public void setUp() {
+        TimetableService service = Workloads.service(false);
+        timetable = service.generate(Workloads.planRequest(divisions, 6, 2, 8));
+        service.shutdownSolverPool();
+    }
+
+    @Benchmark
+    public String csv() {
+        return exportService.exportAsCsv(timetable);
+    }
+
+    @Benchmark
+    public byte[] excel() {
+        return exportService.exportAsExcel(timetable);
+    }
+}
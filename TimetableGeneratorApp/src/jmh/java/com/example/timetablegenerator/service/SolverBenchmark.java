@@ -0,0 +1,60 @@
+package com.example.timetablegenerator.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link TimetableService#generate} (portfolio, decomposition,
+ * backtracking when needed) on synthetic plans; see {@link Workloads}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SolverBenchmark {
+
+    @Param({"6", "24", "60"})
+    public int divisions;
+
+    @Param({"6"})
+    public int subjects;
+
+    @Param({"2"})
+    public int divisionsPerFaculty;
+
+    @Param({"8"})
+    public int slots;
+
+    @Param({"false"})
+    public boolean optimizer;
+
+    private TimetableService service;
+    private GenerationRequest plan;
+    private GenerationRequest uniform;
+
+    @Setup
+    public void setUp() {
+        service = Workloads.service(optimizer);
+        plan = Workloads.planRequest(divisions, subjects, divisionsPerFaculty, slots);
+        // one faculty per subject for every division: keep uniform mode at a size it can still place
+        uniform = Workloads.uniformRequest(Math.min(divisions, 3), subjects, slots);
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdownSolverPool();
+    }
+
+    @Benchmark
+    public GeneratedTimetable planMode() {
+        return service.generate(plan);
+    }
+
+    @Benchmark
+    public GeneratedTimetable uniformMode() {
+        return service.generate(uniform);
+    }
+}
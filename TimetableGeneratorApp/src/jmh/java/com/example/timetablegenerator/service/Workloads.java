@@ -0,0 +1,111 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.TimetableService.SubjectPlan;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * Synthetic generation inputs for the benchmarks.
+ *
+ * Every division takes {@code subjects} subjects of 3 lectures a week, every
+ * third subject also one lab. Each faculty member teaches one subject to
+ * {@code divisionsPerFaculty} consecutive divisions, so the faculty pool is
+ * {@code divisions × subjects / divisionsPerFaculty} (1 = no sharing, the
+ * problem splits per division). Five days, recess in slot 4, at most 4
+ * sessions per faculty member a day.
+ */
+public final class Workloads {
+
+    public static final List<String> DAYS = List.of("Mon", "Tue", "Wed", "Thu", "Fri");
+    public static final List<int[]> RECESS = List.<int[]>of(new int[]{4, 4});
+    public static final int MAX_LECTURES_PER_DAY = 4;
+
+    private Workloads() {}
+
+    public static List<String> divisions(int n) {
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add("D" + i);
+        return out;
+    }
+
+    public static Map<String, Map<String, SubjectPlan>> plan(int divisions, int subjects, int divisionsPerFaculty) {
+        Map<String, Map<String, SubjectPlan>> out = new LinkedHashMap<>();
+        for (int d = 0; d < divisions; d++) {
+            Map<String, SubjectPlan> bySubject = new LinkedHashMap<>();
+            for (int s = 0; s < subjects; s++) {
+                int faculty = (d / Math.max(1, divisionsPerFaculty)) * subjects + s;
+                SubjectPlan sp = new SubjectPlan();
+                sp.subject = "S" + s;
+                sp.lecturesPerWeek = 3;
+                sp.labsPerWeek = s % 3 == 0 ? 1 : 0;
+                sp.lectureFaculty = "F" + faculty;
+                sp.labFaculty = "L" + faculty;
+                bySubject.put(sp.subject, sp);
+            }
+            out.put("D" + d, bySubject);
+        }
+        return out;
+    }
+
+    public static GenerationRequest planRequest(int divisions, int subjects, int divisionsPerFaculty, int slots) {
+        return GenerationRequest.withPlan(DAYS, slots, divisions(divisions), RECESS, MAX_LECTURES_PER_DAY,
+                plan(divisions, subjects, divisionsPerFaculty));
+    }
+
+    /** Uniform mode: one faculty per subject across all divisions, so it saturates quickly as divisions grow. */
+    public static GenerationRequest uniformRequest(int divisions, int subjects, int slots) {
+        List<String> names = new ArrayList<>(subjects);
+        List<String> labs = new ArrayList<>();
+        for (int s = 0; s < subjects; s++) {
+            names.add("S" + s);
+            if (s % 3 == 0) labs.add("S" + s);
+        }
+        return GenerationRequest.uniform(DAYS, slots, divisions(divisions), names, labs, RECESS,
+                MAX_LECTURES_PER_DAY, 3, 1);
+    }
+
+    /** The plan as the form's CSV text (division,subject,lectures,labs,lectureFaculty,labFaculty). */
+    public static String planCsv(int divisions, int subjects, int divisionsPerFaculty) {
+        StringBuilder sb = new StringBuilder("# division,subject,lectures,labs,lectureFaculty,labFaculty\n");
+        for (Map.Entry<String, Map<String, SubjectPlan>> e : plan(divisions, subjects, divisionsPerFaculty).entrySet()) {
+            for (SubjectPlan sp : e.getValue().values()) {
+                sb.append(e.getKey()).append(',').append(sp.subject).append(',')
+                        .append(sp.lecturesPerWeek).append(',').append(sp.labsPerWeek).append(',')
+                        .append(sp.lectureFaculty).append(',').append(sp.labFaculty).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /** The plan as the form's planData JSON (all values quoted, as the page sends them). */
+    public static String planJson(int divisions, int subjects, int divisionsPerFaculty) {
+        StringJoiner rows = new StringJoiner(",", "[", "]");
+        for (Map.Entry<String, Map<String, SubjectPlan>> e : plan(divisions, subjects, divisionsPerFaculty).entrySet()) {
+            for (SubjectPlan sp : e.getValue().values()) {
+                rows.add("{\"division\":\"" + e.getKey() + "\",\"subject\":\"" + sp.subject
+                        + "\",\"lectures\":\"" + sp.lecturesPerWeek + "\",\"labs\":\"" + sp.labsPerWeek
+                        + "\",\"lecFac\":\"" + sp.lectureFaculty + "\",\"labFac\":\"" + sp.labFaculty + "\"}");
+            }
+        }
+        return rows.toString();
+    }
+
+    /**
+     * A service with the application's defaults, except the time-limited local search,
+     * which would otherwise dominate (and cap) every measurement.
+     */
+    public static TimetableService service(boolean optimizer) {
+        TimetableService service = new TimetableService();
+        set(service, "optimizerEnabled", optimizer);
+        return service;
+    }
+
+    private static void set(Object target, String field, Object value) {
+        Field f = ReflectionUtils.findField(target.getClass(), field);
+        if (f == null) throw new IllegalStateException("No field " + field);
+        ReflectionUtils.makeAccessible(f);
+        ReflectionUtils.setField(f, target, value);
+    }
+}
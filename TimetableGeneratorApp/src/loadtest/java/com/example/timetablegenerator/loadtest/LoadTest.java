@@ -0,0 +1,272 @@
+package com.example.timetablegenerator.loadtest;
+
+import com.example.timetablegenerator.TimetableGeneratorAppApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end HTTP load test.
+ *
+ * Boots the application on a free port with the "loadtest" profile against an
+ * in-memory H2 database in PostgreSQL mode (schema: loadtest/schema-h2.sql),
+ * saves a few runs, then lets {@code loadtest.threads} clients send a weighted
+ * mix of requests for {@code loadtest.duration} seconds, after
+ * {@code loadtest.warmup} seconds that are not recorded. Prints throughput and
+ * latency percentiles per endpoint; exits with 1 if any request failed.
+ *
+ * System properties:
+ * <pre>
+ * loadtest.threads     concurrent clients                          8
+ * loadtest.duration    measured seconds                            60
+ * loadtest.warmup      unrecorded seconds before that              10
+ * loadtest.seed-runs   runs generated before the clock starts      5
+ * loadtest.divisions   divisions per generated timetable           6
+ * loadtest.mix         op=weight list                              generate=1,history=3,view=3,csv=2,excel=1
+ * </pre>
+ * Every generate request uses its own faculty names, so the generation cache
+ * never turns it into a lookup.
+ */
+public final class LoadTest {
+
+    private static final String H2_URL =
+            "jdbc:h2:mem:timetable;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+    private static final Pattern RUN_ID = Pattern.compile("runId=([0-9a-fA-F-]{36})");
+    private static final List<String> OPS = List.of("generate", "history", "view", "csv", "excel");
+
+    /** Latencies of one operation, in nanoseconds. */
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int count;
+        private int errors;
+
+        synchronized void add(long nanos, boolean ok) {
+            if (!ok) errors++;
+            if (count == values.length) values = Arrays.copyOf(values, count * 2);
+            values[count++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] v = Arrays.copyOf(values, count);
+            Arrays.sort(v);
+            return v;
+        }
+
+        synchronized int errors() { return errors; }
+    }
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String base;
+    private final int divisions;
+    private final AtomicInteger generated = new AtomicInteger();
+    private final List<String> runIds = new CopyOnWriteArrayList<>();
+
+    private LoadTest(int port, int divisions) {
+        this.base = "http://localhost:" + port;
+        this.divisions = divisions;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("loadtest.threads", 8);
+        int duration = Integer.getInteger("loadtest.duration", 60);
+        int warmup = Integer.getInteger("loadtest.warmup", 10);
+        int seedRuns = Integer.getInteger("loadtest.seed-runs", 5);
+        int divisions = Integer.getInteger("loadtest.divisions", 6);
+        Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix", "generate=1,history=3,view=3,csv=2,excel=1"));
+
+        // devtools decides on restarts before any properties file is read
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // the Spring datasource (and its pool) reads these before application properties
+        if (System.getProperty("spring.datasource.url") == null) {
+            System.setProperty("spring.datasource.url", H2_URL);
+            System.setProperty("spring.datasource.username", "sa");
+            System.setProperty("spring.datasource.password", "");
+        }
+
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(TimetableGeneratorAppApplication.class)
+                .profiles("loadtest")
+                .run(args);
+        int exit;
+        try {
+            int port = ctx.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LoadTest test = new LoadTest(port, divisions);
+            System.out.println("🚦 Load test on port " + port + ": " + threads + " clients, " + warmup + "s warm-up, "
+                    + duration + "s measured, mix " + mix);
+
+            for (int i = 0; i < seedRuns; i++) test.call("generate");
+            test.checkSeeded();
+
+            Map<String, Samples> samples = new LinkedHashMap<>();
+            for (String op : mix.keySet()) samples.put(op, new Samples());
+            long seconds = test.drive(threads, warmup, duration, mix, samples);
+            exit = report(samples, seconds) > 0 ? 1 : 0;
+        } finally {
+            ctx.close();
+        }
+        System.exit(exit);
+    }
+
+    /** The result page shows a run id even when saving failed: make sure the seeded runs are in the history. */
+    private void checkSeeded() throws Exception {
+        HttpResponse<String> history = client.send(get("/history"), HttpResponse.BodyHandlers.ofString());
+        runIds.removeIf(id -> !history.body().contains(id));
+        if (runIds.isEmpty()) throw new IllegalStateException("Seeding saved no runs; is the schema loaded?");
+    }
+
+    /** Runs the mix for warm-up + measured time; returns the measured seconds. */
+    private long drive(int threads, int warmup, int duration, Map<String, Integer> mix,
+                       Map<String, Samples> samples) throws InterruptedException {
+        String[] wheel = mix.entrySet().stream()
+                .flatMap(e -> Collections.nCopies(e.getValue(), e.getKey()).stream())
+                .toArray(String[]::new);
+        long start = System.nanoTime();
+        long recordFrom = start + TimeUnit.SECONDS.toNanos(warmup);
+        long end = recordFrom + TimeUnit.SECONDS.toNanos(duration);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                while (true) {
+                    long t0 = System.nanoTime();
+                    if (t0 >= end) return;
+                    String op = wheel[rnd.nextInt(wheel.length)];
+                    boolean ok = call(op);
+                    long t1 = System.nanoTime();
+                    if (t0 >= recordFrom) samples.get(op).add(t1 - t0, ok);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(warmup + duration + 300L, TimeUnit.SECONDS);
+        return duration;
+    }
+
+    /** One request of the given kind; false on a transport error or a non-2xx status. */
+    private boolean call(String op) {
+        try {
+            HttpRequest request;
+            String runId = runIds.isEmpty() ? null : runIds.get(ThreadLocalRandom.current().nextInt(runIds.size()));
+            switch (op) {
+                case "generate": request = generateRequest(); break;
+                case "history": request = get("/history"); break;
+                case "view": request = get("/history/view?runId=" + runId); break;
+                case "csv": request = get("/export/history/csv?runId=" + runId); break;
+                case "excel": request = get("/export/history/excel?runId=" + runId); break;
+                default: throw new IllegalArgumentException(op);
+            }
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            boolean ok = response.statusCode() / 100 == 2;
+            if (ok && op.equals("generate")) {
+                Matcher m = RUN_ID.matcher(response.body());
+                if (m.find()) runIds.add(m.group(1));
+                else ok = false;
+            }
+            return ok;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    /** The form post of a plan-mode department with its own faculty names. */
+    private HttpRequest generateRequest() {
+        int n = generated.incrementAndGet();
+        StringBuilder plan = new StringBuilder();
+        List<String> divs = new ArrayList<>();
+        for (int d = 0; d < divisions; d++) {
+            String div = "D" + d;
+            divs.add(div);
+            for (int s = 0; s < 6; s++) {
+                String faculty = "P" + n + "-F" + ((d / 2) * 6 + s);
+                plan.append(div).append(",S").append(s).append(",3,").append(s % 3 == 0 ? 1 : 0).append(',')
+                        .append(faculty).append(',').append(faculty).append("-Lab\n");
+            }
+        }
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("numDays", "5");
+        form.put("days", "Mon,Tue,Wed,Thu,Fri");
+        form.put("numSlots", "8");
+        form.put("numDiv", String.valueOf(divisions));
+        form.put("divisions", String.join(",", divs));
+        form.put("subjectNames", "S0,S1,S2,S3,S4,S5");
+        form.put("recessRanges", "4-4");
+        form.put("maxLecturesPerDay", "4");
+        form.put("totalLectures", "3");
+        form.put("totalLabs", "1");
+        form.put("planCsv", plan.toString());
+        form.put("runName", "Load test " + n);
+
+        StringJoiner body = new StringJoiner("&");
+        form.forEach((k, v) -> body.add(k + "=" + URLEncoder.encode(v, StandardCharsets.UTF_8)));
+        return HttpRequest.newBuilder(URI.create(base + "/generate"))
+                .timeout(Duration.ofSeconds(120))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private static Map<String, Integer> parseMix(String s) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String item : s.split(",")) {
+            String[] kv = item.trim().split("=");
+            String op = kv[0].trim();
+            if (!OPS.contains(op)) throw new IllegalArgumentException("Unknown op '" + op + "', expected one of " + OPS);
+            int weight = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1;
+            if (weight > 0) mix.put(op, weight);
+        }
+        if (mix.isEmpty()) throw new IllegalArgumentException("Empty loadtest.mix");
+        return mix;
+    }
+
+    /** Prints the table; returns the number of failed requests. */
+    private static int report(Map<String, Samples> samples, long seconds) {
+        System.out.println();
+        System.out.printf("%-10s %8s %7s %9s %9s %9s %9s %9s%n",
+                "op", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        int totalRequests = 0, totalErrors = 0;
+        for (Map.Entry<String, Samples> e : samples.entrySet()) {
+            long[] v = e.getValue().sorted();
+            int errors = e.getValue().errors();
+            totalRequests += v.length;
+            totalErrors += errors;
+            System.out.printf("%-10s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    e.getKey(), v.length, errors, v.length / (double) seconds,
+                    ms(percentile(v, 50)), ms(percentile(v, 90)), ms(percentile(v, 99)),
+                    ms(v.length == 0 ? 0 : v[v.length - 1]));
+        }
+        System.out.printf("%-10s %8d %7d %9.1f%n", "total", totalRequests, totalErrors, totalRequests / (double) seconds);
+        return totalErrors;
+    }
+
+    private static long percentile(long[] sorted, int p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
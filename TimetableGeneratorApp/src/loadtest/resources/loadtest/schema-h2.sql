@@ -0,0 +1,65 @@
+-- miniproject.sql adapted for H2 in PostgreSQL mode (load test only).
+-- Tables and indexes are the same (array columns as VARCHAR ARRAY); the views
+-- keep the columns the app reads but drop the PostgreSQL-only run_key
+-- (every row written by the app has run_id and version). allocation is not
+-- partitioned, so the app skips partition upkeep and retention.
+
+CREATE TABLE class (
+    classid   SERIAL PRIMARY KEY,
+    classname VARCHAR(50) UNIQUE NOT NULL,
+    room_type VARCHAR(10) NOT NULL DEFAULT 'LECTURE',
+    capacity  INT         NOT NULL DEFAULT 0
+);
+
+CREATE TABLE allocation (
+    allocationid   SERIAL PRIMARY KEY,
+    divisionname   VARCHAR(50)   NOT NULL,
+    semesternumber INT           NOT NULL,
+    subjectname    VARCHAR(100)  NOT NULL,
+    facultyname    VARCHAR(100)  NOT NULL,
+    classname      VARCHAR(50)   NOT NULL,
+    dayname        VARCHAR(20)   NOT NULL,
+    slotno         INT           NOT NULL,
+    session_type   VARCHAR(20)   NOT NULL,
+    generated_at   TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    run_id         UUID,
+    version        INT
+);
+
+CREATE SEQUENCE run_version_seq;
+CREATE TABLE run_catalog (
+    run_id       UUID PRIMARY KEY,
+    version      INT           NOT NULL UNIQUE,
+    run_name     VARCHAR(200),
+    generated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    updated_at   TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    rows_count   INT           NOT NULL,
+    divisions    VARCHAR ARRAY NOT NULL,
+    days         VARCHAR ARRAY NOT NULL
+);
+
+CREATE TABLE run_snapshot (
+    run_id       UUID PRIMARY KEY REFERENCES run_catalog(run_id) ON DELETE CASCADE,
+    payload      VARBINARY     NOT NULL
+);
+
+CREATE INDEX idx_alloc_div_day_slot ON allocation(divisionname, dayname, slotno);
+CREATE INDEX idx_alloc_faculty_day  ON allocation(facultyname, dayname, slotno);
+CREATE INDEX idx_alloc_subject      ON allocation(subjectname);
+CREATE INDEX idx_alloc_generated_at ON allocation(generated_at);
+CREATE INDEX idx_alloc_run_id       ON allocation(run_id);
+CREATE INDEX idx_alloc_version      ON allocation(version);
+
+CREATE VIEW v_timetable_runs AS
+SELECT run_id, version, generated_at, rows_count, run_name
+FROM run_catalog;
+
+CREATE VIEW v_timetable_by_run AS
+SELECT
+    run_id, version, generated_at,
+    divisionname, dayname, slotno,
+    subjectname, facultyname, classname,
+    session_type, semesternumber
+FROM allocation;
+
+INSERT INTO class (classname) VALUES ('Classroom 1'), ('Classroom 2');
@@ -0,0 +1,42 @@
+package com.example.timetablegenerator.controller;
+
+import com.example.timetablegenerator.service.BatchGenerationService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * BatchController — many timetables in one request.
+ *
+ * POST /batch   raw text body in the {@link BatchUpload} format
+ *               (e.g. curl --data-binary @terms.txt -H "Content-Type: text/plain")
+ *               → application/x-ndjson, one line per item as soon as it is saved:
+ *               {"index","name","status":"ok"|"error","runId","version","saved","unplaced",…,"timetable"}
+ *               ("pending": true, saved false, for an identical run write-behind has yet to write)
+ */
+@RestController
+public class BatchController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final BatchGenerationService batchService;
+
+    public BatchController(BatchGenerationService batchService) {
+        this.batchService = batchService;
+    }
+
+    @PostMapping(value = "/batch", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> batch(InputStream body) {
+        // the upload is parsed while the response streams: nothing is read up front
+        BatchUpload upload = new BatchUpload(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        StreamingResponseBody stream = out -> batchService.run(upload, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(stream);
+    }
+}
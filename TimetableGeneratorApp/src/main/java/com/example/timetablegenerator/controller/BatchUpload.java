@@ -0,0 +1,139 @@
+package com.example.timetablegenerator.controller;
+
+import com.example.timetablegenerator.service.BatchGenerationService.BatchItem;
+import com.example.timetablegenerator.service.GenerationRequest;
+import com.example.timetablegenerator.service.TimetableService.SubjectPlan;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Reads a /batch upload one block at a time.
+ *
+ * Blocks are separated by a line starting with "---". Each block is a few
+ * "key: value" header lines followed by plan rows in the plan CSV format
+ * (division,subject,lectures,labs,lectureFaculty,labFaculty); '#' starts a comment.
+ * <pre>
+ * name: SE Comp 2025
+ * days: Mon,Tue,Wed,Thu,Fri
+ * slots: 7
+ * maxLecturesPerDay: 2
+ * recess: 4-4
+ * rooms: C-101:lecture:60, Lab 1:lab:30
+ * divisionSizes: A:60
+ * A,Maths,3,0,F1,
+ * A,DBMS,3,1,F2,F3
+ * ---
+ * name: ...
+ * </pre>
+ * {@code divisions} is optional (default: plan divisions in order of first
+ * appearance). A block that does not parse becomes a failed item; the rest of
+ * the upload is still processed.
+ */
+final class BatchUpload implements Iterator<BatchItem> {
+
+    private static final List<String> DEFAULT_DAYS = List.of("Mon", "Tue", "Wed", "Thu", "Fri");
+
+    private final BufferedReader in;
+    private int index;
+    private BatchItem next;
+    private boolean eof;
+
+    BatchUpload(BufferedReader in) {
+        this.in = in;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !eof) next = readBlock();
+        return next != null;
+    }
+
+    @Override
+    public BatchItem next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        BatchItem item = next;
+        next = null;
+        return item;
+    }
+
+    private BatchItem readBlock() {
+        Map<String, String> header = new HashMap<>();
+        StringBuilder rows = new StringBuilder();
+        boolean any = false;
+        try {
+            String line;
+            while (true) {
+                line = in.readLine();
+                if (line == null) {
+                    eof = true;
+                    break;
+                }
+                String t = line.trim();
+                if (t.startsWith("---")) {
+                    if (any) break;
+                    continue; // leading or repeated separators
+                }
+                if (t.isEmpty() || t.startsWith("#")) continue;
+                any = true;
+                int colon = t.indexOf(':');
+                int comma = t.indexOf(',');
+                if (colon > 0 && (comma < 0 || colon < comma)) {
+                    header.put(t.substring(0, colon).trim().toLowerCase(Locale.ROOT), t.substring(colon + 1).trim());
+                } else {
+                    rows.append(t).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!any) return null;
+
+        int i = index++;
+        String name = header.get("name");
+        if (name == null || name.isBlank()) name = "Batch item " + (i + 1);
+        try {
+            return BatchItem.of(i, name, toRequest(header, rows.toString()));
+        } catch (RuntimeException e) {
+            return BatchItem.failed(i, name, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static GenerationRequest toRequest(Map<String, String> header, String rows) {
+        int numSlots = requiredInt(header, "slots");
+        int maxLecturesPerDay = requiredInt(header, "maxLecturesPerDay");
+        if (rows.isBlank()) throw new IllegalArgumentException("No plan rows.");
+        Map<String, Map<String, SubjectPlan>> plan = GenerationForm.parsePlanCsv(rows);
+        if (plan.isEmpty()) throw new IllegalArgumentException("No valid plan rows.");
+
+        List<String> days = header.containsKey("days") ? GenerationForm.splitCsv(header.get("days")) : DEFAULT_DAYS;
+
+        List<String> divisions;
+        if (header.containsKey("divisions")) {
+            divisions = GenerationForm.splitCsv(header.get("divisions"));
+        } else {
+            LinkedHashSet<String> seen = new LinkedHashSet<>();
+            for (String row : rows.split("\n")) {
+                String d = row.split(",", 2)[0].trim();
+                if (plan.containsKey(d)) seen.add(d);
+            }
+            divisions = new ArrayList<>(seen);
+        }
+        List<int[]> recesses = GenerationForm.parseRecessRanges(header.get("recess"));
+
+        GenerationRequest request = GenerationRequest.withPlan(days, numSlots, divisions, recesses, maxLecturesPerDay, plan);
+        return GenerationForm.withRooms(request, header.get("rooms"), header.get("divisionsizes"));
+    }
+
+    private static int requiredInt(Map<String, String> header, String key) {
+        String v = header.get(key.toLowerCase(Locale.ROOT));
+        if (v == null) throw new IllegalArgumentException("Missing '" + key + ":' line.");
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + ": " + v);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.timetablegenerator.controller;
+
+import com.example.timetablegenerator.repository.RunRepository.RunRow;
+import com.example.timetablegenerator.service.HistoryService;
+import com.example.timetablegenerator.service.RunDiffService;
+import com.example.timetablegenerator.service.RunDiffService.CellChange;
+import com.example.timetablegenerator.service.RunDiffService.Summary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * DiffController — what changed between two saved runs ({@link RunDiffService}).
+ *
+ * GET /history/diff?from=…&to=…       → application/x-ndjson, streamed while both runs are read:
+ *                                       {"type":"cell","division","day","slot","change":"added"|"removed"|"changed","before","after"}
+ *                                       per differing cell, then one {"type":"summary",…,"faculty":[…]} line
+ * GET /history/diff/view?from=…&to=…  → the same as a page (the first {@value #VIEW_LIMIT} cells)
+ *
+ * from is optional: by default the run saved just before {@code to}.
+ */
+@Controller
+public class DiffController {
+
+    static final int VIEW_LIMIT = 2000;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final HistoryService historyService;
+    private final RunDiffService diffService;
+    private final ObjectMapper mapper;
+
+    public DiffController(HistoryService historyService, RunDiffService diffService, ObjectMapper mapper) {
+        this.historyService = historyService;
+        this.diffService = diffService;
+        this.mapper = mapper;
+    }
+
+    @GetMapping("/history/diff")
+    public ResponseEntity<StreamingResponseBody> diff(@RequestParam(value = "from", required = false) UUID from,
+                                                      @RequestParam("to") UUID to) throws IOException {
+        RunRow toRun = historyService.findRun(to);
+        RunRow fromRun = toRun == null ? null : from != null ? historyService.findRun(from) : previous(toRun);
+        if (fromRun == null) {
+            byte[] error = mapper.writeValueAsBytes(
+                    Map.of("error", toRun == null ? "No saved run " + to : "No run to compare run " + to + " with"));
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write(error));
+        }
+        StreamingResponseBody stream = out -> {
+            try {
+                Summary summary = diffService.diff(fromRun.getRunId(), to, change -> {
+                    out.write(mapper.writeValueAsBytes(change));
+                    out.write('\n');
+                });
+                out.write(mapper.writeValueAsBytes(summary));
+                out.write('\n');
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(stream);
+    }
+
+    @GetMapping("/history/diff/view")
+    public String diffView(@RequestParam(value = "from", required = false) UUID from,
+                           @RequestParam("to") UUID to, Model model) {
+        RunRow toRun = historyService.findRun(to);
+        RunRow fromRun = toRun == null ? null : from != null ? historyService.findRun(from) : previous(toRun);
+        if (fromRun == null) {
+            model.addAttribute("error", toRun == null ? "No saved run " + to : "No run to compare run " + to + " with");
+            return "diff";
+        }
+        List<CellChange> changes = new ArrayList<>();
+        Summary summary;
+        try {
+            summary = diffService.diff(fromRun.getRunId(), to, change -> {
+                if (changes.size() < VIEW_LIMIT) changes.add(change);
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+            model.addAttribute("error", "Could not compare the runs: " + e.getMessage());
+            return "diff";
+        }
+        model.addAttribute("fromRun", fromRun);
+        model.addAttribute("toRun", toRun);
+        model.addAttribute("changes", changes);
+        model.addAttribute("summary", summary);
+        model.addAttribute("hidden", summary.added + summary.removed + summary.changed - changes.size());
+        return "diff";
+    }
+
+    /** The run saved just before {@code run} (next lower version), or null. */
+    private RunRow previous(RunRow run) {
+        List<RunRow> older = historyService.listRuns(null, null, run.getVersion(), 1).runs;
+        return older.isEmpty() ? null : older.get(0);
+    }
+}
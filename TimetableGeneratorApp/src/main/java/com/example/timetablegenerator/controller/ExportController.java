@@ -1,6 +1,8 @@
 package com.example.timetablegenerator.controller;
 
 import com.example.timetablegenerator.service.ExportService;
+import com.example.timetablegenerator.service.GeneratedTimetable;
+import com.example.timetablegenerator.service.RecentTimetables;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,15 +17,21 @@ import java.util.UUID;
 public class ExportController {
 
     private final ExportService exportService;
+    private final RecentTimetables recentTimetables;
 
-    public ExportController(ExportService exportService) {
+    public ExportController(ExportService exportService, RecentTimetables recentTimetables) {
         this.exportService = exportService;
+        this.recentTimetables = recentTimetables;
     }
 
-    // current (in-memory) exports
+    // generated result exports: the given run (latest if omitted), from memory while it is
+    // still among the recent results, otherwise from the database
     @GetMapping("/csv")
-    public ResponseEntity<byte[]> exportCsv() {
-        String csv = exportService.exportCurrentAsCsv();
+    public ResponseEntity<byte[]> exportCsv(@RequestParam(value = "runId", required = false) UUID runId) {
+        if (runId == null) runId = recentTimetables.latestRunId();
+        GeneratedTimetable result = recentTimetables.get(runId);
+        if (result == null && runId != null) return exportHistoryCsv(runId);
+        String csv = exportService.exportAsCsv(result);
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=timetable.csv")
                 .contentType(MediaType.parseMediaType("text/csv"))
@@ -31,8 +39,11 @@ public class ExportController {
     }
 
     @GetMapping("/excel")
-    public ResponseEntity<byte[]> exportExcel() {
-        byte[] excel = exportService.exportCurrentAsExcel();
+    public ResponseEntity<byte[]> exportExcel(@RequestParam(value = "runId", required = false) UUID runId) {
+        if (runId == null) runId = recentTimetables.latestRunId();
+        GeneratedTimetable result = recentTimetables.get(runId);
+        if (result == null && runId != null) return exportHistoryExcel(runId);
+        byte[] excel = exportService.exportAsExcel(result);
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=timetable.xlsx")
                 .contentType(MediaType.parseMediaType(
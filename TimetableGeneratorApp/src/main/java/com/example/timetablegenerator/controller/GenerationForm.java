@@ -0,0 +1,187 @@
+package com.example.timetablegenerator.controller;
+
+import com.example.timetablegenerator.service.GenerationRequest;
+import com.example.timetablegenerator.service.Rooms.Room;
+import com.example.timetablegenerator.service.TimetableService.SubjectPlan;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Parsing of the generation form fields (shared by /generate and /jobs).
+ */
+final class GenerationForm {
+
+    private GenerationForm() {}
+
+    /** Builds the request from the raw form fields; a non-empty plan (CSV first, then JSON) selects plan mode. */
+    static GenerationRequest toRequest(String daysStr, int numSlots, String divisionsStr,
+                                       String subjectNamesStr, String labSubjectsStr, String recessRangesStr,
+                                       int maxLecturesPerDay, int totalLectures, int totalLabs,
+                                       String planCsv, String planJson) {
+        List<String> days = splitCsv(daysStr);
+        List<String> divisions = splitCsv(divisionsStr);
+        List<String> subjectNames = splitCsv(subjectNamesStr);
+        List<String> labSubjects = splitCsvNullable(labSubjectsStr);
+        List<int[]> recesses = parseRecessRanges(recessRangesStr);
+
+        Map<String, Map<String, SubjectPlan>> plan = new HashMap<>();
+        if (planCsv != null && !planCsv.trim().isEmpty()) {
+            plan = parsePlanCsv(planCsv);
+        } else if (planJson != null && !planJson.trim().isEmpty()) {
+            plan = parsePlanJson(planJson);
+        }
+
+        return !plan.isEmpty()
+                ? GenerationRequest.withPlan(days, numSlots, divisions, recesses, maxLecturesPerDay, plan)
+                : GenerationRequest.uniform(days, numSlots, divisions, subjectNames, labSubjects, recesses,
+                        maxLecturesPerDay, totalLectures, totalLabs);
+    }
+
+    /**
+     * Adds the room fields: {@code rooms} as "name[:lab|lecture[:capacity]]" items
+     * (e.g. "C-101:lecture:60, Lab 1:lab:30") and {@code divisionSizes} as "A:60, B:45".
+     * Blank rooms leave the request as it is.
+     */
+    static GenerationRequest withRooms(GenerationRequest request, String roomsStr, String divisionSizesStr) {
+        List<Room> rooms = parseRooms(roomsStr);
+        if (rooms.isEmpty()) return request;
+        return request.withRooms(rooms, parseDivisionSizes(divisionSizesStr));
+    }
+
+    static List<Room> parseRooms(String s) {
+        List<Room> out = new ArrayList<>();
+        for (String item : splitCsvNullable(s)) {
+            String[] p = item.split(":");
+            String name = p[0].trim();
+            if (name.isEmpty()) throw new IllegalArgumentException("Invalid room: " + item);
+            String type = p.length > 1 ? p[1].trim().toLowerCase(Locale.ROOT) : "lecture";
+            boolean lab;
+            switch (type) {
+                case "lab": lab = true; break;
+                case "lecture": case "hall": case "": lab = false; break;
+                default: throw new IllegalArgumentException("Invalid room type '" + p[1].trim() + "' in: " + item);
+            }
+            int capacity = p.length > 2 ? parseIntSafe(p[2].trim(), 0) : 0;
+            out.add(new Room(name, lab, capacity));
+        }
+        return out;
+    }
+
+    static Map<String, Integer> parseDivisionSizes(String s) {
+        Map<String, Integer> out = new HashMap<>();
+        for (String item : splitCsvNullable(s)) {
+            String[] p = item.split(":");
+            if (p.length != 2) throw new IllegalArgumentException("Invalid division size: " + item);
+            out.put(p[0].trim(), parseIntSafe(p[1].trim(), 0));
+        }
+        return out;
+    }
+
+    static List<String> splitCsv(String s) {
+        return Arrays.stream(s.split(","))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    static List<String> splitCsvNullable(String s) {
+        if (s == null || s.trim().isEmpty()) return Collections.emptyList();
+        return splitCsv(s);
+    }
+
+    static List<int[]> parseRecessRanges(String ranges) {
+        List<int[]> res = new ArrayList<>();
+        if (ranges == null || ranges.trim().isEmpty()) return res;
+        for (String t : ranges.split(",")) {
+            String[] ab = t.trim().split("-");
+            if (ab.length != 2) throw new IllegalArgumentException("Invalid recess format: " + t);
+            int a = Integer.parseInt(ab[0].trim());
+            int b = Integer.parseInt(ab[1].trim());
+            res.add(new int[]{a, b});
+        }
+        return res;
+    }
+
+    static Map<String, Map<String, SubjectPlan>> parsePlanCsv(String csv) {
+        Map<String, Map<String, SubjectPlan>> out = new HashMap<>();
+        if (csv == null || csv.trim().isEmpty()) return out;
+
+        String[] lines = csv.split("\\r?\\n");
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] cols = line.split(",");
+            if (cols.length >= 6) {
+                String division = cols[0].trim();
+                String subject = cols[1].trim();
+                int lec = Integer.parseInt(cols[2].trim());
+                int lab = Integer.parseInt(cols[3].trim());
+                String lecFac = cols[4].trim();
+                String labFac = cols[5].trim();
+
+                SubjectPlan sp = getOrCreate(out, division, subject);
+                sp.subject = subject;
+                sp.lecturesPerWeek = Math.max(0, lec);
+                sp.labsPerWeek = Math.max(0, lab);
+                sp.lectureFaculty = lecFac.isEmpty() ? ("Faculty-" + subject) : lecFac;
+                sp.labFaculty = labFac.isEmpty() ? sp.lectureFaculty : labFac;
+            }
+        }
+        return out;
+    }
+
+    static Map<String, Map<String, SubjectPlan>> parsePlanJson(String json) {
+        Map<String, Map<String, SubjectPlan>> out = new HashMap<>();
+        try {
+            json = json.trim();
+            if (json.startsWith("[")) json = json.substring(1);
+            if (json.endsWith("]")) json = json.substring(0, json.length() - 1);
+            if (json.isEmpty()) return out;
+
+            String[] objs = json.split("\\}\\s*,\\s*\\{");
+            for (String raw : objs) {
+                String obj = raw;
+                if (!obj.startsWith("{")) obj = "{" + obj;
+                if (!obj.endsWith("}")) obj = obj + "}";
+                String division = extractJsonString(obj, "division");
+                String subject = extractJsonString(obj, "subject");
+                int lectures = parseIntSafe(extractJsonString(obj, "lectures"), 0);
+                int labs = parseIntSafe(extractJsonString(obj, "labs"), 0);
+                String lecFac = extractJsonString(obj, "lecFac");
+                String labFac = extractJsonString(obj, "labFac");
+
+                SubjectPlan sp = getOrCreate(out, division, subject);
+                sp.subject = subject;
+                sp.lecturesPerWeek = lectures;
+                sp.labsPerWeek = labs;
+                sp.lectureFaculty = lecFac.isEmpty() ? ("Faculty-" + subject) : lecFac;
+                sp.labFaculty = labFac.isEmpty() ? sp.lectureFaculty : labFac;
+            }
+        } catch (Exception e) {
+            System.out.println("⚠️ Failed to parse planData JSON: " + e.getMessage());
+        }
+        return out;
+    }
+
+    static String extractJsonString(String obj, String key) {
+        java.util.regex.Pattern p = java.util.regex.Pattern.compile("\"" + key + "\"\\s*:\\s*\"(.*?)\"");
+        java.util.regex.Matcher m = p.matcher(obj);
+        return m.find() ? m.group(1) : "";
+    }
+
+    static int parseIntSafe(String s, int def) {
+        try { return Integer.parseInt(s.trim()); } catch (Exception e) { return def; }
+    }
+
+    static SubjectPlan getOrCreate(
+            Map<String, Map<String, SubjectPlan>> map,
+            String division,
+            String subject
+    ) {
+        Map<String, SubjectPlan> bySubject =
+                map.computeIfAbsent(division, k -> new HashMap<>());
+        return bySubject.computeIfAbsent(subject, k -> new SubjectPlan());
+    }
+}
@@ -1,11 +1,17 @@
 package com.example.timetablegenerator.controller;
 
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
+import com.example.timetablegenerator.repository.RunRepository.RunRow;
+import com.example.timetablegenerator.service.GenerationCache;
+import com.example.timetablegenerator.service.GenerationMetrics;
 import com.example.timetablegenerator.service.HistoryService;
-import com.example.timetablegenerator.service.HistoryService.AllocationRow;
-import com.example.timetablegenerator.service.HistoryService.RunRow;
+import com.example.timetablegenerator.service.RenderedRunCache;
+import com.example.timetablegenerator.service.RenderedRunCache.RenderedRun;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -19,15 +25,31 @@ import java.util.UUID;
 public class HistoryController {
 
     private final HistoryService historyService;
+    private final GenerationCache generationCache;
+    private final GenerationMetrics metrics;
+    private final RenderedRunCache renderedRuns;
 
-    public HistoryController(HistoryService historyService) {
+    public HistoryController(HistoryService historyService, GenerationCache generationCache,
+                             GenerationMetrics metrics, RenderedRunCache renderedRuns) {
         this.historyService = historyService;
+        this.generationCache = generationCache;
+        this.metrics = metrics;
+        this.renderedRuns = renderedRuns;
     }
 
     @GetMapping("/history")
-    public String listRuns(Model model) {
-        List<RunRow> runs = historyService.listRuns();
-        model.addAttribute("runs", runs);
+    public String listRuns(@RequestParam(value = "q", required = false) String name,
+                           @RequestParam(value = "division", required = false) String division,
+                           @RequestParam(value = "before", required = false) Integer before,
+                           @RequestParam(value = "size", defaultValue = "" + HistoryService.DEFAULT_PAGE_SIZE) int size,
+                           Model model) {
+        HistoryService.RunPage page = historyService.listRuns(name, division, before, size);
+        model.addAttribute("runs", page.runs);
+        model.addAttribute("nextBefore", page.nextBefore);
+        model.addAttribute("q", name);
+        model.addAttribute("division", division);
+        model.addAttribute("size", size);
+        model.addAttribute("firstPage", before == null);
         return "history";
     }
 
@@ -35,24 +57,31 @@ public class HistoryController {
      * View a single saved run, but render it using the same timetable page.
      * This rebuilds the nested map (division -> day -> slot -> AllocationRow)
      * and pre-renders the HTML tables per-division exactly like generation flow.
+     *
+     * Rendered views are cached per run (RenderedRunCache) and carry a strong
+     * ETag: a browser revalidating a view it has gets 304 Not Modified, from
+     * the cache without touching the database.
      */
     @GetMapping("/history/view")
-    public String viewRun(@RequestParam("runId") UUID runId, Model model) {
-        // fetch rows saved for this run
-        List<AllocationRow> rows = historyService.getRun(runId);
+    public String viewRun(@RequestParam("runId") UUID runId, Model model,
+                          WebRequest request, HttpServletResponse response) {
+        response.setHeader("Cache-Control", "no-cache"); // the name can change: always revalidate
+
+        RenderedRun cached = renderedRuns.get(runId);
+        if (cached != null) {
+            if (request.checkNotModified(cached.etag)) return null;
+            addViewAttributes(model, runId, cached);
+            return "timetable";
+        }
 
-        // basic meta: try to find matching RunRow from listRuns() (cheap for small counts)
-        RunRow meta = historyService.listRuns().stream()
-                .filter(r -> runId.equals(r.getRunId()))
-                .findFirst()
-                .orElse(null);
+        // basic meta from the run catalog
+        RunRow meta = historyService.findRun(runId);
 
-        Integer version = (meta != null) ? meta.getVersion() : null;
-        Date generatedAt = (meta != null) ? meta.getGeneratedAt() : null;
-        String runName = (meta != null) ? meta.getRunName() : null;
+        // fetch rows saved for this run
+        List<AllocationRow> rows = meta != null ? historyService.getRun(runId) : List.of();
 
         // if no rows found, show user-friendly message
-        if (rows == null || rows.isEmpty()) {
+        if (meta == null || rows == null || rows.isEmpty()) {
             model.addAttribute("error", "No saved timetable rows found for run " + runId);
             return "history";
         }
@@ -91,34 +120,45 @@ public class HistoryController {
         int numSlots = Math.max(1, maxSlot);
 
         // Build pre-rendered HTML tables per-division (same layout used by TimetableController)
+        long renderStart = System.nanoTime();
         Map<String, String> htmlTables = buildDivisionTablesHtml(days, numSlots, table);
+        metrics.phase("render", System.nanoTime() - renderStart);
 
-        // Populate model attributes expected by timetable.html
-        model.addAttribute("htmlTables", htmlTables);
-        model.addAttribute("days", days);
-        model.addAttribute("numSlots", numSlots);
-        model.addAttribute("divisions", divisions);
-
-        model.addAttribute("version", version);
-        model.addAttribute("runId", runId.toString());
-        model.addAttribute("runName", runName);
-        model.addAttribute("generatedAt", generatedAt);
-        model.addAttribute("dbStatus", "Loaded from history");
+        RenderedRun view = new RenderedRun(meta, htmlTables, days, numSlots, divisions);
+        renderedRuns.put(runId, view);
+        if (request.checkNotModified(view.etag)) return null;
+        addViewAttributes(model, runId, view);
 
         // reuse the same Thymeleaf view used for new timetables
         return "timetable";
     }
 
+    // Populate model attributes expected by timetable.html
+    private static void addViewAttributes(Model model, UUID runId, RenderedRun view) {
+        model.addAttribute("htmlTables", view.htmlTables);
+        model.addAttribute("days", view.days);
+        model.addAttribute("numSlots", view.numSlots);
+        model.addAttribute("divisions", view.divisions);
+
+        model.addAttribute("version", view.version);
+        model.addAttribute("runId", runId.toString());
+        model.addAttribute("runName", view.runName);
+        model.addAttribute("generatedAt", view.generatedAt);
+        model.addAttribute("dbStatus", "Loaded from history");
+    }
+
     @PostMapping("/history/delete")
     public String deleteRun(@RequestParam("runId") UUID runId) {
-        historyService.deleteRun(runId);
+        if (historyService.deleteRun(runId)) generationCache.forgetRun(runId);
+        renderedRuns.evict(runId);
         return "redirect:/history";
     }
 
     @PostMapping("/history/rename")
     public String renameRun(@RequestParam("runId") UUID runId,
                             @RequestParam("runName") String runName) {
-        historyService.renameRun(runId, runName);
+        if (historyService.renameRun(runId, runName)) generationCache.renameRun(runId, runName);
+        renderedRuns.evict(runId);
         return "redirect:/history";
     }
 
@@ -188,6 +228,9 @@ public class HistoryController {
                         sb.append("<span>")
                                 .append(escapeHtml(faculty)).append(" (").append(escapeHtml(subject)).append(")")
                                 .append("</span>");
+                        if (ar.classname != null) {
+                            sb.append("<span class=\"room\">").append(escapeHtml(ar.classname)).append("</span>");
+                        }
                     }
 
                     sb.append("</div></td>");
@@ -0,0 +1,115 @@
+package com.example.timetablegenerator.controller;
+
+import com.example.timetablegenerator.service.GenerationJobService;
+import com.example.timetablegenerator.service.GenerationJobService.GenerationJob;
+import com.example.timetablegenerator.service.GenerationJobService.Snapshot;
+import com.example.timetablegenerator.service.GenerationJobService.Status;
+import com.example.timetablegenerator.service.GenerationRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * JobController — asynchronous variant of /generate.
+ *
+ * POST /jobs               same form fields as /generate → 202 {"jobId": "…"} (429 when the queue is full)
+ * GET  /jobs/{id}          status snapshot
+ * GET  /jobs/{id}/events   text/event-stream of "progress" events, then one "done"
+ * GET  /jobs/{id}/result   200 with runId/version/timetable once done, 202 while running
+ */
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+    private static final long EVENTS_TIMEOUT_MS = 10 * 60 * 1000L;
+
+    private final GenerationJobService jobService;
+
+    public JobController(GenerationJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> submit(
+            @RequestParam("days") String daysStr,
+            @RequestParam("numSlots") int numSlots,
+            @RequestParam("divisions") String divisionsStr,
+            @RequestParam("subjectNames") String subjectNamesStr,
+            @RequestParam(value = "labSubjects", required = false) String labSubjectsStr,
+            @RequestParam(value = "recessRanges", required = false) String recessRangesStr,
+            @RequestParam("maxLecturesPerDay") int maxLecturesPerDay,
+            @RequestParam("totalLectures") int totalLectures,
+            @RequestParam("totalLabs") int totalLabs,
+            @RequestParam(value = "planCsv", required = false) String planCsv,
+            @RequestParam(value = "planData", required = false) String planJson,
+            @RequestParam(value = "rooms", required = false) String roomsStr,
+            @RequestParam(value = "divisionSizes", required = false) String divisionSizesStr,
+            @RequestParam(value = "runName", required = false) String runName
+    ) {
+        GenerationRequest request;
+        try {
+            request = GenerationForm.toRequest(daysStr, numSlots, divisionsStr, subjectNamesStr, labSubjectsStr,
+                    recessRangesStr, maxLecturesPerDay, totalLectures, totalLabs, planCsv, planJson);
+            request = GenerationForm.withRooms(request, roomsStr, divisionSizesStr);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+        String finalRunName = (runName != null && !runName.isBlank())
+                ? runName.trim()
+                : "Run " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+
+        try {
+            GenerationJob job = jobService.submit(request, finalRunName);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("Location", "/jobs/" + job.id())
+                    .body(Map.of("jobId", job.id(), "events", "/jobs/" + job.id() + "/events"));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "5")
+                    .body(Map.of("error", "Too many generation jobs queued, try again later."));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Snapshot> status(@PathVariable("id") String id) {
+        GenerationJob job = jobService.get(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job.snapshot());
+    }
+
+    @GetMapping(value = "/{id}/events", produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> events(@PathVariable("id") String id) {
+        SseEmitter emitter = jobService.subscribe(id, EVENTS_TIMEOUT_MS);
+        return emitter == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/{id}/result")
+    public ResponseEntity<?> result(@PathVariable("id") String id) {
+        GenerationJob job = jobService.get(id);
+        if (job == null) return ResponseEntity.notFound().build();
+
+        Snapshot s = job.snapshot();
+        if (!job.isFinished()) return ResponseEntity.status(HttpStatus.ACCEPTED).body(s);
+        if (job.status() == Status.FAILED) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("error", String.valueOf(s.error)));
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("runId", s.runId);
+        body.put("version", s.version);
+        body.put("saved", s.saved);
+        if (s.pending) body.put("pending", true);
+        body.put("unplaced", job.result().unplaced());
+        body.put("days", job.result().days());
+        body.put("divisions", job.result().divisions());
+        body.put("numSlots", job.result().numSlots());
+        body.put("timetable", job.result().asMap());
+        return ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.timetablegenerator.controller;
+
+import com.example.timetablegenerator.service.LookupIndex;
+import com.example.timetablegenerator.service.LookupIndex.Index;
+import com.example.timetablegenerator.service.LookupIndex.Slot;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * LookupController — JSON lookups over the published (latest saved) run, or
+ * any saved run with runId=…, answered from {@link LookupIndex}.
+ *
+ * GET /lookup/faculty?name=…&day=…&slot=…   where the faculty is at that day and slot
+ * GET /lookup/faculty/week?name=…           the faculty's lectures and labs, by day and slot
+ * GET /lookup/subject?name=…&day=…          the divisions having the subject that day
+ *
+ * → {"runId","version","results":[{"division","day","slot","subject","faculty","room","type"}, …]}
+ *   (404 when there is no such run, or no saved run at all)
+ */
+@RestController
+@RequestMapping("/lookup")
+public class LookupController {
+
+    private final LookupIndex lookupIndex;
+
+    public LookupController(LookupIndex lookupIndex) {
+        this.lookupIndex = lookupIndex;
+    }
+
+    @GetMapping("/faculty")
+    public ResponseEntity<?> facultyAt(@RequestParam("name") String faculty,
+                                       @RequestParam("day") String day,
+                                       @RequestParam("slot") int slot,
+                                       @RequestParam(value = "runId", required = false) UUID runId) {
+        return answer(runId, index -> index.facultyAt(faculty.trim(), day.trim(), slot));
+    }
+
+    @GetMapping("/faculty/week")
+    public ResponseEntity<?> facultyWeek(@RequestParam("name") String faculty,
+                                         @RequestParam(value = "runId", required = false) UUID runId) {
+        return answer(runId, index -> index.facultyWeek(faculty.trim()));
+    }
+
+    @GetMapping("/subject")
+    public ResponseEntity<?> subjectOn(@RequestParam("name") String subject,
+                                       @RequestParam("day") String day,
+                                       @RequestParam(value = "runId", required = false) UUID runId) {
+        return answer(runId, index -> index.subjectOn(subject.trim(), day.trim()));
+    }
+
+    private ResponseEntity<?> answer(UUID runId, Function<Index, List<Slot>> lookup) {
+        Index index;
+        try {
+            index = runId != null ? lookupIndex.run(runId) : lookupIndex.published();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Could not load the run: " + e.getMessage()));
+        }
+        if (index == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", runId != null ? "No saved run " + runId : "No saved runs"));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("runId", index.runId);
+        body.put("version", index.version);
+        body.put("results", lookup.apply(index));
+        return ResponseEntity.ok(body);
+    }
+}
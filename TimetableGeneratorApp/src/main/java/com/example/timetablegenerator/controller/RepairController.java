@@ -0,0 +1,39 @@
+package com.example.timetablegenerator.controller;
+
+import com.example.timetablegenerator.service.RepairService;
+import com.example.timetablegenerator.service.RepairService.RepairRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * RepairController — JSON API for incremental repairs of an existing run.
+ *
+ * POST /repair
+ * {
+ *   "runId": "…",                       (optional, default: current in-memory timetable)
+ *   "runName": "Week 12 — Dr. X absent", (optional)
+ *   "unavailable": [ {"faculty": "F-DBMS0", "day": "Tue"} ],
+ *   "planDeltas":  [ {"division": "A", "subject": "ML", "lectureDelta": 1, "labDelta": 0,
+ *                     "lectureFaculty": "", "labFaculty": ""} ]
+ * }
+ */
+@RestController
+public class RepairController {
+
+    private final RepairService repairService;
+
+    public RepairController(RepairService repairService) {
+        this.repairService = repairService;
+    }
+
+    @PostMapping("/repair")
+    public ResponseEntity<?> repair(@RequestBody RepairRequest request) {
+        try {
+            return ResponseEntity.ok(repairService.repair(request));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+}
@@ -1,30 +1,40 @@
 package com.example.timetablegenerator.controller;
 
+import com.example.timetablegenerator.service.GeneratedTimetable;
+import com.example.timetablegenerator.service.GenerationCache;
+import com.example.timetablegenerator.service.GenerationMetrics;
+import com.example.timetablegenerator.service.GenerationRequest;
+import com.example.timetablegenerator.service.RecentTimetables;
+import com.example.timetablegenerator.service.RunWriteBehind;
 import com.example.timetablegenerator.service.TimetableService;
 import com.example.timetablegenerator.service.TimetableService.Lecture;
-import com.example.timetablegenerator.service.TimetableService.SubjectPlan;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.UUID;
 
-import com.example.timetablegenerator.database.DBConnection;
 
 @Controller
 public class TimetableController {
 
     private final TimetableService timetableService;
-
-    public TimetableController(TimetableService timetableService) {
+    private final RecentTimetables recentTimetables;
+    private final GenerationCache generationCache;
+    private final GenerationMetrics metrics;
+    private final RunWriteBehind writeBehind;
+
+    public TimetableController(TimetableService timetableService, RecentTimetables recentTimetables,
+                               GenerationCache generationCache, GenerationMetrics metrics,
+                               RunWriteBehind writeBehind) {
         this.timetableService = timetableService;
+        this.recentTimetables = recentTimetables;
+        this.generationCache = generationCache;
+        this.metrics = metrics;
+        this.writeBehind = writeBehind;
     }
 
     @GetMapping("/")
@@ -53,36 +63,26 @@ public class TimetableController {
             @RequestParam("totalLabs") int totalLabs,
             @RequestParam(value = "planCsv", required = false) String planCsv,
             @RequestParam(value = "planData", required = false) String planJson, // optional JSON from UI table
+            @RequestParam(value = "rooms", required = false) String roomsStr,       // "name:lab|lecture:capacity, ..."
+            @RequestParam(value = "divisionSizes", required = false) String divisionSizesStr, // "A:60, B:45"
             @RequestParam(value = "runName", required = false) String runName,   // NEW: optional friendly name
+            @RequestParam(value = "reuseRun", defaultValue = "true") boolean reuseRun, // identical inputs → link existing run
             Model model
     ) {
         try {
-            List<String> days = splitCsv(daysStr);
-            List<String> divisions = splitCsv(divisionsStr);
-            List<String> subjectNames = splitCsv(subjectNamesStr);
-            List<String> labSubjects = splitCsvNullable(labSubjectsStr);
-            List<int[]> recesses = parseRecessRanges(recessRangesStr);
-
-            Map<String, Map<String, SubjectPlan>> plan = new HashMap<>();
-            if (planCsv != null && !planCsv.trim().isEmpty()) {
-                plan = parsePlanCsv(planCsv);
-            } else if (planJson != null && !planJson.trim().isEmpty()) {
-                plan = parsePlanJson(planJson);
-            }
-
-            if (!plan.isEmpty()) {
-                timetableService.setInputsWithPlan(days, numSlots, divisions, recesses, maxLecturesPerDay, plan);
-            } else {
-                timetableService.setInputs(
-                        days, numSlots, divisions, subjectNames, labSubjects, recesses,
-                        maxLecturesPerDay, totalLectures, totalLabs
-                );
-            }
-
-            boolean success = timetableService.generateTimetable();
-            if (!success) return withError(model, "Failed to generate timetable.");
-
-            Map<String, Map<String, Map<Integer, Lecture>>> table = timetableService.getTimetable();
+            GenerationRequest request = GenerationForm.toRequest(daysStr, numSlots, divisionsStr,
+                    subjectNamesStr, labSubjectsStr, recessRangesStr, maxLecturesPerDay, totalLectures, totalLabs,
+                    planCsv, planJson);
+            request = timetableService.withDefaultRooms(GenerationForm.withRooms(request, roomsStr, divisionSizesStr));
+            List<String> days = request.days();
+            List<String> divisions = request.divisions();
+
+            String cacheKey = generationCache.keyOf(request);
+            GenerationCache.Entry cached = generationCache.get(cacheKey);
+            GeneratedTimetable result = cached != null ? cached.result : timetableService.generate(request);
+            if (result == null) return withError(model, "Failed to generate timetable.");
+
+            Map<String, Map<String, Map<Integer, Lecture>>> table = result.asMap();
             if (table == null || table.isEmpty()) return withError(model, "No timetable generated.");
 
             // defaults for view
@@ -91,22 +91,52 @@ public class TimetableController {
             if (numSlots <= 0) numSlots = 8;
 
             // --------- Versioning: runId + version + runName ----------
-            UUID runId = UUID.randomUUID();
-            int version = fetchNextVersion();
-            String finalRunName = (runName != null && !runName.isBlank())
-                    ? runName.trim()
-                    : "Run " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-
-            boolean saved = false;
-            try {
-                saved = timetableService.saveToDatabase(runId, version, finalRunName);
-            } catch (Throwable t) {
-                System.out.println("⚠️ Skipping DB save due to unexpected error: " + t.getMessage());
+            UUID runId;
+            int version;
+            String finalRunName;
+            String dbStatus;
+            if (reuseRun && cached != null && cached.hasRun()) {
+                // identical inputs were already saved: link that run instead of inserting the same rows again
+                runId = cached.runId;
+                version = cached.version;
+                finalRunName = cached.runName;
+                dbStatus = version > 0
+                        ? "Identical inputs — showing the saved run v" + version + " (nothing new written)."
+                        : "Identical inputs — showing the run still being saved in the background (nothing new written).";
+            } else {
+                runId = UUID.randomUUID();
+                finalRunName = (runName != null && !runName.isBlank())
+                        ? runName.trim()
+                        : "Run " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+
+                // version is assigned in the saving transaction (0 = not saved)
+                version = 0;
+                // cached before it is journaled, so the flusher always finds the entry to fill in the version
+                if (writeBehind.enabled()) generationCache.put(cacheKey, result, runId, 0, finalRunName);
+                if (writeBehind.submit(result, runId, finalRunName)) {
+                    // journaled: saved in the background, versioned then
+                    dbStatus = "Timetable generated; it is being saved to the database in the background.";
+                } else {
+                    try {
+                        version = timetableService.save(result, runId, finalRunName);
+                    } catch (Throwable t) {
+                        System.out.println("⚠️ Skipping DB save due to unexpected error: " + t.getMessage());
+                    }
+                    boolean saved = version > 0;
+                    if (saved) generationCache.put(cacheKey, result, runId, version, finalRunName);
+                    else if (cached == null) generationCache.put(cacheKey, result, null, 0, null);
+                    else if (writeBehind.enabled()) {
+                        // put back what was cached before the run that was never journaled
+                        generationCache.put(cacheKey, cached.result, cached.runId, cached.version, cached.runName);
+                    }
+                    dbStatus = saved
+                            ? "Timetable saved successfully to database."
+                            : "Timetable generated, but saving failed.";
+                }
             }
+            recentTimetables.put(runId, result);
 
-            model.addAttribute("dbStatus", saved
-                    ? "Timetable saved successfully to database."
-                    : "Timetable generated, but saving failed.");
+            model.addAttribute("dbStatus", dbStatus);
 
             model.addAttribute("days", days);
             model.addAttribute("divisions", divisions);
@@ -114,12 +144,14 @@ public class TimetableController {
             model.addAttribute("timetable", table);
 
             // for UI notice + history button
-            model.addAttribute("version", version);
+            model.addAttribute("version", version > 0 ? version : null);
             model.addAttribute("runId", runId.toString());
             model.addAttribute("runName", finalRunName);
 
             // Pre-rendered HTML tables to avoid Thymeleaf iteration pitfalls
-            Map<String, String> htmlTables = buildDivisionTablesHtml(days, numSlots, table);
+            long renderStart = System.nanoTime();
+            Map<String, String> htmlTables = buildDivisionTablesHtml(days, numSlots, table, result);
+            metrics.phase("render", System.nanoTime() - renderStart);
             model.addAttribute("htmlTables", htmlTables);
 
             System.out.println("✅ Timetable generated successfully for "
@@ -134,135 +166,16 @@ public class TimetableController {
         }
     }
 
-    private int fetchNextVersion() {
-        String sql = "SELECT COALESCE(MAX(version),0) + 1 AS next_ver FROM allocation";
-        try (Connection c = DBConnection.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) return rs.getInt("next_ver");
-        } catch (Exception e) {
-            System.out.println("⚠️ Could not fetch next version, defaulting to 1: " + e.getMessage());
-        }
-        return 1;
-    }
-
     private String withError(Model model, String msg) {
         model.addAttribute("error", msg);
         return "index";
     }
 
-    // ---------- Helpers ----------
-    private List<String> splitCsv(String s) {
-        return Arrays.stream(s.split(","))
-                .map(String::trim)
-                .filter(v -> !v.isEmpty())
-                .collect(Collectors.toList());
-    }
-
-    private List<String> splitCsvNullable(String s) {
-        if (s == null || s.trim().isEmpty()) return Collections.emptyList();
-        return splitCsv(s);
-    }
-
-    private List<int[]> parseRecessRanges(String ranges) {
-        List<int[]> res = new ArrayList<>();
-        if (ranges == null || ranges.trim().isEmpty()) return res;
-        for (String t : ranges.split(",")) {
-            String[] ab = t.trim().split("-");
-            if (ab.length != 2) throw new IllegalArgumentException("Invalid recess format: " + t);
-            int a = Integer.parseInt(ab[0].trim());
-            int b = Integer.parseInt(ab[1].trim());
-            res.add(new int[]{a, b});
-        }
-        return res;
-    }
-
-    private Map<String, Map<String, SubjectPlan>> parsePlanCsv(String csv) {
-        Map<String, Map<String, SubjectPlan>> out = new HashMap<>();
-        if (csv == null || csv.trim().isEmpty()) return out;
-
-        String[] lines = csv.split("\\r?\\n");
-        for (String raw : lines) {
-            String line = raw.trim();
-            if (line.isEmpty() || line.startsWith("#")) continue;
-
-            String[] cols = line.split(",");
-            if (cols.length >= 6) {
-                String division = cols[0].trim();
-                String subject = cols[1].trim();
-                int lec = Integer.parseInt(cols[2].trim());
-                int lab = Integer.parseInt(cols[3].trim());
-                String lecFac = cols[4].trim();
-                String labFac = cols[5].trim();
-
-                SubjectPlan sp = getOrCreate(out, division, subject);
-                sp.subject = subject;
-                sp.lecturesPerWeek = Math.max(0, lec);
-                sp.labsPerWeek = Math.max(0, lab);
-                sp.lectureFaculty = lecFac.isEmpty() ? ("Faculty-" + subject) : lecFac;
-                sp.labFaculty = labFac.isEmpty() ? sp.lectureFaculty : labFac;
-            }
-        }
-        return out;
-    }
-
-    private Map<String, Map<String, SubjectPlan>> parsePlanJson(String json) {
-        Map<String, Map<String, SubjectPlan>> out = new HashMap<>();
-        try {
-            json = json.trim();
-            if (json.startsWith("[")) json = json.substring(1);
-            if (json.endsWith("]")) json = json.substring(0, json.length() - 1);
-            if (json.isEmpty()) return out;
-
-            String[] objs = json.split("\\}\\s*,\\s*\\{");
-            for (String raw : objs) {
-                String obj = raw;
-                if (!obj.startsWith("{")) obj = "{" + obj;
-                if (!obj.endsWith("}")) obj = obj + "}";
-                String division = extractJsonString(obj, "division");
-                String subject = extractJsonString(obj, "subject");
-                int lectures = parseIntSafe(extractJsonString(obj, "lectures"), 0);
-                int labs = parseIntSafe(extractJsonString(obj, "labs"), 0);
-                String lecFac = extractJsonString(obj, "lecFac");
-                String labFac = extractJsonString(obj, "labFac");
-
-                SubjectPlan sp = getOrCreate(out, division, subject);
-                sp.subject = subject;
-                sp.lecturesPerWeek = lectures;
-                sp.labsPerWeek = labs;
-                sp.lectureFaculty = lecFac.isEmpty() ? ("Faculty-" + subject) : lecFac;
-                sp.labFaculty = labFac.isEmpty() ? sp.lectureFaculty : labFac;
-            }
-        } catch (Exception e) {
-            System.out.println("⚠️ Failed to parse planData JSON: " + e.getMessage());
-        }
-        return out;
-    }
-
-    private String extractJsonString(String obj, String key) {
-        java.util.regex.Pattern p = java.util.regex.Pattern.compile("\"" + key + "\"\\s*:\\s*\"(.*?)\"");
-        java.util.regex.Matcher m = p.matcher(obj);
-        return m.find() ? m.group(1) : "";
-    }
-
-    private int parseIntSafe(String s, int def) {
-        try { return Integer.parseInt(s.trim()); } catch (Exception e) { return def; }
-    }
-
-    private SubjectPlan getOrCreate(
-            Map<String, Map<String, SubjectPlan>> map,
-            String division,
-            String subject
-    ) {
-        Map<String, SubjectPlan> bySubject =
-                map.computeIfAbsent(division, k -> new HashMap<>());
-        return bySubject.computeIfAbsent(subject, k -> new SubjectPlan());
-    }
-
-    private Map<String, String> buildDivisionTablesHtml(
+    static Map<String, String> buildDivisionTablesHtml(
             List<String> days,
             int numSlots,
-            Map<String, Map<String, Map<Integer, Lecture>>> timetable
+            Map<String, Map<String, Map<Integer, Lecture>>> timetable,
+            GeneratedTimetable result
     ) {
         Map<String, String> out = new LinkedHashMap<>();
         for (String division : timetable.keySet()) {
@@ -321,6 +234,8 @@ public class TimetableController {
                         sb.append("<span>")
                                 .append(escapeHtml(faculty)).append(" (").append(escapeHtml(subject)).append(")")
                                 .append("</span>");
+                        String room = result.roomAt(division, day, slot);
+                        if (room != null) sb.append("<span class=\"room\">").append(escapeHtml(room)).append("</span>");
                     }
 
                     sb.append("</div></td>");
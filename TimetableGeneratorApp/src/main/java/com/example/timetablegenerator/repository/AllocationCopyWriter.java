@@ -0,0 +1,158 @@
+package com.example.timetablegenerator.repository;
+
+import com.example.timetablegenerator.service.TimetableService;
+import com.example.timetablegenerator.service.TimetableService.Lecture;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streams allocation rows into PostgreSQL with {@code COPY ... FROM STDIN}
+ * (text format) on the caller's connection, so inside its transaction.
+ *
+ * Rows are encoded straight into a 64 KB buffer that goes to the driver
+ * whenever it fills: no statement per row and no payload built up in memory.
+ * The same few division, day, faculty and subject names repeat on every row,
+ * so each distinct string is encoded and escaped once. generated_at is left
+ * to its column default, now(), the transaction's start time.
+ */
+final class AllocationCopyWriter implements AutoCloseable {
+
+    private static final String COPY_SQL = "COPY allocation " +
+            "(divisionname, semesternumber, subjectname, facultyname, classname, dayname, slotno, session_type, run_id, version) " +
+            "FROM STDIN";
+
+    private final CopyIn copy;
+    private final byte[] buf = new byte[1 << 16];
+    private int pos;
+    private final Map<String, byte[]> encoded = new HashMap<>();
+    private UUID lastRunId;
+    private String lastRunText;
+
+    private AllocationCopyWriter(CopyIn copy) {
+        this.copy = copy;
+    }
+
+    /** True when {@code c} (possibly a pool proxy) is a PostgreSQL connection. */
+    static boolean supported(Connection c) throws SQLException {
+        return c.isWrapperFor(PGConnection.class);
+    }
+
+    /** Starts the COPY; no other statement can run on {@code c} until {@link #finish} or {@link #close}. */
+    static AllocationCopyWriter open(Connection c) throws SQLException {
+        return new AllocationCopyWriter(c.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL));
+    }
+
+    void row(String division, String day, int slot, Lecture lec, String room, UUID runId, int version)
+            throws SQLException {
+        text(division);
+        tab();
+        number(1); // semester (keep 1 by default or wire later)
+        tab();
+        text(lec.getSubject() != null ? lec.getSubject() : "---");
+        tab();
+        text(lec.getFaculty() != null ? lec.getFaculty() : "---");
+        tab();
+        text(room != null ? room : TimetableService.DEFAULT_CLASSNAME);
+        tab();
+        text(day);
+        tab();
+        number(slot);
+        tab();
+        text(lec.getSessionType());
+        tab();
+        if (!runId.equals(lastRunId)) {
+            lastRunId = runId;
+            lastRunText = runId.toString();
+        }
+        text(lastRunText);
+        tab();
+        number(version);
+        put((byte) '\n');
+    }
+
+    /** Sends the rest of the buffer and ends the COPY; returns the number of rows written. */
+    long finish() throws SQLException {
+        flush();
+        return copy.endCopy();
+    }
+
+    /** Cancels a COPY that was not finished (the transaction is rolled back by the caller). */
+    @Override
+    public void close() throws SQLException {
+        if (copy.isActive()) copy.cancelCopy();
+    }
+
+    private void text(String s) throws SQLException {
+        if (s == null) {
+            put((byte) '\\');
+            put((byte) 'N');
+            return;
+        }
+        byte[] b = encoded.computeIfAbsent(s, AllocationCopyWriter::encode);
+        if (b.length > buf.length - pos) flush();
+        if (b.length > buf.length) {
+            copy.writeToCopy(b, 0, b.length);
+            return;
+        }
+        System.arraycopy(b, 0, buf, pos, b.length);
+        pos += b.length;
+    }
+
+    /** Writes a non-negative int in decimal. */
+    private void number(int n) throws SQLException {
+        if (buf.length - pos < 10) flush();
+        int start = pos;
+        do {
+            buf[pos++] = (byte) ('0' + n % 10);
+            n /= 10;
+        } while (n > 0);
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+    }
+
+    private void tab() throws SQLException {
+        put((byte) '\t');
+    }
+
+    private void put(byte b) throws SQLException {
+        if (pos == buf.length) flush();
+        buf[pos++] = b;
+    }
+
+    private void flush() throws SQLException {
+        if (pos == 0) return;
+        copy.writeToCopy(buf, 0, pos);
+        pos = 0;
+    }
+
+    /** UTF-8 bytes of {@code s} with COPY text-format escapes (UTF-8 continuation bytes never look like ASCII). */
+    private static byte[] encode(String s) {
+        byte[] raw = s.getBytes(StandardCharsets.UTF_8);
+        int extra = 0;
+        for (byte b : raw) if (b == '\\' || b == '\t' || b == '\n' || b == '\r') extra++;
+        if (extra == 0) return raw;
+
+        byte[] out = new byte[raw.length + extra];
+        int i = 0;
+        for (byte b : raw) {
+            switch (b) {
+                case '\\': out[i++] = '\\'; out[i++] = '\\'; break;
+                case '\t': out[i++] = '\\'; out[i++] = 't'; break;
+                case '\n': out[i++] = '\\'; out[i++] = 'n'; break;
+                case '\r': out[i++] = '\\'; out[i++] = 'r'; break;
+                default: out[i++] = b;
+            }
+        }
+        return out;
+    }
+}
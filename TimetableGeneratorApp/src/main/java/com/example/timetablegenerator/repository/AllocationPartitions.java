@@ -0,0 +1,179 @@
+package com.example.timetablegenerator.repository;
+
+import org.postgresql.PGConnection;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Monthly partitions of the allocation table (PostgreSQL, miniproject.sql):
+ * allocation_pYYYYMM holds the rows generated in that month, UTC.
+ *
+ * New months are created as plain tables with a matching CHECK constraint
+ * and then attached, which takes only a SHARE UPDATE EXCLUSIVE lock on
+ * allocation (saves keep running) and needs no validation scan. Old months
+ * are detached CONCURRENTLY, exported and dropped, which never touches the
+ * partitions new runs are written to. There is no default partition, so a
+ * month must exist before rows for it are written: see {@link #ensure}.
+ *
+ * On other databases, or when allocation is a plain table, every method is
+ * a no-op and {@link #partitioned} is false.
+ */
+@Repository
+public class AllocationPartitions {
+
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'allocation_p'yyyyMM");
+
+    private final DataSource dataSource;
+    private final Set<YearMonth> attached = ConcurrentHashMap.newKeySet();
+    private volatile Boolean partitioned;
+
+    public AllocationPartitions(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public static String tableName(YearMonth month) {
+        return NAME.format(month);
+    }
+
+    /** True when allocation is a PostgreSQL partitioned table; checked once. */
+    public boolean partitioned() throws SQLException {
+        Boolean p = partitioned;
+        if (p == null) {
+            try (Connection c = dataSource.getConnection()) {
+                p = c.isWrapperFor(PGConnection.class) && "p".equals(relkind(c, "allocation"));
+            }
+            partitioned = p;
+        }
+        return p;
+    }
+
+    /** Creates and attaches the partition of {@code month} unless it is already there. */
+    public void ensure(YearMonth month) throws SQLException {
+        if (attached.contains(month) || !partitioned()) return;
+        String table = tableName(month);
+        String from = bound(month);
+        String to = bound(month.plusMonths(1));
+        try (Connection c = dataSource.getConnection(); Statement st = c.createStatement()) {
+            if (!isPartition(c, table)) {
+                st.execute("CREATE TABLE IF NOT EXISTS " + table +
+                        " (LIKE allocation INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                st.execute("ALTER TABLE " + table + " DROP CONSTRAINT IF EXISTS " + table + "_month");
+                st.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + table + "_month CHECK " +
+                        "(generated_at >= '" + from + "' AND generated_at < '" + to + "')");
+                try {
+                    st.execute("ALTER TABLE allocation ATTACH PARTITION " + table +
+                            " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+                    System.out.println("✅ Partition " + table + " attached");
+                } catch (SQLException e) {
+                    if (!isPartition(c, table)) throw e; // otherwise attached concurrently by another instance
+                }
+            }
+        }
+        attached.add(month);
+    }
+
+    /**
+     * Months of partition tables older than {@code keepFrom}, oldest first:
+     * attached ones and ones left detached by an interrupted cleanup.
+     */
+    public List<YearMonth> monthsBefore(YearMonth keepFrom) throws SQLException {
+        List<YearMonth> out = new ArrayList<>();
+        if (!partitioned()) return out;
+        String sql = "SELECT relname FROM pg_class WHERE relkind = 'r' AND relname ~ '^allocation_p[0-9]{6}$' " +
+                     "AND relnamespace = current_schema()::regnamespace AND relname < ? ORDER BY relname";
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, tableName(keepFrom));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(YearMonth.parse(rs.getString(1), NAME));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Detaches the partition of {@code month} without blocking writers
+     * (DETACH ... CONCURRENTLY, outside any transaction). A partition that
+     * is already detached is left as it is; one whose concurrent detach was
+     * interrupted is finalized.
+     */
+    public void detach(YearMonth month) throws SQLException {
+        String table = tableName(month);
+        try (Connection c = dataSource.getConnection(); Statement st = c.createStatement()) {
+            if (!isPartition(c, table)) return;
+            st.execute("ALTER TABLE allocation DETACH PARTITION " + table +
+                    (detachPending(c, table) ? " FINALIZE" : " CONCURRENTLY"));
+        }
+        attached.remove(month);
+    }
+
+    /** Writes the rows of a detached month to {@code out} as CSV with a header; returns the row count. */
+    public long export(YearMonth month, OutputStream out) throws SQLException, IOException {
+        try (Connection c = dataSource.getConnection()) {
+            return copyOut(c, "COPY " + tableName(month) + " TO STDOUT (FORMAT csv, HEADER)", out);
+        }
+    }
+
+    public void drop(YearMonth month) throws SQLException {
+        String table = tableName(month);
+        try (Connection c = dataSource.getConnection(); Statement st = c.createStatement()) {
+            if (isPartition(c, table)) throw new SQLException(table + " is still attached");
+            st.execute("DROP TABLE IF EXISTS " + table);
+        }
+    }
+
+    /** Runs a {@code COPY ... TO STDOUT} statement into {@code out}; returns the row count. */
+    static long copyOut(Connection c, String copySql, OutputStream out) throws SQLException, IOException {
+        return c.unwrap(PGConnection.class).getCopyAPI().copyOut(copySql, out);
+    }
+
+    /** First instant of {@code month} in UTC, as a timestamptz literal. */
+    static String bound(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC).toString();
+    }
+
+    private static String relkind(Connection c, String table) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT relkind FROM pg_class WHERE oid = to_regclass(?)")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static boolean detachPending(Connection c, String table) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT inhdetachpending FROM pg_inherits WHERE inhrelid = to_regclass(?)")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static boolean isPartition(Connection c, String table) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT relispartition FROM pg_class WHERE oid = to_regclass(?)")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.timetablegenerator.repository;
+
+import com.example.timetablegenerator.service.Rooms;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Rooms of the class table (room_type 'LAB' = lab room, capacity 0 = unknown). */
+@Repository
+public class ClassRoomRepository {
+
+    private final DataSource dataSource;
+
+    public ClassRoomRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public List<Rooms.Room> findAll() throws SQLException {
+        List<Rooms.Room> out = new ArrayList<>();
+        String sql = "SELECT classname, room_type, capacity FROM class ORDER BY classid";
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                out.add(new Rooms.Room(rs.getString("classname"),
+                        "LAB".equalsIgnoreCase(rs.getString("room_type")), rs.getInt("capacity")));
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,702 @@
+package com.example.timetablegenerator.repository;
+
+import com.example.timetablegenerator.service.TimetableGrid;
+import com.example.timetablegenerator.service.TimetableRepairer.Change;
+import com.example.timetablegenerator.service.TimetableService;
+import com.example.timetablegenerator.service.TimetableService.Lecture;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.*;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * SQL of saved runs: the run_catalog, run_snapshot and allocation tables and
+ * the v_timetable_by_run view.
+ *
+ * Connections are borrowed from the pooled DataSource for one method call;
+ * methods that write do so in a single transaction. Errors are thrown to the
+ * calling service, which decides how to report them.
+ *
+ * Every run has one run_catalog row, written in the same transaction as its
+ * cells: the version (from run_version_seq, so concurrent saves never share
+ * one), name, timestamps, row count and division/day lists. The history list
+ * and run lookups read only the catalog, a page at a time by version.
+ *
+ * A new run's cells are stored as one run_snapshot row ({@link RunSnapshotCodec}),
+ * which is what reads fetch, and, unless
+ * {@code timetable.storage.allocation-rows=false}, also as one allocation row
+ * per cell: the queryable projection the views and ad-hoc SQL use. Runs saved
+ * before snapshots existed are read from the rows. On PostgreSQL the rows are
+ * streamed with COPY ({@link AllocationCopyWriter}); other databases, or
+ * {@code timetable.db.copy.enabled=false}, use batched INSERTs.
+ *
+ * A run's allocation rows share its catalog generated_at (both are now() of
+ * the saving transaction), so lookups by run also match on that timestamp and
+ * PostgreSQL prunes them to the one monthly partition that holds the run
+ * ({@link AllocationPartitions}).
+ */
+@Repository
+public class RunRepository {
+
+    // Row for history list
+    public static class RunRow {
+        private UUID runId;
+        private int version;
+        private Timestamp generatedAt;
+        private Timestamp updatedAt;
+        private int rowsCount;
+        private String runName;
+        private List<String> divisions;
+        private List<String> days;
+
+        public UUID getRunId() { return runId; }
+        public int getVersion() { return version; }
+        public Timestamp getGeneratedAt() { return generatedAt; }
+        public Timestamp getUpdatedAt() { return updatedAt; }
+        public int getRowsCount() { return rowsCount; }
+        public String getRunName() { return runName; }
+        public List<String> getDivisions() { return divisions; }
+        public List<String> getDays() { return days; }
+    }
+
+    // Row for a run’s timetable view
+    public static class AllocationRow {
+        public String divisionname;
+        public String dayname;
+        public int slotno;
+        public String subjectname;
+        public String facultyname;
+        public String classname;
+        public String session_type;
+        public int semesternumber;
+    }
+
+    /** A generated run waiting to be written ({@link #insertPending}): its cells as a run snapshot. */
+    public static class PendingRun {
+        public final UUID runId;
+        public final String runName;
+        public final byte[] payload;
+
+        public PendingRun(UUID runId, String runName, byte[] payload) {
+            this.runId = runId;
+            this.runName = runName;
+            this.payload = payload;
+        }
+
+        public static PendingRun of(UUID runId, String runName, TimetableGrid grid) {
+            return new PendingRun(runId, runName, RunSnapshotCodec.encode(grid).payload());
+        }
+    }
+
+    /** Rows of one run read one at a time ({@link #openRun}); null after the last row. */
+    public interface RowCursor extends AutoCloseable {
+        AllocationRow next() throws SQLException;
+
+        @Override
+        void close() throws SQLException;
+    }
+
+    /**
+     * Order of division and day names in {@link #openRun}: by Unicode code
+     * point, nulls first, which is how PostgreSQL sorts them under COLLATE "C".
+     */
+    public static final Comparator<String> NAME_ORDER = Comparator.nullsFirst(RunRepository::compareCodePoints);
+
+    private static final String INSERT_ALLOCATION = "INSERT INTO allocation " +
+            "(divisionname, semesternumber, subjectname, facultyname, classname, dayname, slotno, session_type, generated_at, run_id, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, now(), ?, ?)";
+
+    private static final String INSERT_CATALOG = "INSERT INTO run_catalog " +
+            "(run_id, version, run_name, rows_count, divisions, days) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_CATALOG =
+            "SELECT run_id, version, run_name, generated_at, updated_at, rows_count, divisions, days FROM run_catalog";
+
+    /** generated_at of the run given as the next parameter, for partition pruning. */
+    private static final String RUN_GENERATED_AT = "(SELECT generated_at FROM run_catalog WHERE run_id = ?)";
+
+    private static final String INSERT_SNAPSHOT = "INSERT INTO run_snapshot(run_id, payload) VALUES (?, ?)";
+
+    private interface Work<T> {
+        T run(Connection c) throws SQLException;
+    }
+
+    /** Receives the occupied cells of a grid. */
+    private interface CellSink {
+        void cell(String division, String day, int slot, Lecture lec, String room) throws SQLException;
+    }
+
+    private final DataSource dataSource;
+    private final AllocationPartitions partitions;
+    private final boolean copyEnabled;
+    private final boolean snapshots;
+    private final boolean allocationRows;
+
+    public RunRepository(DataSource dataSource, AllocationPartitions partitions,
+                         @Value("${timetable.db.copy.enabled:true}") boolean copyEnabled,
+                         @Value("${timetable.storage.snapshots:true}") boolean snapshots,
+                         @Value("${timetable.storage.allocation-rows:true}") boolean allocationRows) {
+        this.dataSource = dataSource;
+        this.partitions = partitions;
+        this.copyEnabled = copyEnabled;
+        this.snapshots = snapshots;
+        this.allocationRows = allocationRows || !snapshots; // a run is always stored somewhere
+    }
+
+    /** True when new runs get a snapshot (so a repair cannot be saved as a copy of allocation rows). */
+    public boolean writesSnapshots() {
+        return snapshots;
+    }
+
+    // --------------------------- READ ---------------------------
+    /**
+     * Up to {@code limit} runs below version {@code beforeVersion} (null = from
+     * the newest), newest first. Keyset pagination on the unique version index,
+     * so a page costs the same however many runs there are.
+     *
+     * @param name     case-insensitive part of the run name, or null
+     * @param division exact division name the run must contain, or null
+     */
+    public List<RunRow> listRuns(String name, String division, Integer beforeVersion, int limit)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder(SELECT_CATALOG).append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (beforeVersion != null) {
+            sql.append(" AND version < ?");
+            params.add(beforeVersion);
+        }
+        if (name != null) {
+            sql.append(" AND run_name ILIKE ?");
+            params.add("%" + name.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        if (division != null) {
+            sql.append(" AND ? = ANY(divisions)");
+            params.add(division);
+        }
+        sql.append(" ORDER BY version DESC LIMIT ?");
+        params.add(limit);
+
+        List<RunRow> out = new ArrayList<>();
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(runRow(rs));
+            }
+        }
+        return out;
+    }
+
+    /** Catalog row of one run, or null when there is no such run. */
+    public RunRow findRun(UUID runId) throws SQLException {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(SELECT_CATALOG + " WHERE run_id = ?")) {
+            ps.setObject(1, runId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? runRow(rs) : null;
+            }
+        }
+    }
+
+    private static RunRow runRow(ResultSet rs) throws SQLException {
+        RunRow r = new RunRow();
+        r.runId = (UUID) rs.getObject("run_id");
+        r.version = rs.getInt("version");
+        r.runName = rs.getString("run_name");
+        r.generatedAt = rs.getTimestamp("generated_at");
+        r.updatedAt = rs.getTimestamp("updated_at");
+        r.rowsCount = rs.getInt("rows_count");
+        r.divisions = strings(rs.getArray("divisions"));
+        r.days = strings(rs.getArray("days"));
+        return r;
+    }
+
+    private static List<String> strings(Array array) throws SQLException {
+        if (array == null) return List.of();
+        List<String> out = new ArrayList<>();
+        for (Object o : (Object[]) array.getArray()) out.add(String.valueOf(o));
+        return out;
+    }
+
+    /** Rows of one run, ordered by division, day and slot: decoded from its snapshot when it has one. */
+    public List<AllocationRow> findAllocations(UUID runId) throws SQLException {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT payload FROM run_snapshot WHERE run_id = ?")) {
+            ps.setObject(1, runId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return RunSnapshotCodec.decode(rs.getBytes(1));
+            }
+        } catch (java.io.IOException e) {
+            throw new SQLException("Unreadable snapshot of run " + runId, e);
+        }
+
+        String sql = "SELECT divisionname, dayname, slotno, subjectname, facultyname, classname, session_type, semesternumber " +
+                     "FROM v_timetable_by_run WHERE run_id = ? AND generated_at = " + RUN_GENERATED_AT +
+                     " ORDER BY divisionname, dayname, slotno";
+        List<AllocationRow> out = new ArrayList<>();
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setObject(1, runId);
+            ps.setObject(2, runId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    AllocationRow r = new AllocationRow();
+                    r.divisionname = rs.getString("divisionname");
+                    r.dayname = rs.getString("dayname");
+                    r.slotno = rs.getInt("slotno");
+                    r.subjectname = rs.getString("subjectname");
+                    r.facultyname = rs.getString("facultyname");
+                    r.classname = rs.getString("classname");
+                    r.session_type = rs.getString("session_type");
+                    r.semesternumber = rs.getInt("semesternumber");
+                    out.add(r);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Cursor over the rows of one run in (division, day, slot) order, names
+     * by {@link #NAME_ORDER}, without holding the run in memory: a snapshot
+     * is decoded cell by cell ({@link RunSnapshotCodec.Cursor}), allocation
+     * rows are fetched from a server-side cursor a batch at a time (the
+     * cursor keeps its connection until closed). A run with neither yields
+     * no rows.
+     */
+    public RowCursor openRun(UUID runId) throws SQLException {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT payload FROM run_snapshot WHERE run_id = ?")) {
+            ps.setObject(1, runId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return new RunSnapshotCodec.Cursor(rs.getBytes(1));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Unreadable snapshot of run " + runId, e);
+        }
+
+        Connection c = dataSource.getConnection();
+        try {
+            boolean pg = AllocationCopyWriter.supported(c);
+            String collate = pg ? " COLLATE \"C\"" : "";
+            String sql = "SELECT divisionname, dayname, slotno, subjectname, facultyname, classname, session_type, semesternumber " +
+                         "FROM allocation WHERE run_id = ? AND generated_at = " + RUN_GENERATED_AT +
+                         " ORDER BY divisionname" + collate + " NULLS FIRST, dayname" + collate + " NULLS FIRST, slotno";
+            c.setAutoCommit(false); // PostgreSQL fetches by fetch size only inside a transaction
+            PreparedStatement ps = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(1000);
+            ps.setObject(1, runId);
+            ps.setObject(2, runId);
+            ResultSet rs = ps.executeQuery();
+            return new RowCursor() {
+                @Override
+                public AllocationRow next() throws SQLException {
+                    if (!rs.next()) return null;
+                    AllocationRow r = new AllocationRow();
+                    r.divisionname = rs.getString(1);
+                    r.dayname = rs.getString(2);
+                    r.slotno = rs.getInt(3);
+                    r.subjectname = rs.getString(4);
+                    r.facultyname = rs.getString(5);
+                    r.classname = rs.getString(6);
+                    r.session_type = rs.getString(7);
+                    r.semesternumber = rs.getInt(8);
+                    return r;
+                }
+
+                @Override
+                public void close() throws SQLException {
+                    try (c; ps; rs) {
+                        c.rollback(); // read only
+                        c.setAutoCommit(true);
+                    }
+                }
+            };
+        } catch (SQLException | RuntimeException e) {
+            c.close();
+            throw e;
+        }
+    }
+
+    private static int compareCodePoints(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        for (int i = 0; i < n; i++) {
+            int x = a.charAt(i);
+            int y = b.charAt(i);
+            if (x == y) continue;
+            // surrogates (0xD800–0xDFFF) encode code points above 0xFFFF: move them above 0xE000–0xFFFF
+            if (x >= 0xD800 && y >= 0xD800) {
+                x = x >= 0xE000 ? x - 0x800 : x + 0x2000;
+                y = y >= 0xE000 ? y - 0x800 : y + 0x2000;
+            }
+            return x - y;
+        }
+        return a.length() - b.length();
+    }
+
+    /** True when the run has allocation rows (the base an incremental repair copies from). */
+    public boolean hasAllocationRows(UUID runId) throws SQLException {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "SELECT 1 FROM allocation WHERE run_id = ? AND generated_at = " + RUN_GENERATED_AT + " LIMIT 1")) {
+            ps.setObject(1, runId);
+            ps.setObject(2, runId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // --------------------------- WRITE ---------------------------
+    public void delete(UUID runId) throws SQLException {
+        inTransaction(c -> {
+            try (PreparedStatement a = c.prepareStatement(
+                    "DELETE FROM allocation WHERE run_id = ? AND generated_at = " + RUN_GENERATED_AT)) {
+                a.setObject(1, runId);
+                a.setObject(2, runId);
+                a.executeUpdate();
+            }
+            // the snapshot goes with it (ON DELETE CASCADE)
+            try (PreparedStatement m = c.prepareStatement("DELETE FROM run_catalog WHERE run_id = ?")) {
+                m.setObject(1, runId);
+                m.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    public void rename(UUID runId, String newName) throws SQLException {
+        String sql = "UPDATE run_catalog SET run_name = ?, updated_at = now() WHERE run_id = ?";
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, newName);
+            ps.setObject(2, runId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserts each grid as a new run with the next versions from
+     * run_version_seq, in one transaction. Empty grids are skipped (version 0).
+     * A rolled-back save leaves a gap in the versions.
+     *
+     * @return the version of each grid
+     */
+    public int[] insertRuns(List<TimetableGrid> grids, List<UUID> runIds, List<String> runNames) throws SQLException {
+        if (allocationRows) partitions.ensure(YearMonth.now(ZoneOffset.UTC));
+        return inTransaction(c -> {
+            int[] versions = new int[grids.size()];
+            // 1) catalog (before the rows: nothing else can run on the connection during a COPY)
+            try (PreparedStatement catalog = c.prepareStatement(INSERT_CATALOG)) {
+                for (int i = 0; i < grids.size(); i++) {
+                    TimetableGrid grid = grids.get(i);
+                    if (grid == null || grid.isEmpty()) continue;
+                    versions[i] = nextVersion(c);
+                    setCatalog(catalog, runIds.get(i), versions[i], runNames.get(i), cellCount(grid),
+                            grid.divisions(), grid.days());
+                    catalog.addBatch();
+                }
+                catalog.executeBatch();
+            }
+
+            // 2) snapshots
+            if (snapshots) {
+                try (PreparedStatement ps = c.prepareStatement(INSERT_SNAPSHOT)) {
+                    for (int i = 0; i < grids.size(); i++) {
+                        if (versions[i] == 0) continue;
+                        RunSnapshotCodec.Snapshot snapshot = RunSnapshotCodec.encode(grids.get(i));
+                        ps.setObject(1, runIds.get(i));
+                        ps.setBytes(2, snapshot.payload());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+
+            // 3) insert allocations
+            if (!allocationRows) {
+                return versions;
+            } else if (copyEnabled && AllocationCopyWriter.supported(c)) {
+                try (AllocationCopyWriter copy = AllocationCopyWriter.open(c)) {
+                    for (int i = 0; i < grids.size(); i++) {
+                        if (versions[i] == 0) continue;
+                        UUID runId = runIds.get(i);
+                        int v = versions[i];
+                        forEachCell(grids.get(i), (division, day, slot, lec, room) ->
+                                copy.row(division, day, slot, lec, room, runId, v));
+                    }
+                    copy.finish();
+                }
+            } else {
+                try (PreparedStatement rows = c.prepareStatement(INSERT_ALLOCATION)) {
+                    for (int i = 0; i < grids.size(); i++) {
+                        if (versions[i] == 0) continue;
+                        UUID runId = runIds.get(i);
+                        int v = versions[i];
+                        forEachCell(grids.get(i), (division, day, slot, lec, room) -> {
+                            setAllocation(rows, division, day, slot, lec, room, runId, v);
+                            rows.addBatch();
+                        });
+                        rows.executeBatch();
+                    }
+                }
+            }
+            return versions;
+        });
+    }
+
+    /**
+     * Inserts runs that were generated earlier (write-behind), like
+     * {@link #insertRuns}, in one transaction. Idempotent on run_id: a run
+     * that is already in run_catalog is left as it is and keeps its version,
+     * so a batch whose commit was not acknowledged can simply be sent again.
+     *
+     * @return the version of each run
+     */
+    public int[] insertPending(List<PendingRun> runs) throws SQLException, IOException {
+        List<RunSnapshotCodec.Run> decoded = new ArrayList<>(runs.size());
+        for (PendingRun run : runs) decoded.add(RunSnapshotCodec.read(run.payload));
+        if (allocationRows) partitions.ensure(YearMonth.now(ZoneOffset.UTC));
+        return inTransaction(c -> {
+            int[] versions = new int[runs.size()];
+            boolean[] fresh = new boolean[runs.size()];
+            try (PreparedStatement existing = c.prepareStatement("SELECT version FROM run_catalog WHERE run_id = ?");
+                 PreparedStatement catalog = c.prepareStatement(INSERT_CATALOG)) {
+                for (int i = 0; i < runs.size(); i++) {
+                    existing.setObject(1, runs.get(i).runId);
+                    try (ResultSet rs = existing.executeQuery()) {
+                        if (rs.next()) {
+                            versions[i] = rs.getInt(1);
+                            continue;
+                        }
+                    }
+                    RunSnapshotCodec.Run run = decoded.get(i);
+                    versions[i] = nextVersion(c);
+                    fresh[i] = true;
+                    setCatalog(catalog, runs.get(i).runId, versions[i], runs.get(i).runName, run.rows().size(),
+                            run.divisions(), run.days());
+                    catalog.addBatch();
+                }
+                catalog.executeBatch();
+            }
+
+            if (snapshots) {
+                try (PreparedStatement ps = c.prepareStatement(INSERT_SNAPSHOT)) {
+                    for (int i = 0; i < runs.size(); i++) {
+                        if (!fresh[i]) continue;
+                        ps.setObject(1, runs.get(i).runId);
+                        ps.setBytes(2, runs.get(i).payload);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+
+            if (!allocationRows) {
+                return versions;
+            } else if (copyEnabled && AllocationCopyWriter.supported(c)) {
+                try (AllocationCopyWriter copy = AllocationCopyWriter.open(c)) {
+                    for (int i = 0; i < runs.size(); i++) {
+                        if (!fresh[i]) continue;
+                        for (AllocationRow r : decoded.get(i).rows()) {
+                            copy.row(r.divisionname, r.dayname, r.slotno, lecture(r), r.classname,
+                                    runs.get(i).runId, versions[i]);
+                        }
+                    }
+                    copy.finish();
+                }
+            } else {
+                try (PreparedStatement rows = c.prepareStatement(INSERT_ALLOCATION)) {
+                    for (int i = 0; i < runs.size(); i++) {
+                        if (!fresh[i]) continue;
+                        for (AllocationRow r : decoded.get(i).rows()) {
+                            setAllocation(rows, r.divisionname, r.dayname, r.slotno, lecture(r), r.classname,
+                                    runs.get(i).runId, versions[i]);
+                            rows.addBatch();
+                        }
+                        rows.executeBatch();
+                    }
+                }
+            }
+            return versions;
+        });
+    }
+
+    private static Lecture lecture(AllocationRow r) {
+        return new Lecture(r.subjectname, r.facultyname, r.session_type);
+    }
+
+    private static void setCatalog(PreparedStatement ps, UUID runId, int version, String runName, int rows,
+                                   List<String> divisions, List<String> days) throws SQLException {
+        Connection c = ps.getConnection();
+        ps.setObject(1, runId);
+        ps.setInt(2, version);
+        ps.setString(3, runName != null ? runName : ("Run " + java.time.LocalDateTime.now()));
+        ps.setInt(4, rows);
+        ps.setArray(5, c.createArrayOf("varchar", divisions.toArray()));
+        ps.setArray(6, c.createArrayOf("varchar", days.toArray()));
+    }
+
+    private static int cellCount(TimetableGrid grid) {
+        int n = 0;
+        for (int div = 0; div < grid.divisionCount(); div++) {
+            for (int d = 0; d < grid.dayCount(); d++) {
+                for (int slot = 1; slot <= grid.numSlots(); slot++) {
+                    if (!grid.isFree(div, d, slot)) n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    private static void forEachCell(TimetableGrid grid, CellSink sink) throws SQLException {
+        for (int div = 0; div < grid.divisionCount(); div++) {
+            String division = grid.division(div);
+            for (int d = 0; d < grid.dayCount(); d++) {
+                String day = grid.day(d);
+                for (int slot = 1; slot <= grid.numSlots(); slot++) {
+                    if (grid.isFree(div, d, slot)) continue;
+                    sink.cell(division, day, slot, grid.lecture(grid.get(div, d, slot)), grid.roomName(div, d, slot));
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves a repair of {@code baseRunId} as a new run: copies the base run
+     * minus the changed cells inside the database (INSERT ... SELECT), then
+     * inserts the changed cells, then catalogs the run with the base run's
+     * divisions and days. One transaction.
+     *
+     * @return the new run's version
+     */
+    public int insertRepair(UUID baseRunId, UUID runId, String runName, List<Change> changes) throws SQLException {
+        partitions.ensure(YearMonth.now(ZoneOffset.UTC));
+        return inTransaction(c -> {
+            int version = nextVersion(c);
+
+            String[] divs = new String[changes.size()];
+            String[] days = new String[changes.size()];
+            Integer[] slots = new Integer[changes.size()];
+            for (int i = 0; i < changes.size(); i++) {
+                divs[i] = changes.get(i).division;
+                days[i] = changes.get(i).day;
+                slots[i] = changes.get(i).slot;
+            }
+
+            String copy = "INSERT INTO allocation " +
+                    "(divisionname, semesternumber, subjectname, facultyname, classname, dayname, slotno, session_type, generated_at, run_id, version) " +
+                    "SELECT divisionname, semesternumber, subjectname, facultyname, classname, dayname, slotno, session_type, now(), ?, ? " +
+                    "FROM allocation a WHERE a.run_id = ? AND a.generated_at = " + RUN_GENERATED_AT + " AND NOT EXISTS (" +
+                    "  SELECT 1 FROM unnest(?::varchar[], ?::varchar[], ?::int[]) AS c(div, day, slot)" +
+                    "  WHERE c.div = a.divisionname AND c.day = a.dayname AND c.slot = a.slotno)";
+            int copied;
+            try (PreparedStatement ps = c.prepareStatement(copy)) {
+                ps.setObject(1, runId);
+                ps.setInt(2, version);
+                ps.setObject(3, baseRunId);
+                ps.setObject(4, baseRunId);
+                ps.setArray(5, c.createArrayOf("varchar", divs));
+                ps.setArray(6, c.createArrayOf("varchar", days));
+                ps.setArray(7, c.createArrayOf("int4", slots));
+                copied = ps.executeUpdate();
+            }
+
+            int inserted = 0;
+            try (PreparedStatement ps = c.prepareStatement(INSERT_ALLOCATION)) {
+                for (Change ch : changes) {
+                    if (ch.after == null) continue; // now free: simply not copied
+                    setAllocation(ps, ch.division, ch.day, ch.slot, ch.after, ch.room, runId, version);
+                    ps.addBatch();
+                    inserted++;
+                }
+                if (inserted > 0) ps.executeBatch();
+            }
+
+            String catalog = "INSERT INTO run_catalog (run_id, version, run_name, rows_count, divisions, days) " +
+                    "SELECT ?, ?, ?, ?, divisions, days FROM run_catalog WHERE run_id = ?";
+            try (PreparedStatement ps = c.prepareStatement(catalog)) {
+                ps.setObject(1, runId);
+                ps.setInt(2, version);
+                ps.setString(3, runName);
+                ps.setInt(4, copied + inserted);
+                ps.setObject(5, baseRunId);
+                if (ps.executeUpdate() == 0) throw new SQLException("Run " + baseRunId + " is not in run_catalog");
+            }
+
+            System.out.println("✅ Repair saved as run " + runId + " (v" + version + "): "
+                    + copied + " rows copied, " + inserted + " rows written");
+            return version;
+        });
+    }
+
+    // --------------------------- RETENTION ---------------------------
+    /**
+     * Writes the catalog rows and snapshots of the runs generated before
+     * {@code keepFrom} (UTC) to {@code out} as CSV with a header (PostgreSQL).
+     *
+     * @return the number of runs written
+     */
+    public long exportRunsBefore(YearMonth keepFrom, OutputStream out) throws SQLException, IOException {
+        String sql = "COPY (SELECT c.run_id, c.version, c.run_name, c.generated_at, c.updated_at, c.rows_count, " +
+                     "c.divisions, c.days, s.payload FROM run_catalog c LEFT JOIN run_snapshot s ON s.run_id = c.run_id " +
+                     "WHERE c.generated_at < '" + AllocationPartitions.bound(keepFrom) + "' ORDER BY c.version) " +
+                     "TO STDOUT (FORMAT csv, HEADER)";
+        try (Connection c = dataSource.getConnection()) {
+            return AllocationPartitions.copyOut(c, sql, out);
+        }
+    }
+
+    /** Deletes the catalog rows (and so the snapshots) of the runs generated before {@code keepFrom}. */
+    public int deleteRunsBefore(YearMonth keepFrom) throws SQLException {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement("DELETE FROM run_catalog WHERE generated_at < ?")) {
+            ps.setObject(1, keepFrom.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC));
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void setAllocation(PreparedStatement ps, String division, String day, int slot, Lecture lec,
+                                      String room, UUID runId, int version) throws SQLException {
+        ps.setString(1, division);
+        ps.setInt(2, 1); // semester (keep 1 by default or wire later)
+        ps.setString(3, Optional.ofNullable(lec.getSubject()).orElse("---"));
+        ps.setString(4, Optional.ofNullable(lec.getFaculty()).orElse("---"));
+        ps.setString(5, room != null ? room : TimetableService.DEFAULT_CLASSNAME);
+        ps.setString(6, day);
+        ps.setInt(7, slot);
+        ps.setString(8, lec.getSessionType());
+        ps.setObject(9, runId);
+        ps.setInt(10, version);
+    }
+
+    private static int nextVersion(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT nextval('run_version_seq')");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private <T> T inTransaction(Work<T> work) throws SQLException {
+        try (Connection c = dataSource.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                T result = work.run(c);
+                c.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+}
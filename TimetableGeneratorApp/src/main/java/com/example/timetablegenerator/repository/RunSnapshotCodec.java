@@ -0,0 +1,284 @@
+package com.example.timetablegenerator.repository;
+
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
+import com.example.timetablegenerator.service.TimetableGrid;
+import com.example.timetablegenerator.service.TimetableService;
+import com.example.timetablegenerator.service.TimetableService.Lecture;
+
+import java.io.*;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary form of a whole run, stored in {@code run_snapshot.payload}.
+ *
+ * Every string (division, day, subject, faculty, room, session type) is
+ * written once to a dictionary and cells refer to it by index; a division's
+ * day is a 64-bit occupancy mask followed by the dictionary indexes of its
+ * occupied slots. The body is deflate-compressed. Layout, after the 4-byte
+ * header "TTS" + format version:
+ * <pre>
+ * varint numSlots
+ * varint n, n × UTF string          dictionary
+ * varint n, n × varint              divisions
+ * varint n, n × varint              days
+ * per division, per day:
+ *   long occupied                   bit s = slot s
+ *   per occupied slot: varint subject, faculty, room, sessionType
+ * </pre>
+ * Cells hold exactly what the allocation rows would (semester 1, "---" for a
+ * missing subject or faculty, the default class name without a room).
+ */
+final class RunSnapshotCodec {
+
+    private static final byte[] HEADER = {'T', 'T', 'S', 1};
+
+    /** Encoded run and the number of rows it stands for. */
+    record Snapshot(byte[] payload, int rows) {}
+
+    /** A decoded snapshot: the run's division and day lists and its rows. */
+    record Run(List<String> divisions, List<String> days, List<AllocationRow> rows) {}
+
+    private RunSnapshotCodec() {}
+
+    static Snapshot encode(TimetableGrid grid) {
+        Map<String, Integer> dict = new LinkedHashMap<>();
+        int[] divisions = new int[grid.divisionCount()];
+        int[] days = new int[grid.dayCount()];
+        for (int i = 0; i < divisions.length; i++) divisions[i] = index(dict, grid.division(i));
+        for (int i = 0; i < days.length; i++) days[i] = index(dict, grid.day(i));
+
+        // cells first, so the dictionary is complete before it is written
+        long[] masks = new long[divisions.length * days.length];
+        int[] cells = new int[4 * grid.divisionCount() * grid.dayCount() * grid.numSlots()];
+        int n = 0;
+        for (int div = 0; div < divisions.length; div++) {
+            for (int d = 0; d < days.length; d++) {
+                long mask = 0;
+                for (int slot = 1; slot <= grid.numSlots(); slot++) {
+                    if (grid.isFree(div, d, slot)) continue;
+                    mask |= 1L << slot;
+                    Lecture lec = grid.lecture(grid.get(div, d, slot));
+                    String room = grid.roomName(div, d, slot);
+                    cells[n++] = index(dict, lec.getSubject() != null ? lec.getSubject() : "---");
+                    cells[n++] = index(dict, lec.getFaculty() != null ? lec.getFaculty() : "---");
+                    cells[n++] = index(dict, room != null ? room : TimetableService.DEFAULT_CLASSNAME);
+                    cells[n++] = index(dict, lec.getSessionType());
+                }
+                masks[div * days.length + d] = mask;
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + n);
+        bytes.writeBytes(HEADER);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            varint(out, grid.numSlots());
+            varint(out, dict.size());
+            for (String s : dict.keySet()) out.writeUTF(s);
+            varint(out, divisions.length);
+            for (int i : divisions) varint(out, i);
+            varint(out, days.length);
+            for (int i : days) varint(out, i);
+            int c = 0;
+            for (long mask : masks) {
+                out.writeLong(mask);
+                for (int k = 4 * Long.bitCount(mask); k > 0; k--) varint(out, cells[c++]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        return new Snapshot(bytes.toByteArray(), n / 4);
+    }
+
+    /** Rows of a snapshot, ordered by division, day ({@link RunRepository#NAME_ORDER}) and slot, like {@link Cursor}. */
+    static List<AllocationRow> decode(byte[] payload) throws IOException {
+        return read(payload).rows();
+    }
+
+    static Run read(byte[] payload) throws IOException {
+        checkHeader(payload);
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(payload, HEADER.length, payload.length - HEADER.length)))) {
+            int numSlots = varint(in);
+            String[] dict = new String[varint(in)];
+            for (int i = 0; i < dict.length; i++) dict[i] = in.readUTF();
+            String[] divisions = new String[varint(in)];
+            for (int i = 0; i < divisions.length; i++) divisions[i] = dict[varint(in)];
+            String[] days = new String[varint(in)];
+            for (int i = 0; i < days.length; i++) days[i] = dict[varint(in)];
+
+            List<AllocationRow> rows = new ArrayList<>();
+            for (String division : divisions) {
+                for (String day : days) {
+                    long mask = in.readLong();
+                    for (int slot = 1; slot <= numSlots; slot++) {
+                        if ((mask & (1L << slot)) == 0) continue;
+                        AllocationRow r = new AllocationRow();
+                        r.divisionname = division;
+                        r.dayname = day;
+                        r.slotno = slot;
+                        r.subjectname = dict[varint(in)];
+                        r.facultyname = dict[varint(in)];
+                        r.classname = dict[varint(in)];
+                        r.session_type = dict[varint(in)];
+                        r.semesternumber = 1;
+                        rows.add(r);
+                    }
+                }
+            }
+            rows.sort(Comparator.comparing((AllocationRow r) -> r.divisionname, RunRepository.NAME_ORDER)
+                    .thenComparing(r -> r.dayname, RunRepository.NAME_ORDER)
+                    .thenComparingInt(r -> r.slotno));
+            return new Run(List.of(divisions), List.of(days), rows);
+        }
+    }
+
+    /**
+     * Reads the cells of a snapshot one at a time in (division, day, slot)
+     * order of the names ({@link RunRepository#NAME_ORDER}), without decoding
+     * the run into rows. Divisions are stored in generation order, so a
+     * division's block (its day masks and cells) is held only from when it
+     * is read until its cells have been returned: one block at a time when
+     * the divisions were generated in name order, as they usually are.
+     */
+    static final class Cursor implements RunRepository.RowCursor {
+        private final DataInputStream in;
+        private final String[] dict;
+        private final String[] divisions;
+        private final String[] days;
+        private final int numSlots;
+        private final Integer[] divisionOrder; // division indexes in name order
+        private final Integer[] dayOrder;      // day indexes in name order
+        private final int[][] blocks;          // per division once read: days × (mask hi, mask lo, first cell) + cells
+        private int blocksRead;
+        private int nextDivision;              // position in divisionOrder
+        private int[] block;
+        private int division = -1;
+        private int day;
+        private int slot;
+
+        Cursor(byte[] payload) throws IOException {
+            checkHeader(payload);
+            in = new DataInputStream(new InflaterInputStream(
+                    new ByteArrayInputStream(payload, HEADER.length, payload.length - HEADER.length)));
+            numSlots = varint(in);
+            dict = new String[varint(in)];
+            for (int i = 0; i < dict.length; i++) dict[i] = in.readUTF();
+            divisions = new String[varint(in)];
+            for (int i = 0; i < divisions.length; i++) divisions[i] = dict[varint(in)];
+            days = new String[varint(in)];
+            for (int i = 0; i < days.length; i++) days[i] = dict[varint(in)];
+            divisionOrder = order(divisions);
+            dayOrder = order(days);
+            blocks = new int[divisions.length][];
+        }
+
+        private static Integer[] order(String[] names) {
+            Integer[] order = new Integer[names.length];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> RunRepository.NAME_ORDER.compare(names[a], names[b]));
+            return order;
+        }
+
+        @Override
+        public AllocationRow next() throws SQLException {
+            try {
+                while (true) {
+                    if (block == null) {
+                        if (nextDivision == divisionOrder.length) return null;
+                        division = divisionOrder[nextDivision++];
+                        block = block(division);
+                        day = 0;
+                        slot = 0;
+                    }
+                    for (; day < days.length; day++, slot = 0) {
+                        int d = dayOrder[day];
+                        long mask = ((long) block[3 * d] << 32) | (block[3 * d + 1] & 0xFFFFFFFFL);
+                        long rest = slot >= 63 ? 0 : mask & (-1L << (slot + 1));
+                        if (rest == 0) continue;
+                        slot = Long.numberOfTrailingZeros(rest);
+                        int cell = block[3 * d + 2] + 4 * Long.bitCount(mask & ((1L << slot) - 1));
+                        AllocationRow r = new AllocationRow();
+                        r.divisionname = divisions[division];
+                        r.dayname = days[d];
+                        r.slotno = slot;
+                        r.subjectname = dict[block[cell]];
+                        r.facultyname = dict[block[cell + 1]];
+                        r.classname = dict[block[cell + 2]];
+                        r.session_type = dict[block[cell + 3]];
+                        r.semesternumber = 1;
+                        return r;
+                    }
+                    blocks[division] = null; // done with this division
+                    block = null;
+                }
+            } catch (IOException e) {
+                throw new SQLException("Unreadable run snapshot", e);
+            }
+        }
+
+        /** The block of {@code division}, reading (and keeping) the blocks stored before it. */
+        private int[] block(int division) throws IOException {
+            while (blocksRead <= division) {
+                int[] header = new int[3 * days.length];
+                int[] cells = new int[4 * days.length * numSlots];
+                int n = 0;
+                for (int d = 0; d < days.length; d++) {
+                    long mask = in.readLong();
+                    header[3 * d] = (int) (mask >>> 32);
+                    header[3 * d + 1] = (int) mask;
+                    header[3 * d + 2] = header.length + n;
+                    for (int k = 4 * Long.bitCount(mask); k > 0; k--) cells[n++] = varint(in);
+                }
+                int[] b = Arrays.copyOf(header, header.length + n);
+                System.arraycopy(cells, 0, b, header.length, n);
+                blocks[blocksRead++] = b;
+            }
+            return blocks[division];
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // in-memory stream
+            }
+        }
+    }
+
+    private static void checkHeader(byte[] payload) throws IOException {
+        if (payload.length < HEADER.length || !Arrays.equals(payload, 0, HEADER.length, HEADER, 0, HEADER.length)) {
+            throw new IOException("Unknown run snapshot format");
+        }
+    }
+
+    private static int index(Map<String, Integer> dict, String s) {
+        Integer i = dict.get(s);
+        if (i == null) {
+            i = dict.size();
+            dict.put(s, i);
+        }
+        return i;
+    }
+
+    private static void varint(DataOutput out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int varint(DataInput in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint in run snapshot");
+    }
+}
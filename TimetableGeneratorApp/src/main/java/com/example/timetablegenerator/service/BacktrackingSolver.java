@@ -0,0 +1,411 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.SolverProblem.Demand;
+
+import java.util.*;
+
+/**
+ * Depth-first search engine for instances the greedy pass cannot complete.
+ *
+ * Each level places one unit (a lecture or a 2-slot lab) of the demand line
+ * with the fewest remaining options (MRV). After every placement the domains
+ * of all lines sharing the division or the faculty are forward-checked, and on
+ * a dead end the search jumps straight back to the deepest placement that
+ * touched the failing division/faculty (conflict-directed backjumping).
+ * Units of one demand line are placed in increasing (day, slot) order so
+ * interchangeable units are not re-explored. The whole search is bounded by a
+ * wall-clock budget; on failure the state holds the deepest partial
+ * assignment the search reached, and the units it left out are returned.
+ */
+public class BacktrackingSolver implements TimetableSolver {
+
+    private final long timeBudgetMs;
+    private volatile boolean timedOut;
+
+    public BacktrackingSolver(long timeBudgetMs) {
+        this.timeBudgetMs = timeBudgetMs;
+    }
+
+    /** True when the last {@link #solve} stopped at its time budget rather than finishing the search. */
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public int solve(SolverProblem problem, SolverState state) {
+        long t0 = System.nanoTime();
+        Search search = new Search(problem, state, t0 + timeBudgetMs * 1_000_000L);
+        boolean ok = search.run();
+        timedOut = search.timedOut;
+        long ms = (System.nanoTime() - t0) / 1_000_000L;
+        if (ok) {
+            System.out.println("✅ Backtracking placed all " + problem.totalUnits() + " units in " + ms
+                    + " ms (nodes=" + search.nodes + ")");
+            return 0;
+        }
+        int unplaced = problem.totalUnits() - search.best;
+        System.out.println("⚠️ WARN: Backtracking gave up after " + ms + " ms (nodes=" + search.nodes
+                + (search.timedOut ? ", time budget exhausted" : ", search space exhausted")
+                + "), keeping its best partial assignment (unplaced=" + unplaced + ")");
+        return unplaced;
+    }
+
+    private static final class Frame {
+        int group = -1;
+        int[] values;
+        int next;
+        boolean active;
+        int value;
+        int prevLast;
+        final BitSet conflicts = new BitSet();
+    }
+
+    private static final class Search {
+        private final SolverState st;
+        private final long deadline;
+
+        // demand lines ("groups"), flattened
+        private final int[] div, fac, lec, remaining, last;
+        private final boolean[] lab;
+        private final int[][] byDivision, byFaculty;
+
+        // aggregate demand still to place (lab = 2 units) per division / faculty, labs per division
+        private final int[] divUnitsLeft, divLabsLeft, facUnitsLeft;
+
+        // per level: which division/faculty the placement touched
+        private final int[] levelDiv, levelFac;
+        private final Frame[] frames;
+
+        private final boolean roomsShared;
+
+        // deepest partial assignment so far: (group, value) per level
+        private final int[] bestGroup, bestValue;
+        int best;
+
+        long nodes;
+        boolean timedOut;
+
+        Search(SolverProblem problem, SolverState st, long deadline) {
+            this.st = st;
+            this.deadline = deadline;
+            this.roomsShared = !st.grid.rooms().isEmpty();
+
+            List<Demand> demands = problem.demands();
+            int n = demands.size();
+            div = new int[n]; fac = new int[n]; lec = new int[n];
+            remaining = new int[n]; last = new int[n]; lab = new boolean[n];
+
+            Map<Integer, List<Integer>> divGroups = new HashMap<>();
+            Map<Integer, List<Integer>> facGroups = new HashMap<>();
+            int maxFac = 0;
+            for (int g = 0; g < n; g++) {
+                Demand d = demands.get(g);
+                div[g] = d.division; fac[g] = d.faculty; lec[g] = d.lectureId;
+                remaining[g] = d.count; last[g] = -1; lab[g] = d.lab;
+                divGroups.computeIfAbsent(d.division, k -> new ArrayList<>()).add(g);
+                facGroups.computeIfAbsent(d.faculty, k -> new ArrayList<>()).add(g);
+                maxFac = Math.max(maxFac, d.faculty);
+            }
+            byDivision = new int[st.grid.divisionCount()][];
+            for (int v = 0; v < byDivision.length; v++) byDivision[v] = toArray(divGroups.get(v));
+            byFaculty = new int[maxFac + 1][];
+            for (int f = 0; f < byFaculty.length; f++) byFaculty[f] = toArray(facGroups.get(f));
+
+            divUnitsLeft = new int[st.grid.divisionCount()];
+            divLabsLeft = new int[st.grid.divisionCount()];
+            facUnitsLeft = new int[maxFac + 1];
+            for (int g = 0; g < n; g++) {
+                int w = lab[g] ? 2 : 1;
+                divUnitsLeft[div[g]] += w * remaining[g];
+                facUnitsLeft[fac[g]] += w * remaining[g];
+                if (lab[g]) divLabsLeft[div[g]] += remaining[g];
+            }
+
+            int units = problem.totalUnits();
+            levelDiv = new int[units + 1];
+            levelFac = new int[units + 1];
+            frames = new Frame[units + 1];
+            for (int i = 0; i <= units; i++) frames[i] = new Frame();
+            bestGroup = new int[units];
+            bestValue = new int[units];
+        }
+
+        private static int[] toArray(List<Integer> l) {
+            if (l == null) return new int[0];
+            int[] a = new int[l.size()];
+            for (int i = 0; i < a.length; i++) a[i] = l.get(i);
+            return a;
+        }
+
+        boolean run() {
+            int level = 0;
+            for (int v = 0; v < divUnitsLeft.length; v++) {
+                if (!divisionFeasible(v)) {
+                    System.out.println("⚠️ WARN: Demand of division " + st.grid.division(v) + " cannot fit its week");
+                    return false;
+                }
+            }
+            for (int f = 0; f < facUnitsLeft.length; f++) {
+                if (!facultyFeasible(f)) {
+                    System.out.println("⚠️ WARN: Load of faculty " + st.grid.faculty(f) + " exceeds its weekly capacity");
+                    return false;
+                }
+            }
+            if (!open(level)) return true; // nothing to place
+
+            while (true) {
+                if ((++nodes & 255) == 0 && System.nanoTime() > deadline) {
+                    timedOut = true;
+                    unwind(level);
+                    restoreBest();
+                    return false;
+                }
+
+                Frame f = frames[level];
+                if (f.next < f.values.length) {
+                    assign(level, f.values[f.next++]);
+                    if (!forwardCheck(f.group, level, f.conflicts)) {
+                        unassign(level);
+                        continue;
+                    }
+                    level++;
+                    if (level > best) recordBest(level);
+                    if (!open(level)) return true; // every unit placed
+                    continue;
+                }
+
+                // values exhausted: jump back to the deepest placement that constrains this line
+                BitSet conflict = f.conflicts;
+                touching(f.group, level, conflict);
+                conflict.clear(level);
+                if (conflict.isEmpty()) {
+                    unwind(level);
+                    restoreBest();
+                    return false;
+                }
+                int target = conflict.length() - 1;
+                for (int k = level - 1; k > target; k--) unassign(k);
+                unassign(target);
+                conflict.clear(target);
+                frames[target].conflicts.or(conflict);
+                level = target;
+            }
+        }
+
+        /** Sets up the frame for {@code level}; false when there is nothing left to place. */
+        private boolean open(int level) {
+            Frame f = frames[level];
+            f.group = selectGroup();
+            if (f.group < 0) return false;
+            f.values = orderedValues(f.group);
+            f.next = 0;
+            f.active = false;
+            f.conflicts.clear();
+            return true;
+        }
+
+        private void unwind(int level) {
+            for (int k = level; k >= 0; k--) unassign(k);
+        }
+
+        /** Remembers levels 0..depth-1 as the deepest partial assignment. */
+        private void recordBest(int depth) {
+            for (int k = 0; k < depth; k++) {
+                bestGroup[k] = frames[k].group;
+                bestValue[k] = frames[k].value;
+            }
+            best = depth;
+        }
+
+        /** Replays the deepest partial assignment onto the (unwound) state; each placement is legal in that order. */
+        private void restoreBest() {
+            for (int k = 0; k < best; k++) {
+                frames[k].group = bestGroup[k];
+                assign(k, bestValue[k]);
+            }
+        }
+
+        private void assign(int level, int value) {
+            Frame f = frames[level];
+            int g = f.group;
+            int d = value >> 6, s = value & 63;
+            if (lab[g]) st.placeLab(div[g], d, s, lec[g], fac[g]);
+            else st.placeLecture(div[g], d, s, lec[g], fac[g]);
+            remaining[g]--;
+            adjustLeft(g, -1);
+            f.prevLast = last[g];
+            last[g] = value;
+            f.value = value;
+            f.active = true;
+            levelDiv[level] = div[g];
+            levelFac[level] = fac[g];
+        }
+
+        private void unassign(int level) {
+            Frame f = frames[level];
+            if (!f.active) return;
+            int g = f.group;
+            int d = f.value >> 6, s = f.value & 63;
+            if (lab[g]) st.removeLab(div[g], d, s, fac[g]);
+            else st.removeLecture(div[g], d, s, fac[g]);
+            remaining[g]++;
+            adjustLeft(g, 1);
+            last[g] = f.prevLast;
+            f.active = false;
+            levelDiv[level] = -1;
+            levelFac[level] = -1;
+        }
+
+        private void adjustLeft(int g, int sign) {
+            int w = lab[g] ? 2 : 1;
+            divUnitsLeft[div[g]] += sign * w;
+            facUnitsLeft[fac[g]] += sign * w;
+            if (lab[g]) divLabsLeft[div[g]] += sign;
+        }
+
+        /**
+         * Adds every level below {@code level} that placed something in g's division or for g's faculty.
+         * Any placement may hold the room g needs, so with rooms every earlier level counts.
+         */
+        private void touching(int g, int level, BitSet out) {
+            if (roomsShared) {
+                out.set(0, level);
+                return;
+            }
+            for (int k = 0; k < level; k++) {
+                if (levelDiv[k] == div[g] || levelFac[k] == fac[g]) out.set(k);
+            }
+        }
+
+        private void touchingDivision(int v, int level, BitSet out) {
+            for (int k = 0; k < level; k++) if (levelDiv[k] == v) out.set(k);
+        }
+
+        private void touchingFaculty(int f, int level, BitSet out) {
+            for (int k = 0; k < level; k++) if (levelFac[k] == f) out.set(k);
+        }
+
+        /**
+         * Forward check after placing a unit of {@code g}: the division and the faculty must still
+         * have room for what they owe, and every line sharing either must keep enough candidates.
+         * On failure the responsible earlier levels are added to {@code conflicts}.
+         */
+        private boolean forwardCheck(int g, int level, BitSet conflicts) {
+            if (!divisionFeasible(div[g])) {
+                touchingDivision(div[g], level, conflicts);
+                return false;
+            }
+            if (!facultyFeasible(fac[g])) {
+                touchingFaculty(fac[g], level, conflicts);
+                return false;
+            }
+            for (int h : byDivision[div[g]]) {
+                if (remaining[h] > 0 && domainSize(h) < remaining[h]) {
+                    touching(h, level, conflicts);
+                    return false;
+                }
+            }
+            for (int h : byFaculty[fac[g]]) {
+                if (remaining[h] > 0 && domainSize(h) < remaining[h]) {
+                    touching(h, level, conflicts);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean divisionFeasible(int v) {
+            if (divUnitsLeft[v] == 0) return true;
+            TimetableGrid grid = st.grid;
+            long valid = OccupancyIndex.slotMask(grid.numSlots());
+            int free = 0, labDays = 0;
+            for (int d = 0; d < grid.dayCount(); d++) {
+                free += Long.bitCount(~grid.occupiedMask(v, d) & valid);
+                if (!st.divisionDayHasLab[v][d]) labDays++;
+            }
+            return divUnitsLeft[v] <= free && divLabsLeft[v] <= labDays;
+        }
+
+        private boolean facultyFeasible(int f) {
+            if (facUnitsLeft[f] == 0) return true;
+            int room = 0;
+            for (int d = 0; d < st.grid.dayCount(); d++) {
+                room += Math.max(0, st.maxLecturesPerDay - st.facultyBusy.load(f, d));
+            }
+            return facUnitsLeft[f] <= room;
+        }
+
+        /** Most constrained line first (least slack), labs before lectures on ties. */
+        private int selectGroup() {
+            int best = -1, bestSlack = Integer.MAX_VALUE;
+            for (int g = 0; g < remaining.length; g++) {
+                if (remaining[g] == 0) continue;
+                int slack = domainSize(g) - remaining[g];
+                if (slack < 0) return g;
+                if (slack < bestSlack || (slack == bestSlack && lab[g] && !lab[best])) {
+                    best = g;
+                    bestSlack = slack;
+                }
+            }
+            return best;
+        }
+
+        /** Candidate start slots of line g on day d as a bitmask. */
+        private long dayMask(int g, int d) {
+            int v = div[g], f = fac[g];
+            long m;
+            if (lab[g]) {
+                if (st.divisionDayHasLab[v][d] || !st.hasCapacity(f, d, 2)) return 0;
+                long free = st.freeMask(v, d, f);
+                m = free & (free >>> 1) & st.roomMask(v, d, true);
+            } else {
+                if (!st.hasCapacity(f, d, 1)) return 0;
+                long own = st.facultySlots(v, d, f);
+                m = st.freeMask(v, d, f) & ~((own << 1) | (own >>> 1)) // no back-to-back with same faculty
+                        & st.roomMask(v, d, false);
+            }
+            int lastPos = last[g];
+            if (lastPos >= 0) {
+                int ld = lastPos >> 6, ls = lastPos & 63;
+                if (d < ld) return 0;
+                if (d == ld) m &= ls >= 63 ? 0 : (-1L << (ls + 1));
+            }
+            return m;
+        }
+
+        /** Lectures: number of candidate cells; labs: number of candidate days (one lab per day). */
+        private int domainSize(int g) {
+            int n = 0;
+            for (int d = 0; d < st.grid.dayCount(); d++) {
+                long m = dayMask(g, d);
+                if (m == 0) continue;
+                n += lab[g] ? 1 : Long.bitCount(m);
+            }
+            return n;
+        }
+
+        /** Candidate values (day << 6 | slot), preferring days without this subject and with a lighter faculty load. */
+        private int[] orderedValues(int g) {
+            TimetableGrid grid = st.grid;
+            long[] keyed = new long[64];
+            int n = 0;
+            for (int d = 0; d < grid.dayCount(); d++) {
+                long m = dayMask(g, d);
+                if (m == 0) continue;
+                int same = 0;
+                for (int s = 1; s <= grid.numSlots(); s++) if (grid.get(div[g], d, s) == lec[g]) same++;
+                long score = ((long) same << 8) | st.facultyBusy.load(fac[g], d);
+                while (m != 0) {
+                    int s = Long.numberOfTrailingZeros(m);
+                    m &= m - 1;
+                    if (n == keyed.length) keyed = Arrays.copyOf(keyed, n * 2);
+                    keyed[n++] = (score << 32) | ((long) d << 6) | s;
+                }
+            }
+            Arrays.sort(keyed, 0, n);
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) values[i] = (int) (keyed[i] & 0xFFFFFFFFL);
+            return values;
+        }
+    }
+}
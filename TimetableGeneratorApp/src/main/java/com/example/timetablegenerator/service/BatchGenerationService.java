@@ -0,0 +1,230 @@
+package com.example.timetablegenerator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk generation: many requests in, one NDJSON line out per request.
+ *
+ * Items are pulled from the (lazily parsed) input only while fewer than
+ * {@code 2 × timetable.batch.workers} are in flight, so neither the upload
+ * nor the results are ever held in memory as a whole. Finished timetables
+ * are saved in groups of up to {@code timetable.batch.save-group}, one
+ * transaction per group, and each line is written as soon as its group is
+ * committed (a group is also flushed whenever nothing finishes for
+ * {@link #FLUSH_AFTER_MS}). Lines come in completion order; {@code index}
+ * gives the item's position in the upload.
+ *
+ * All batches share one pool of {@code timetable.batch.workers} threads, so
+ * concurrent uploads queue behind each other instead of each starting its own.
+ */
+@Service
+public class BatchGenerationService {
+
+    private static final long FLUSH_AFTER_MS = 250;
+
+    /** One parsed block of the upload; {@code error} is set (and {@code request} null) when it did not parse. */
+    public static class BatchItem {
+        public final int index;
+        public final String name;
+        public final GenerationRequest request;
+        public final String error;
+
+        private BatchItem(int index, String name, GenerationRequest request, String error) {
+            this.index = index;
+            this.name = name;
+            this.request = request;
+            this.error = error;
+        }
+
+        public static BatchItem of(int index, String name, GenerationRequest request) {
+            return new BatchItem(index, name, request, null);
+        }
+
+        public static BatchItem failed(int index, String name, String error) {
+            return new BatchItem(index, name, null, error);
+        }
+    }
+
+    private static class Done {
+        final BatchItem item;
+        final GeneratedTimetable result;
+        final String cacheKey;
+        final GenerationCache.Entry cached;
+        final String error;
+        UUID runId;
+        int version;
+        boolean saved;
+        boolean pending;
+
+        Done(BatchItem item, GeneratedTimetable result, String cacheKey, GenerationCache.Entry cached, String error) {
+            this.item = item;
+            this.result = result;
+            this.cacheKey = cacheKey;
+            this.cached = cached;
+            this.error = error;
+        }
+    }
+
+    private final TimetableService timetableService;
+    private final RecentTimetables recentTimetables;
+    private final GenerationCache generationCache;
+    private final ObjectMapper mapper;
+    private final int workers;
+    private final int saveGroup;
+    private final ExecutorService executor;
+
+    public BatchGenerationService(TimetableService timetableService,
+                                  RecentTimetables recentTimetables,
+                                  GenerationCache generationCache,
+                                  ObjectMapper mapper,
+                                  @Value("${timetable.batch.workers:2}") int workers,
+                                  @Value("${timetable.batch.save-group:8}") int saveGroup) {
+        this.timetableService = timetableService;
+        this.recentTimetables = recentTimetables;
+        this.generationCache = generationCache;
+        this.mapper = mapper;
+        this.workers = Math.max(1, workers);
+        this.saveGroup = Math.max(1, saveGroup);
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers, r -> {
+            Thread t = new Thread(r, "batch-generation-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Generates and saves every item, writing one JSON line per item to {@code out}. */
+    public void run(Iterator<BatchItem> items, OutputStream out) throws IOException {
+        long t0 = System.currentTimeMillis();
+        CompletionService<Done> completed = new ExecutorCompletionService<>(executor);
+        Set<Future<Done>> running = new HashSet<>();
+        Semaphore inFlight = new Semaphore(workers * 2);
+        List<Done> group = new ArrayList<>(saveGroup);
+        int submitted = 0, finished = 0;
+        try {
+            while (true) {
+                while (inFlight.tryAcquire()) {
+                    if (!items.hasNext()) {
+                        inFlight.release();
+                        break;
+                    }
+                    BatchItem item = items.next();
+                    running.add(completed.submit(() -> process(item)));
+                    submitted++;
+                }
+                boolean drained = finished == submitted && !items.hasNext();
+                if (drained) break;
+
+                Future<Done> f = completed.poll(FLUSH_AFTER_MS, TimeUnit.MILLISECONDS);
+                if (f != null) {
+                    running.remove(f);
+                    group.add(f.get());
+                    finished++;
+                    inFlight.release();
+                }
+                if (group.size() >= saveGroup || (f == null && !group.isEmpty())) flush(group, out);
+            }
+            flush(group, out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Batch item failed", e.getCause());
+        } finally {
+            running.forEach(f -> f.cancel(true)); // left behind by a failed batch
+        }
+        System.out.println("📦 Batch: " + finished + " timetables in " + (System.currentTimeMillis() - t0) + " ms");
+    }
+
+    private Done process(BatchItem item) {
+        if (item.error != null) return new Done(item, null, null, null, item.error);
+        try {
+            GenerationRequest request = timetableService.withDefaultRooms(item.request);
+            String key = generationCache.keyOf(request);
+            GenerationCache.Entry cached = generationCache.get(key);
+            GeneratedTimetable result = cached != null ? cached.result : timetableService.generate(request);
+            if (result == null || result.isEmpty()) return new Done(item, null, key, null, "No timetable generated.");
+            return new Done(item, result, key, cached, null);
+        } catch (RuntimeException e) {
+            return new Done(item, null, null, null, String.valueOf(e.getMessage()));
+        }
+    }
+
+    /** Saves the group's new results in one transaction, then writes its lines. */
+    private void flush(List<Done> group, OutputStream out) throws IOException {
+        if (group.isEmpty()) return;
+        List<Done> toSave = new ArrayList<>();
+        for (Done d : group) {
+            if (d.result == null) continue;
+            if (d.cached != null && d.cached.hasRun()) {
+                // version 0: write-behind has yet to write the run
+                d.runId = d.cached.runId;
+                d.version = d.cached.version;
+                d.saved = d.version > 0;
+                d.pending = !d.saved;
+            } else {
+                d.runId = UUID.randomUUID();
+                toSave.add(d);
+            }
+        }
+        if (!toSave.isEmpty()) {
+            List<GeneratedTimetable> timetables = new ArrayList<>(toSave.size());
+            List<UUID> runIds = new ArrayList<>(toSave.size());
+            List<String> names = new ArrayList<>(toSave.size());
+            for (Done d : toSave) {
+                timetables.add(d.result);
+                runIds.add(d.runId);
+                names.add(d.item.name);
+            }
+            int[] versions = timetableService.saveAll(timetables, runIds, names);
+            for (int i = 0; i < toSave.size(); i++) {
+                Done d = toSave.get(i);
+                d.saved = versions != null;
+                d.version = versions != null ? versions[i] : 0;
+                if (d.saved) generationCache.put(d.cacheKey, d.result, d.runId, d.version, d.item.name);
+                else if (d.cached == null) generationCache.put(d.cacheKey, d.result, null, 0, null);
+            }
+        }
+
+        for (Done d : group) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("index", d.item.index);
+            line.put("name", d.item.name);
+            if (d.result == null) {
+                line.put("status", "error");
+                line.put("error", d.error);
+            } else {
+                recentTimetables.put(d.runId, d.result);
+                line.put("status", "ok");
+                line.put("runId", d.runId.toString());
+                line.put("version", d.version);
+                line.put("saved", d.saved);
+                if (d.pending) line.put("pending", true);
+                line.put("cached", d.cached != null);
+                line.put("unplaced", d.result.unplaced());
+                line.put("days", d.result.days());
+                line.put("divisions", d.result.divisions());
+                line.put("numSlots", d.result.numSlots());
+                line.put("timetable", d.result.asMap());
+            }
+            out.write(mapper.writeValueAsBytes(line));
+            out.write('\n');
+        }
+        out.flush();
+        group.clear();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
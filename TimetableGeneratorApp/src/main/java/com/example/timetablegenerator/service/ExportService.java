@@ -1,31 +1,30 @@
 package com.example.timetablegenerator.service;
 
-import com.example.timetablegenerator.database.DBConnection;
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
 import com.example.timetablegenerator.service.TimetableService.Lecture;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
-import java.sql.*;
 import java.util.*;
 
 @Service
 public class ExportService {
 
-    private final TimetableService timetableService;
+    private final RunDataCache runData;
 
-    public ExportService(TimetableService timetableService) {
-        this.timetableService = timetableService;
+    public ExportService(RunDataCache runData) {
+        this.runData = runData;
     }
 
-    // -------- current (in-memory) exports --------
-    public String exportCurrentAsCsv() {
-        Map<String, Map<String, Map<Integer, Lecture>>> table = timetableService.getTimetable();
-        if (table == null || table.isEmpty()) return "";
+    // -------- exports of a generated (in-memory) result --------
+    public String exportAsCsv(GeneratedTimetable timetable) {
+        if (timetable == null || timetable.isEmpty()) return "";
+        Map<String, Map<String, Map<Integer, Lecture>>> table = timetable.asMap();
 
         StringBuilder sb = new StringBuilder();
-        sb.append("Division,Day,Slot,Type,Faculty,Subject\n");
+        sb.append("Division,Day,Slot,Type,Faculty,Subject,Room\n");
         for (String division : table.keySet()) {
             Map<String, Map<Integer, Lecture>> byDay = table.get(division);
             for (String day : byDay.keySet()) {
@@ -35,26 +34,28 @@ public class ExportService {
                     String type = lec.getSessionType();
                     String faculty = lec.getFaculty() == null ? "" : lec.getFaculty();
                     String subject = lec.getSubject() == null ? "" : lec.getSubject();
+                    String room = timetable.roomAt(division, day, slot);
                     sb.append(escapeCsv(division)).append(",")
                       .append(escapeCsv(day)).append(",")
                       .append(slot).append(",")
                       .append(escapeCsv(type)).append(",")
                       .append(escapeCsv(faculty)).append(",")
-                      .append(escapeCsv(subject)).append("\n");
+                      .append(escapeCsv(subject)).append(",")
+                      .append(escapeCsv(room)).append("\n");
                 }
             }
         }
         return sb.toString();
     }
 
-    public byte[] exportCurrentAsExcel() {
-        Map<String, Map<String, Map<Integer, Lecture>>> table = timetableService.getTimetable();
-        if (table == null || table.isEmpty()) return new byte[0];
+    public byte[] exportAsExcel(GeneratedTimetable timetable) {
+        if (timetable == null || timetable.isEmpty()) return new byte[0];
+        Map<String, Map<String, Map<Integer, Lecture>>> table = timetable.asMap();
 
         try (Workbook wb = new XSSFWorkbook()) {
             Sheet sh = wb.createSheet("Timetable");
             Row header = sh.createRow(0);
-            String[] cols = {"Division","Day","Slot","Type","Faculty","Subject"};
+            String[] cols = {"Division","Day","Slot","Type","Faculty","Subject","Room"};
             for (int i = 0; i < cols.length; i++) header.createCell(i).setCellValue(cols[i]);
 
             int r = 1;
@@ -71,6 +72,8 @@ public class ExportService {
                         row.createCell(3).setCellValue(lec.getSessionType());
                         row.createCell(4).setCellValue(lec.getFaculty() == null ? "" : lec.getFaculty());
                         row.createCell(5).setCellValue(lec.getSubject() == null ? "" : lec.getSubject());
+                        String room = timetable.roomAt(division, day, slot);
+                        row.createCell(6).setCellValue(room == null ? "" : room);
                     }
                 }
             }
@@ -86,21 +89,16 @@ public class ExportService {
 
     // -------- history (DB) exports by runId --------
     public String exportRunAsCsv(java.util.UUID runId) {
-        String sql = "SELECT divisionname, dayname, slotno, session_type, facultyname, subjectname " +
-                     "FROM v_timetable_by_run WHERE run_id = ? ORDER BY divisionname, dayname, slotno";
-        StringBuilder sb = new StringBuilder("Division,Day,Slot,Type,Faculty,Subject\n");
-        try (Connection c = DBConnection.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setObject(1, runId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    sb.append(escapeCsv(rs.getString("divisionname"))).append(",")
-                      .append(escapeCsv(rs.getString("dayname"))).append(",")
-                      .append(rs.getInt("slotno")).append(",")
-                      .append(escapeCsv(rs.getString("session_type"))).append(",")
-                      .append(escapeCsv(rs.getString("facultyname"))).append(",")
-                      .append(escapeCsv(rs.getString("subjectname"))).append("\n");
-                }
+        StringBuilder sb = new StringBuilder("Division,Day,Slot,Type,Faculty,Subject,Room\n");
+        try {
+            for (AllocationRow r : runData.rows(runId)) {
+                sb.append(escapeCsv(r.divisionname)).append(",")
+                  .append(escapeCsv(r.dayname)).append(",")
+                  .append(r.slotno).append(",")
+                  .append(escapeCsv(r.session_type)).append(",")
+                  .append(escapeCsv(r.facultyname)).append(",")
+                  .append(escapeCsv(r.subjectname)).append(",")
+                  .append(escapeCsv(r.classname)).append("\n");
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -109,33 +107,28 @@ public class ExportService {
     }
 
     public byte[] exportRunAsExcel(java.util.UUID runId) {
-        String sql = "SELECT divisionname, dayname, slotno, session_type, facultyname, subjectname " +
-                     "FROM v_timetable_by_run WHERE run_id = ? ORDER BY divisionname, dayname, slotno";
-        try (Connection c = DBConnection.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setObject(1, runId);
-            try (ResultSet rs = ps.executeQuery();
-                 Workbook wb = new XSSFWorkbook()) {
-                Sheet sh = wb.createSheet("Timetable");
-                Row header = sh.createRow(0);
-                String[] cols = {"Division","Day","Slot","Type","Faculty","Subject"};
-                for (int i = 0; i < cols.length; i++) header.createCell(i).setCellValue(cols[i]);
+        try (Workbook wb = new XSSFWorkbook()) {
+            List<AllocationRow> rows = runData.rows(runId);
+            Sheet sh = wb.createSheet("Timetable");
+            Row header = sh.createRow(0);
+            String[] cols = {"Division","Day","Slot","Type","Faculty","Subject","Room"};
+            for (int i = 0; i < cols.length; i++) header.createCell(i).setCellValue(cols[i]);
 
-                int r = 1;
-                while (rs.next()) {
-                    Row row = sh.createRow(r++);
-                    row.createCell(0).setCellValue(rs.getString("divisionname"));
-                    row.createCell(1).setCellValue(rs.getString("dayname"));
-                    row.createCell(2).setCellValue(rs.getInt("slotno"));
-                    row.createCell(3).setCellValue(rs.getString("session_type"));
-                    row.createCell(4).setCellValue(rs.getString("facultyname"));
-                    row.createCell(5).setCellValue(rs.getString("subjectname"));
-                }
-                for (int i = 0; i < 6; i++) sh.autoSizeColumn(i);
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                wb.write(out);
-                return out.toByteArray();
+            int r = 1;
+            for (AllocationRow a : rows) {
+                Row row = sh.createRow(r++);
+                row.createCell(0).setCellValue(a.divisionname);
+                row.createCell(1).setCellValue(a.dayname);
+                row.createCell(2).setCellValue(a.slotno);
+                row.createCell(3).setCellValue(a.session_type);
+                row.createCell(4).setCellValue(a.facultyname);
+                row.createCell(5).setCellValue(a.subjectname);
+                row.createCell(6).setCellValue(a.classname);
             }
+            for (int i = 0; i < cols.length; i++) sh.autoSizeColumn(i);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            wb.write(out);
+            return out.toByteArray();
         } catch (Exception e) {
             e.printStackTrace();
             return new byte[0];
@@ -0,0 +1,59 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.TimetableService.Lecture;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable result of one generation (or repair) call.
+ *
+ * Wraps the finished {@link TimetableGrid}; nothing writes to that grid after
+ * the result is built, so one instance can be rendered, exported and saved
+ * from several threads at once.
+ */
+public final class GeneratedTimetable {
+
+    private final TimetableGrid grid;
+    private final int maxLecturesPerDay;
+    private final int unplaced;
+    private final boolean timeLimited;
+    private final Instant generatedAt;
+
+    GeneratedTimetable(TimetableGrid grid, int maxLecturesPerDay, int unplaced) {
+        this(grid, maxLecturesPerDay, unplaced, false);
+    }
+
+    GeneratedTimetable(TimetableGrid grid, int maxLecturesPerDay, int unplaced, boolean timeLimited) {
+        this.grid = grid;
+        this.maxLecturesPerDay = maxLecturesPerDay;
+        this.unplaced = unplaced;
+        this.timeLimited = timeLimited;
+        this.generatedAt = Instant.now();
+    }
+
+    /** Read-only division -> day -> slot -> Lecture view; free cells are absent. */
+    public Map<String, Map<String, Map<Integer, Lecture>>> asMap() { return grid.asMap(); }
+
+    public List<String> days() { return grid.days(); }
+    public List<String> divisions() { return grid.divisions(); }
+    public int numSlots() { return grid.numSlots(); }
+    public int maxLecturesPerDay() { return maxLecturesPerDay; }
+    /** Lecture/lab units of the demand that could not be placed. */
+    public int unplaced() { return unplaced; }
+    /** True when a time limit cut a search short, so the same request may come out differently. */
+    public boolean timeLimited() { return timeLimited; }
+    public Instant generatedAt() { return generatedAt; }
+    public boolean isEmpty() { return grid.isEmpty(); }
+
+    /** Room booked for a cell, or null (free cell, recess, or rooms not scheduled). */
+    public String roomAt(String division, String day, int slot) {
+        int div = grid.divisionId(division), d = grid.dayId(day);
+        if (div < 0 || d < 0 || slot < 1 || slot > grid.numSlots()) return null;
+        return grid.roomName(div, d, slot);
+    }
+
+    /** Dense grid for in-package readers (save, repair); must not be modified. */
+    TimetableGrid grid() { return grid; }
+}
@@ -0,0 +1,108 @@
+package com.example.timetablegenerator.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Content-addressed cache of generation results, keyed by
+ * {@link TimetableService#cacheKey}. Resubmitting identical inputs returns
+ * the cached timetable, and — when that result was saved — the run it was
+ * saved as, so callers can link to it instead of inserting the same
+ * allocation rows again. Results a time limit cut short
+ * ({@link GeneratedTimetable#timeLimited()}) are not cached, as another run
+ * of the same inputs may come out differently. Bounded LRU; disabled with
+ * {@code timetable.cache.enabled=false}.
+ */
+@Component
+public class GenerationCache {
+
+    /**
+     * A cached result and the run it was saved as (runId null when it was never
+     * saved; version 0 while write-behind has yet to write the run).
+     */
+    public static class Entry {
+        public final GeneratedTimetable result;
+        public final UUID runId;
+        public final int version;
+        public final String runName;
+
+        Entry(GeneratedTimetable result, UUID runId, int version, String runName) {
+            this.result = result;
+            this.runId = runId;
+            this.version = version;
+            this.runName = runName;
+        }
+
+        public boolean hasRun() { return runId != null; }
+    }
+
+    private final TimetableService timetableService;
+    private final boolean enabled;
+    private final Map<String, Entry> byKey;
+    private long hits, misses;
+
+    public GenerationCache(TimetableService timetableService,
+                           @Value("${timetable.cache.enabled:true}") boolean enabled,
+                           @Value("${timetable.cache.capacity:64}") int capacity) {
+        this.timetableService = timetableService;
+        this.enabled = enabled && capacity > 0;
+        this.byKey = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Cache key of {@code req}, or null when caching is disabled. */
+    public String keyOf(GenerationRequest req) {
+        return enabled ? timetableService.cacheKey(req) : null;
+    }
+
+    /** @return the cached entry for {@code key}, or null on a miss */
+    public synchronized Entry get(String key) {
+        if (key == null) return null;
+        Entry e = byKey.get(key);
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        System.out.println("♻️ Generation cache hit (" + hits + " hits / " + misses + " misses)");
+        return e;
+    }
+
+    /** Remembers {@code result}; pass {@code runId == null} when it was not saved. */
+    public synchronized void put(String key, GeneratedTimetable result, UUID runId, int version, String runName) {
+        if (key == null || result == null) return;
+        if (result.timeLimited()) {
+            System.out.println("⏱️ Not caching a result a time limit cut short");
+            return;
+        }
+        byKey.put(key, new Entry(result, runId, version, runName));
+    }
+
+    /** Fills in the version of run {@code runId} once write-behind has written it. */
+    public synchronized void runSaved(UUID runId, int version) {
+        byKey.replaceAll((k, e) -> runId.equals(e.runId) ? new Entry(e.result, e.runId, version, e.runName) : e);
+    }
+
+    /** Keeps the cached run name in step with a rename in history. */
+    public synchronized void renameRun(UUID runId, String runName) {
+        byKey.replaceAll((k, e) -> runId.equals(e.runId) ? new Entry(e.result, e.runId, e.version, runName) : e);
+    }
+
+    /** Drops the run link of every entry saved as {@code runId} (the run was deleted); results stay cached. */
+    public synchronized void forgetRun(UUID runId) {
+        byKey.replaceAll((k, e) -> runId.equals(e.runId) ? new Entry(e.result, null, 0, null) : e);
+    }
+
+    /** Forgets every entry (runs were deleted in bulk). */
+    public synchronized void clear() {
+        byKey.clear();
+    }
+}
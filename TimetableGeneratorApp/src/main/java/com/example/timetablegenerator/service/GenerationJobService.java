@@ -0,0 +1,273 @@
+package com.example.timetablegenerator.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous generation jobs.
+ *
+ * Jobs run on a fixed pool of {@code timetable.jobs.workers} threads behind a
+ * queue of {@code timetable.jobs.queue-capacity}; when both are full
+ * {@link #submit} throws {@link RejectedExecutionException} instead of piling
+ * up work. Progress (phase, divisions placed, unplaced units) is pushed to
+ * every subscribed {@link SseEmitter} as a "progress" event, followed by one
+ * "done" event when the job finishes. Finished jobs are kept for
+ * {@code timetable.jobs.retention-minutes} and then forgotten; their saved
+ * runs stay in the database.
+ */
+@Service
+public class GenerationJobService {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    /** Point-in-time view of a job, sent to clients. */
+    public static class Snapshot {
+        public String jobId;
+        public Status status;
+        public String phase;
+        public int divisionsPlaced;
+        public int totalDivisions;
+        public int unplaced;
+        public String runId;     // set once saved
+        public int version;
+        public boolean saved;
+        public boolean pending;  // journaled by write-behind, not in the database yet
+        public String error;
+    }
+
+    /** One submitted generation; also the listener the solver reports to. */
+    public static class GenerationJob implements GenerationListener {
+        private final String id = UUID.randomUUID().toString();
+        private final GenerationRequest request;
+        private final String runName;
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final AtomicInteger divisionsPlaced = new AtomicInteger();
+        private final AtomicInteger unplaced = new AtomicInteger(-1);
+
+        private volatile Status status = Status.QUEUED;
+        private volatile String phase = "queued";
+        private volatile Instant finishedAt;
+        private volatile UUID runId;
+        private volatile int version;
+        private volatile boolean saved;
+        private volatile boolean pending;
+        private volatile String error;
+        private volatile GeneratedTimetable result;
+
+        GenerationJob(GenerationRequest request, String runName) {
+            this.request = request;
+            this.runName = runName;
+        }
+
+        public String id() { return id; }
+        public Status status() { return status; }
+        public GeneratedTimetable result() { return result; }
+        public boolean isFinished() { return status == Status.DONE || status == Status.FAILED; }
+
+        public Snapshot snapshot() {
+            Snapshot s = new Snapshot();
+            s.jobId = id;
+            s.status = status;
+            s.phase = phase;
+            s.divisionsPlaced = Math.min(divisionsPlaced.get(), request.divisions().size());
+            s.totalDivisions = request.divisions().size();
+            s.unplaced = Math.max(unplaced.get(), 0);
+            s.runId = runId == null ? null : runId.toString();
+            s.version = version;
+            s.saved = saved;
+            s.pending = pending;
+            s.error = error;
+            return s;
+        }
+
+        @Override
+        public void phase(String name) {
+            phase = name;
+            publish("progress");
+        }
+
+        @Override
+        public void divisionsPlaced(int count) {
+            divisionsPlaced.addAndGet(count);
+            publish("progress");
+        }
+
+        @Override
+        public void unplaced(int units) {
+            // decomposed problems report once per group
+            unplaced.accumulateAndGet(units, (a, b) -> Math.max(a, 0) + b);
+            publish("progress");
+        }
+
+        /** Registers {@code emitter}; it gets the current state at once and is completed when the job ends. */
+        void subscribe(SseEmitter emitter) {
+            emitters.add(emitter);
+            emitter.onCompletion(() -> emitters.remove(emitter));
+            emitter.onTimeout(() -> emitters.remove(emitter));
+            emitter.onError(e -> emitters.remove(emitter));
+            if (isFinished()) {
+                send(emitter, "done");
+                emitter.complete();
+            } else {
+                send(emitter, "progress");
+            }
+        }
+
+        // callbacks arrive from several solver threads; one event at a time per job
+        private synchronized void publish(String event) {
+            for (SseEmitter e : emitters) send(e, event);
+        }
+
+        private void send(SseEmitter emitter, String event) {
+            try {
+                emitter.send(SseEmitter.event().name(event).data(snapshot()));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+
+        private synchronized void finish(Status s) {
+            status = s;
+            finishedAt = Instant.now();
+            publish("done");
+            for (SseEmitter e : emitters) e.complete();
+            emitters.clear();
+        }
+    }
+
+    private final TimetableService timetableService;
+    private final RecentTimetables recentTimetables;
+    private final GenerationCache generationCache;
+    private final ThreadPoolExecutor executor;
+    private final long retentionMs;
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+
+    public GenerationJobService(TimetableService timetableService,
+                                RecentTimetables recentTimetables,
+                                GenerationCache generationCache,
+                                @Value("${timetable.jobs.workers:2}") int workers,
+                                @Value("${timetable.jobs.queue-capacity:16}") int queueCapacity,
+                                @Value("${timetable.jobs.retention-minutes:30}") long retentionMinutes) {
+        this.timetableService = timetableService;
+        this.recentTimetables = recentTimetables;
+        this.generationCache = generationCache;
+        this.retentionMs = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "generation-job-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues a generation.
+     *
+     * @throws RejectedExecutionException when all workers are busy and the queue is full
+     */
+    public GenerationJob submit(GenerationRequest request, String runName) {
+        evictExpired();
+        GenerationJob job = new GenerationJob(request, runName);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        System.out.println("📥 Generation job " + job.id + " queued (" + executor.getQueue().size() + " waiting)");
+        return job;
+    }
+
+    /** @return the job, or null when unknown or expired */
+    public GenerationJob get(String jobId) {
+        return jobId == null ? null : jobs.get(jobId);
+    }
+
+    /** Stream of the job's progress; null when the job is unknown. */
+    public SseEmitter subscribe(String jobId, long timeoutMs) {
+        GenerationJob job = get(jobId);
+        if (job == null) return null;
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        job.subscribe(emitter);
+        return emitter;
+    }
+
+    private void run(GenerationJob job) {
+        job.status = Status.RUNNING;
+        job.phase("started");
+        try {
+            GenerationRequest request = timetableService.withDefaultRooms(job.request);
+            String cacheKey = generationCache.keyOf(request);
+            GenerationCache.Entry cached = generationCache.get(cacheKey);
+            GeneratedTimetable result = cached != null ? cached.result : timetableService.generate(request, job);
+            if (result == null || result.isEmpty()) {
+                job.error = "No timetable generated.";
+                job.finish(Status.FAILED);
+                return;
+            }
+            if (cached != null) job.divisionsPlaced(result.divisions().size());
+            if (job.unplaced.get() < 0) job.unplaced.set(result.unplaced());
+
+            UUID runId;
+            int version;
+            boolean saved;
+            boolean pending = false;
+            if (cached != null && cached.hasRun()) {
+                // identical inputs already saved: link that run (version 0 = write-behind has yet to write it)
+                runId = cached.runId;
+                version = cached.version;
+                saved = version > 0;
+                pending = !saved;
+            } else {
+                job.phase("save");
+                runId = UUID.randomUUID();
+                version = 0;
+                try {
+                    version = timetableService.save(result, runId, job.runName);
+                } catch (Throwable t) {
+                    System.out.println("⚠️ Skipping DB save due to unexpected error: " + t.getMessage());
+                }
+                saved = version > 0;
+                if (saved) generationCache.put(cacheKey, result, runId, version, job.runName);
+                else if (cached == null) generationCache.put(cacheKey, result, null, 0, null);
+            }
+            recentTimetables.put(runId, result);
+
+            job.result = result;
+            job.runId = runId;
+            job.version = version;
+            job.saved = saved;
+            job.pending = pending;
+            job.finish(Status.DONE);
+            System.out.println("✅ Generation job " + job.id + " done: run " + runId + " (v" + version + ")");
+        } catch (Throwable t) {
+            job.error = String.valueOf(t.getMessage());
+            job.finish(Status.FAILED);
+            System.out.println("❌ Generation job " + job.id + " failed: " + t.getMessage());
+        }
+    }
+
+    private void evictExpired() {
+        Instant cutoff = Instant.now().minusMillis(retentionMs);
+        jobs.values().removeIf(j -> j.finishedAt != null && j.finishedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.timetablegenerator.service;
+
+/**
+ * Progress callbacks of one generation call. Groups of divisions are solved
+ * concurrently (see {@link SolverProblem#splitByFaculty}), so implementations
+ * must be thread-safe.
+ */
+public interface GenerationListener {
+
+    GenerationListener NONE = new GenerationListener() {};
+
+    /** A group entered a phase: labs, lectures, backtracking, fill, optimize (save is reported by the caller). */
+    default void phase(String phase) {}
+
+    /** The demand of {@code count} more divisions has been placed (or given up on). */
+    default void divisionsPlaced(int count) {}
+
+    /** A group finished with {@code units} lecture/lab units it could not place. */
+    default void unplaced(int units) {}
+}
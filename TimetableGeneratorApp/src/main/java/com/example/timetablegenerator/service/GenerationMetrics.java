@@ -0,0 +1,136 @@
+package com.example.timetablegenerator.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of the generation pipeline, scraped as Prometheus text
+ * from /actuator/prometheus:
+ * <pre>
+ * timetable_generation_seconds{outcome}            whole generate() calls (ok | failed)
+ * timetable_generation_phase_seconds{phase}        init, labs, lectures, backtracking, fill, optimize, save, render
+ * timetable_generation_in_flight                   generate() calls running now
+ * timetable_placement_probes_total                 candidates tried by the greedy solver (see SolverStats)
+ * timetable_placement_rejected_total{reason}       busy, capacity, recess, consecutive, room
+ * timetable_generation_unplaced_total{kind}        lecture / lab units left unplaced
+ * timetable_generation_time_limited_total{phase}   searches cut short by their time limit (optimize)
+ * </pre>
+ * labs, lectures and fill are recorded once per greedy construction, so a
+ * portfolio run adds one sample per member.
+ */
+@Component
+public class GenerationMetrics {
+
+    /** Records into a registry without backends, i.e. nowhere; used outside Spring. */
+    public static final GenerationMetrics NONE = new GenerationMetrics(new CompositeMeterRegistry());
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> phases = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter probes;
+    private final Counter[] rejected;
+    private final Counter unplacedLectures;
+    private final Counter unplacedLabs;
+    private final Counter optimizeTimeLimited;
+
+    public GenerationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("timetable.generation.in_flight", inFlight, AtomicInteger::get)
+                .description("Timetable generations currently running")
+                .register(registry);
+        this.probes = Counter.builder("timetable.placement.probes")
+                .description("Placement candidates tried by the greedy solver")
+                .register(registry);
+        SolverStats.Reject[] reasons = SolverStats.Reject.values();
+        this.rejected = new Counter[reasons.length];
+        for (SolverStats.Reject r : reasons) {
+            rejected[r.ordinal()] = Counter.builder("timetable.placement.rejected")
+                    .description("Placement candidates ruled out, by first failing constraint")
+                    .tag("reason", r.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        this.unplacedLectures = unplaced("lecture");
+        this.unplacedLabs = unplaced("lab");
+        this.optimizeTimeLimited = Counter.builder("timetable.generation.time_limited")
+                .description("Searches stopped by their time limit before finishing")
+                .tag("phase", "optimize")
+                .register(registry);
+    }
+
+    private Counter unplaced(String kind) {
+        return Counter.builder("timetable.generation.unplaced")
+                .description("Lecture and lab units the solvers could not place")
+                .tag("kind", kind)
+                .register(registry);
+    }
+
+    /** Times {@code work} as one {@code timetable.generation} call; null results count as failed. */
+    public <T> T generation(Supplier<T> work) {
+        inFlight.incrementAndGet();
+        long t0 = System.nanoTime();
+        T result = null;
+        try {
+            result = work.get();
+            return result;
+        } finally {
+            Timer.builder("timetable.generation")
+                    .description("Timetable generation, end to end")
+                    .tag("outcome", result != null ? "ok" : "failed")
+                    .register(registry)
+                    .record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /** Records one sample of {@code phase}; negative durations (phase not run) are ignored. */
+    public void phase(String phase, long nanos) {
+        if (nanos < 0) return;
+        phases.computeIfAbsent(phase, p -> Timer.builder("timetable.generation.phase")
+                        .description("Time spent in one phase of timetable generation")
+                        .tag("phase", p)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Runs {@code work} and records its duration as {@code phase}. */
+    public <T> T time(String phase, Supplier<T> work) {
+        long t0 = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            phase(phase, System.nanoTime() - t0);
+        }
+    }
+
+    /** Adds the counters and phase times of one greedy construction. */
+    public void record(SolverStats stats) {
+        phase("labs", stats.labsNanos);
+        phase("lectures", stats.lecturesNanos);
+        phase("fill", stats.fillNanos);
+        if (stats.probes > 0) probes.increment(stats.probes);
+        for (int i = 0; i < rejected.length; i++) {
+            if (stats.rejected[i] > 0) rejected[i].increment(stats.rejected[i]);
+        }
+    }
+
+    /** Counts a local search run that stopped at its time limit. */
+    public void optimizeTimeLimited() {
+        optimizeTimeLimited.increment();
+    }
+
+    public void unplaced(int lectures, int labs) {
+        if (lectures > 0) unplacedLectures.increment(lectures);
+        if (labs > 0) unplacedLabs.increment(labs);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.TimetableService.SubjectPlan;
+
+import java.util.*;
+
+/**
+ * Immutable input of one generation call.
+ *
+ * Two modes, as on the form: uniform (every division gets the same subjects,
+ * {@code totalLectures} lectures each and {@code totalLabs} labs per lab
+ * subject) or plan (per division and subject counts and faculty). Inputs are
+ * copied on creation, so the caller may reuse or change its own collections.
+ */
+public final class GenerationRequest {
+
+    private final List<String> days;
+    private final int numSlots;
+    private final List<String> divisions;
+    private final List<int[]> recesses;
+    private final int maxLecturesPerDay;
+
+    // uniform mode
+    private final List<String> subjectNames; // merged (subjects ∪ labSubjects)
+    private final List<String> labSubjects;  // exactly what user entered
+    private final int totalLectures;         // per subject per division per week
+    private final int totalLabs;             // per lab-subject per division per week
+
+    // plan mode: division -> subject -> plan (empty in uniform mode)
+    private final Map<String, Map<String, SubjectPlan>> planByDivision;
+
+    // rooms to book (empty = rooms not scheduled) and students per division (missing = unknown)
+    private final List<Rooms.Room> rooms;
+    private final Map<String, Integer> divisionSizes;
+
+    private GenerationRequest(List<String> days, int numSlots, List<String> divisions, List<int[]> recesses,
+                              int maxLecturesPerDay, List<String> subjectNames, List<String> labSubjects,
+                              int totalLectures, int totalLabs, Map<String, Map<String, SubjectPlan>> planByDivision) {
+        this.days = days == null ? List.of() : List.copyOf(days);
+        this.numSlots = numSlots;
+        this.divisions = divisions == null ? List.of() : List.copyOf(divisions);
+        List<int[]> rs = new ArrayList<>();
+        if (recesses != null) for (int[] r : recesses) rs.add(r.clone());
+        this.recesses = Collections.unmodifiableList(rs);
+        this.maxLecturesPerDay = maxLecturesPerDay;
+        this.subjectNames = List.copyOf(subjectNames);
+        this.labSubjects = List.copyOf(labSubjects);
+        this.totalLectures = totalLectures;
+        this.totalLabs = totalLabs;
+        this.planByDivision = planByDivision;
+        this.rooms = List.of();
+        this.divisionSizes = Map.of();
+    }
+
+    private GenerationRequest(GenerationRequest base, List<Rooms.Room> rooms, Map<String, Integer> divisionSizes) {
+        this.days = base.days;
+        this.numSlots = base.numSlots;
+        this.divisions = base.divisions;
+        this.recesses = base.recesses;
+        this.maxLecturesPerDay = base.maxLecturesPerDay;
+        this.subjectNames = base.subjectNames;
+        this.labSubjects = base.labSubjects;
+        this.totalLectures = base.totalLectures;
+        this.totalLabs = base.totalLabs;
+        this.planByDivision = base.planByDivision;
+        this.rooms = rooms == null ? List.of() : List.copyOf(rooms);
+        this.divisionSizes = divisionSizes == null ? Map.of() : Map.copyOf(divisionSizes);
+    }
+
+    public static GenerationRequest uniform(List<String> days, int numSlots, List<String> divisions,
+                                            List<String> subjectNames, List<String> labSubjects,
+                                            List<int[]> recesses, int maxLecturesPerDay,
+                                            int totalLectures, int totalLabs) {
+        LinkedHashSet<String> merged = new LinkedHashSet<>();
+        if (subjectNames != null) merged.addAll(subjectNames);
+        if (labSubjects != null) merged.addAll(labSubjects);
+        return new GenerationRequest(days, numSlots, divisions, recesses, maxLecturesPerDay,
+                new ArrayList<>(merged), labSubjects != null ? labSubjects : List.of(),
+                totalLectures, totalLabs, Map.of());
+    }
+
+    public static GenerationRequest withPlan(List<String> days, int numSlots, List<String> divisions,
+                                             List<int[]> recesses, int maxLecturesPerDay,
+                                             Map<String, Map<String, SubjectPlan>> planByDivision) {
+        // copy both levels and every SubjectPlan (it has public mutable fields); keep the caller's order
+        Map<String, Map<String, SubjectPlan>> plan = new LinkedHashMap<>();
+        LinkedHashSet<String> subs = new LinkedHashSet<>();
+        if (planByDivision != null) {
+            for (Map.Entry<String, Map<String, SubjectPlan>> e : planByDivision.entrySet()) {
+                Map<String, SubjectPlan> bySubject = new LinkedHashMap<>();
+                for (Map.Entry<String, SubjectPlan> s : e.getValue().entrySet()) {
+                    bySubject.put(s.getKey(), copy(s.getValue()));
+                }
+                plan.put(e.getKey(), Collections.unmodifiableMap(bySubject));
+                subs.addAll(bySubject.keySet());
+            }
+        }
+        return new GenerationRequest(days, numSlots, divisions, recesses, maxLecturesPerDay,
+                new ArrayList<>(subs), List.of(), 0, 0, Collections.unmodifiableMap(plan));
+    }
+
+    /** Same request, booking {@code rooms} for every session; sizes are matched against room capacities. */
+    public GenerationRequest withRooms(List<Rooms.Room> rooms, Map<String, Integer> divisionSizes) {
+        return new GenerationRequest(this, rooms, divisionSizes);
+    }
+
+    private static SubjectPlan copy(SubjectPlan sp) {
+        SubjectPlan c = new SubjectPlan();
+        c.subject = sp.subject;
+        c.lecturesPerWeek = sp.lecturesPerWeek;
+        c.labsPerWeek = sp.labsPerWeek;
+        c.lectureFaculty = sp.lectureFaculty;
+        c.labFaculty = sp.labFaculty;
+        return c;
+    }
+
+    public List<String> days() { return days; }
+    public int numSlots() { return numSlots; }
+    public List<String> divisions() { return divisions; }
+    public int maxLecturesPerDay() { return maxLecturesPerDay; }
+    public List<String> subjectNames() { return subjectNames; }
+    public List<String> labSubjects() { return labSubjects; }
+    public int totalLectures() { return totalLectures; }
+    public int totalLabs() { return totalLabs; }
+    public boolean isPlanMode() { return !planByDivision.isEmpty(); }
+    public List<Rooms.Room> rooms() { return rooms; }
+    public Map<String, Integer> divisionSizes() { return divisionSizes; }
+
+    /** Recess ranges {from, to} (1-based, inclusive); each array is a private copy. */
+    public List<int[]> recesses() {
+        List<int[]> out = new ArrayList<>(recesses.size());
+        for (int[] r : recesses) out.add(r.clone());
+        return out;
+    }
+
+    /**
+     * Stable text form of the inputs, for content-addressed caching.
+     *
+     * Everything whose order generation depends on keeps its request order:
+     * days, divisions, the subjects of each division's plan (demand and fill
+     * order) and the uniform subject and lab lists. Only recesses, rooms and
+     * division sizes, which are applied as sets, are sorted. Names are taken
+     * as given, like generation does. Strings are length-prefixed and null is
+     * written as '~', so no separator inside a name can make two different
+     * requests collide.
+     */
+    public String canonicalForm() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(isPlanMode() ? "plan" : "uniform");
+        appendList(sb.append("|days="), days);
+        sb.append("|slots=").append(numSlots);
+        appendList(sb.append("|divs="), divisions);
+        sb.append("|max=").append(maxLecturesPerDay);
+        sb.append("|recess=");
+        recesses.stream()
+                .map(r -> Math.min(r[0], r[1]) + "-" + Math.max(r[0], r[1]))
+                .sorted().distinct()
+                .forEach(r -> sb.append(r).append(';'));
+        if (isPlanMode()) {
+            // only the plans of listed divisions are generated, in their subjects' order
+            sb.append("|plan=");
+            for (String div : divisions) {
+                appendString(sb, div).append('{');
+                for (SubjectPlan sp : planFor(div).values()) {
+                    appendString(sb, sp.subject).append(sp.lecturesPerWeek).append(',').append(sp.labsPerWeek).append(',');
+                    appendString(sb, sp.lectureFaculty);
+                    appendString(sb, sp.labFaculty).append(';');
+                }
+                sb.append('}');
+            }
+        } else {
+            appendList(sb.append("|subjects="), subjectNames);
+            appendList(sb.append("|labs="), labSubjects);
+            sb.append("|lectures=").append(totalLectures).append("|labCount=").append(totalLabs);
+        }
+        if (!rooms.isEmpty()) {
+            sb.append("|rooms=");
+            TreeMap<String, Rooms.Room> byName = new TreeMap<>();
+            for (Rooms.Room r : rooms) byName.putIfAbsent(r.name, r); // first definition of a name wins, as in Rooms
+            byName.forEach((name, r) -> appendString(sb, name).append(r.lab ? 'L' : 'H').append(r.capacity).append(';'));
+            sb.append("|sizes=");
+            new TreeMap<>(divisionSizes).forEach((div, n) -> appendString(sb, div).append(n).append(';'));
+        }
+        return sb.toString();
+    }
+
+    private static void appendList(StringBuilder sb, Collection<String> values) {
+        for (String v : values) appendString(sb, v);
+    }
+
+    private static StringBuilder appendString(StringBuilder sb, String v) {
+        return v == null ? sb.append('~') : sb.append(v.length()).append(':').append(v);
+    }
+
+    /** Plan of one division, empty in uniform mode. Do not modify the returned plans. */
+    public Map<String, SubjectPlan> planFor(String division) {
+        return planByDivision.getOrDefault(division, Collections.emptyMap());
+    }
+}
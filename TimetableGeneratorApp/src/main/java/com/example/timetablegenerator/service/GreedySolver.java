@@ -0,0 +1,231 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.SolverProblem.Demand;
+import com.example.timetablegenerator.service.SolverStats.Reject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Single-pass greedy engine: every lab goes to the first day without a lab
+ * that has two consecutive free slots, then lectures are spread over the week
+ * by rotating the start day. Fast, but gives up on a demand line as soon as
+ * one unit does not fit.
+ *
+ * A seeded instance shuffles the demand order and the first day tried, so
+ * several of them explore different constructions (see {@link PortfolioSolver}).
+ * Each instance counts its probes and phase times in {@link #stats}.
+ */
+public class GreedySolver implements TimetableSolver {
+
+    private final Random rnd;   // null = the fixed input order
+    private final boolean verbose;
+    private final GenerationListener listener;
+    private final SolverStats stats = new SolverStats();
+
+    public GreedySolver() {
+        this(GenerationListener.NONE);
+    }
+
+    /** Input-order instance that reports its phases and per-division progress. */
+    public GreedySolver(GenerationListener listener) {
+        this.rnd = null;
+        this.verbose = true;
+        this.listener = listener;
+    }
+
+    /** Randomized, silent instance for portfolio runs. */
+    public GreedySolver(long seed) {
+        this.rnd = new Random(seed);
+        this.verbose = false;
+        this.listener = GenerationListener.NONE;
+    }
+
+    /** Counters of this instance's solve / fill calls. */
+    public SolverStats stats() {
+        return stats;
+    }
+
+    @Override
+    public int solve(SolverProblem problem, SolverState state) {
+        int unplaced = 0;
+        List<Demand> demands = problem.demands();
+        if (rnd != null) {
+            demands = new ArrayList<>(demands);
+            Collections.shuffle(demands, rnd);
+        }
+
+        // Labs
+        listener.phase("labs");
+        long t0 = System.nanoTime();
+        for (Demand dm : demands) {
+            if (!dm.lab) continue;
+            int labsToPlace = dm.count;
+            while (labsToPlace > 0) {
+                if (!placeLab(state, dm)) {
+                    if (verbose) System.out.println("⚠️ WARN: Could not place LAB for " + dm.subject + " in "
+                            + state.grid.division(dm.division));
+                    break;
+                }
+                labsToPlace--;
+            }
+            unplaced += labsToPlace;
+        }
+
+        long t1 = System.nanoTime();
+        stats.labsNanos = t1 - t0;
+
+        // Lectures (demand lines come grouped by division, so a division is done when the next one starts)
+        listener.phase("lectures");
+        int prevDivision = -1, divisionsDone = 0;
+        for (Demand dm : demands) {
+            if (dm.lab) continue;
+            if (dm.division != prevDivision) {
+                if (prevDivision >= 0) {
+                    listener.divisionsPlaced(1);
+                    divisionsDone++;
+                }
+                prevDivision = dm.division;
+            }
+            int left = placeLectures(state, dm);
+            if (left > 0 && verbose) {
+                System.out.println("⚠️ WARN: Could not place LECTURE for " + dm.subject + " in "
+                        + state.grid.division(dm.division));
+            }
+            unplaced += left;
+        }
+        listener.divisionsPlaced(problem.divisions().length - divisionsDone);
+        stats.lecturesNanos = System.nanoTime() - t1;
+        return unplaced;
+    }
+
+    /** Places one 2-slot lab block on the first day without a lab that has a free pair of slots. */
+    private boolean placeLab(SolverState st, Demand dm) {
+        int days = st.grid.dayCount();
+        int first = rnd == null ? 0 : rnd.nextInt(days);
+        for (int i = 0; i < days; i++) {
+            int d = (first + i) % days;
+            stats.probes++;
+            if (st.divisionDayHasLab[dm.division][d] || !st.hasCapacity(dm.faculty, d, 2)) {
+                stats.reject(Reject.CAPACITY);
+                continue;
+            }
+
+            // bit s of 'pairs' is set when both s and s+1 are free for the division and the faculty,
+            // and a lab room is free for both
+            long free = st.freeMask(dm.division, d, dm.faculty);
+            long pairs = free & (free >>> 1) & st.roomMask(dm.division, d, true);
+            if (pairs == 0) {
+                stats.reject(free == 0 ? blocked(st, dm, d, -1L)
+                        : (free & (free >>> 1)) == 0 ? Reject.CONSECUTIVE : Reject.ROOM);
+                continue;
+            }
+
+            st.placeLab(dm.division, d, Long.numberOfTrailingZeros(pairs), dm.lectureId, dm.faculty);
+            return true;
+        }
+        return false;
+    }
+
+    /** Spreads the lectures of one demand line over the week, rotating the start day; returns how many stay unplaced. */
+    private int placeLectures(SolverState st, Demand dm) {
+        TimetableGrid g = st.grid;
+        int numSlots = g.numSlots();
+        int count = dm.count;
+        int dayStartIdx = rnd == null ? 0 : rnd.nextInt(g.dayCount());
+        int slotStart = 1;
+
+        while (count > 0) {
+            boolean placed = false;
+
+            for (int i = 0; i < g.dayCount() && !placed; i++) {
+                int d = (dayStartIdx + i) % g.dayCount();
+                stats.probes++;
+                if (!st.hasCapacity(dm.faculty, d, 1)) {
+                    stats.reject(Reject.CAPACITY);
+                    continue;
+                }
+
+                long free = st.freeMask(dm.division, d, dm.faculty) & (-1L << slotStart);
+                long cand = free & st.roomMask(dm.division, d, false);
+                if (cand == 0) {
+                    stats.reject(free == 0 ? blocked(st, dm, d, -1L << slotStart) : Reject.ROOM);
+                    continue;
+                }
+                while (cand != 0) {
+                    int s = Long.numberOfTrailingZeros(cand);
+                    cand &= cand - 1;
+                    if (g.facultyAt(dm.division, d, s - 1) == dm.faculty) continue; // no back-to-back with same faculty
+
+                    st.placeLecture(dm.division, d, s, dm.lectureId, dm.faculty);
+
+                    placed = true;
+                    count--;
+                    dayStartIdx = (dayStartIdx + 1) % g.dayCount();
+                    slotStart = (s % numSlots) + 1;
+                    break;
+                }
+                if (!placed) stats.reject(Reject.CONSECUTIVE);
+            }
+
+            if (!placed) break;
+        }
+        return count;
+    }
+
+    /**
+     * Why a day had no free slot for the demand's division and faculty:
+     * RECESS when the slots in {@code window} would be free but for recess, BUSY otherwise.
+     */
+    private static Reject blocked(SolverState st, Demand dm, int day, long window) {
+        TimetableGrid g = st.grid;
+        for (int s = 1; s <= g.numSlots(); s++) {
+            if ((window & (1L << s)) == 0 || !g.isRecess(dm.division, day, s)) continue;
+            if (!st.facultyBusy.isBusy(dm.faculty, day, s)) return Reject.RECESS;
+        }
+        return Reject.BUSY;
+    }
+
+    /** Fills every free cell with the first fill candidate of its division that fits. */
+    public void fillRemaining(SolverProblem problem, SolverState st) {
+        long t0 = System.nanoTime();
+        TimetableGrid g = st.grid;
+        for (int div : problem.divisions()) {
+            int[] lecIds = problem.fillLectures(div);
+            int[] facIds = problem.fillFaculties(div);
+            for (int d = 0; d < g.dayCount(); d++) {
+                for (int slot = 1; slot <= g.numSlots(); slot++) {
+                    if (!g.isFree(div, d, slot)) continue;
+                    if (!st.hasRoom(div, d, slot)) {
+                        stats.probes++;
+                        stats.reject(Reject.ROOM);
+                        continue;
+                    }
+
+                    for (int i = 0; i < lecIds.length; i++) {
+                        int fac = facIds[i];
+                        stats.probes++;
+                        if (!st.hasCapacity(fac, d, 1)) {
+                            stats.reject(Reject.CAPACITY);
+                            continue;
+                        }
+                        if (st.facultyBusy.isBusy(fac, d, slot)) {
+                            stats.reject(Reject.BUSY);
+                            continue;
+                        }
+                        if (g.facultyAt(div, d, slot - 1) == fac) {
+                            stats.reject(Reject.CONSECUTIVE);
+                            continue;
+                        }
+
+                        st.placeLecture(div, d, slot, lecIds[i], fac);
+                        break;
+                    }
+                }
+            }
+        }
+        stats.fillNanos = System.nanoTime() - t0;
+    }
+}
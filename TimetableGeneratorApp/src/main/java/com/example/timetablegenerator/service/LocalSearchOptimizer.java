@@ -0,0 +1,312 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.SolverProblem.Demand;
+
+import java.util.Random;
+
+/**
+ * Simulated-annealing improvement stage run on a complete (greedy or
+ * backtracking + fill) timetable.
+ *
+ * Moves stay inside one division and never touch labs or recess:
+ *  - move/swap: exchange two cells (lecture/lecture or lecture/free);
+ *  - reassign: turn an over-plan fill lecture into another fill subject.
+ * Every move keeps the hard constraints (faculty clash, daily load, no
+ * back-to-back with the same faculty, a free room). The cost is a sum of per
+ * division-day, per faculty-day and per division terms, so a move is scored
+ * by re-evaluating only the handful of terms it touches.
+ *
+ * The temperature cools with the iteration count alone, so a given seed
+ * walks the same path on any machine. The time limit is only a safety
+ * cutoff; {@link #timedOut()} tells whether it ended the last run early.
+ */
+public class LocalSearchOptimizer {
+
+    private static final int W_SAME_SUBJECT = 10; // each repeat of a subject on one day
+    private static final int W_GAP = 4;           // each idle slot between lessons of a day
+    private static final int W_FACULTY_LOAD = 1;  // load^2 per faculty-day, spreads teaching over the week
+    private static final int W_EXTRA = 2;         // extra^2 per fill subject, spreads fill lectures
+
+    private final int maxIterations;
+    private final long timeLimitMs;
+    private final long seed;
+    private volatile boolean timedOut;
+
+    public LocalSearchOptimizer(int maxIterations, long timeLimitMs, long seed) {
+        this.maxIterations = maxIterations;
+        this.timeLimitMs = timeLimitMs;
+        this.seed = seed;
+    }
+
+    /** @return the best state found; {@code start} itself when nothing better was found */
+    public SolverState optimize(SolverProblem problem, SolverState start) {
+        return new Run(problem, start).anneal();
+    }
+
+    /** True when the last {@link #optimize} stopped at the time limit before its iterations ran out. */
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    private final class Run {
+        private final SolverProblem problem;
+        private final SolverState st;
+        private final TimetableGrid g;
+        private final int numSlots, days;
+        private final int[] divisions;
+        private final Random rnd = new Random(seed);
+
+        private final int[][] required;    // [division][lectureId] lectures owed by the plan
+        private final int[][] count;       // [division][lectureId] lectures currently in the grid
+        private final int[] extraCost;     // [division]
+        private long cost;
+
+        // last applied move, so it can be undone/redone: swap (d1,s1)<->(d2,s2), or reassign a->b at (d1,s1)
+        private boolean lastSwap;
+        private int mv, md1, ms1, md2, ms2, ma, mb, mExtra;
+
+        Run(SolverProblem problem, SolverState st) {
+            this.problem = problem;
+            this.st = st;
+            this.g = st.grid;
+            this.numSlots = g.numSlots();
+            this.days = g.dayCount();
+            this.divisions = problem.divisions();
+
+            int lectures = g.lectureCount();
+            required = new int[g.divisionCount()][lectures];
+            count = new int[g.divisionCount()][lectures];
+            for (Demand dm : problem.demands()) {
+                if (!dm.lab) required[dm.division][dm.lectureId] += dm.count;
+            }
+
+            extraCost = new int[g.divisionCount()];
+            for (int v : divisions) {
+                for (int d = 0; d < days; d++) {
+                    for (int s = 1; s <= numSlots; s++) count[v][g.get(v, d, s)]++;
+                    cost += divisionDayCost(v, d);
+                }
+                extraCost[v] = extraCost(v);
+                cost += extraCost[v];
+            }
+            for (int f = 0; f < g.facultyCount(); f++) {
+                for (int d = 0; d < days; d++) cost += facultyDayCost(f, d);
+            }
+        }
+
+        SolverState anneal() {
+            if (divisions.length == 0) return st;
+            long t0 = System.nanoTime();
+            long deadline = t0 + timeLimitMs * 1_000_000L;
+            long startCost = cost;
+            long bestCost = cost;
+            TimetableGrid best = null; // snapshot of the best grid, taken only when we walk away from it
+            boolean atBest = true;
+            double tStart = 5.0, tEnd = 0.05;
+            int it = 0;
+            timedOut = false;
+
+            for (; it < maxIterations; it++) {
+                if ((it & 1023) == 0 && System.nanoTime() > deadline) {
+                    timedOut = true;
+                    break;
+                }
+                double temp = tStart * Math.pow(tEnd / tStart, (double) it / maxIterations);
+
+                long delta = rnd.nextInt(4) == 0 ? reassignMove() : swapMove();
+                if (delta == Long.MIN_VALUE) continue; // infeasible, nothing applied
+
+                if (delta > 0 && rnd.nextDouble() >= Math.exp(-delta / temp)) {
+                    undo();
+                    continue;
+                }
+                if (delta > 0 && atBest) {
+                    undo();
+                    best = g.copy();
+                    redo();
+                    atBest = false;
+                }
+                cost += delta;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = null;
+                    atBest = true;
+                }
+            }
+
+            long ms = (System.nanoTime() - t0) / 1_000_000L;
+            System.out.println("✨ Local search: cost " + startCost + " → " + bestCost + " in " + it
+                    + " iterations (" + ms + " ms)");
+            if (timedOut) {
+                System.out.println("⚠️ WARN: Local search hit its " + timeLimitMs + " ms time limit after " + it
+                        + " of " + maxIterations + " iterations");
+            }
+            return atBest ? st : SolverState.of(best, st.maxLecturesPerDay);
+        }
+
+        // ------------------------------ MOVES ------------------------------
+        /** Swap two cells of one division (lecture/lecture or lecture/free); returns the cost delta. */
+        private long swapMove() {
+            int v = divisions[rnd.nextInt(divisions.length)];
+            int d1 = rnd.nextInt(days), s1 = 1 + rnd.nextInt(numSlots);
+            int d2 = rnd.nextInt(days), s2 = 1 + rnd.nextInt(numSlots);
+            int a = g.get(v, d1, s1), b = g.get(v, d2, s2);
+            if (a == b || !movable(a) || !movable(b)) return Long.MIN_VALUE;
+            int fa = g.facultyOf(a), fb = g.facultyOf(b);
+
+            long before = localCost(v, d1, d2, fa, fb);
+            clear(v, d1, s1, a);
+            clear(v, d2, s2, b);
+            boolean ok = a == TimetableGrid.FREE || canPlace(v, d2, s2, fa);
+            if (ok) put(v, d2, s2, a);
+            if (ok && b != TimetableGrid.FREE && !canPlace(v, d1, s1, fb)) {
+                clear(v, d2, s2, a);
+                ok = false;
+            }
+            if (!ok) {
+                put(v, d1, s1, a);
+                put(v, d2, s2, b);
+                return Long.MIN_VALUE;
+            }
+            put(v, d1, s1, b);
+
+            lastSwap = true;
+            mv = v; md1 = d1; ms1 = s1; md2 = d2; ms2 = s2;
+            return localCost(v, d1, d2, fa, fb) - before;
+        }
+
+        /** Replace an over-plan lecture with another of the division's fill subjects; returns the cost delta. */
+        private long reassignMove() {
+            int v = divisions[rnd.nextInt(divisions.length)];
+            int[] cands = problem.fillLectures(v);
+            if (cands.length < 2) return Long.MIN_VALUE;
+            int d = rnd.nextInt(days), s = 1 + rnd.nextInt(numSlots);
+            int a = g.get(v, d, s);
+            if (a == TimetableGrid.FREE || !movable(a) || count[v][a] <= required[v][a]) return Long.MIN_VALUE;
+            int b = cands[rnd.nextInt(cands.length)];
+            if (b == a) return Long.MIN_VALUE;
+            int fa = g.facultyOf(a), fb = g.facultyOf(b);
+
+            long before = localCost(v, d, d, fa, fb) + extraCost[v];
+            clear(v, d, s, a);
+            if (!canPlace(v, d, s, fb)) {
+                put(v, d, s, a);
+                return Long.MIN_VALUE;
+            }
+            put(v, d, s, b);
+
+            lastSwap = false;
+            mv = v; md1 = d; ms1 = s; ma = a; mb = b;
+            mExtra = extraCost[v];
+            extraCost[v] = extraCost(v);
+            return localCost(v, d, d, fa, fb) + extraCost[v] - before;
+        }
+
+        /** Reverts the last move (no constraint checks: it restores a valid state). */
+        private void undo() {
+            if (lastSwap) {
+                rawSwap();
+            } else {
+                clear(mv, md1, ms1, mb);
+                put(mv, md1, ms1, ma);
+                int e = extraCost[mv];
+                extraCost[mv] = mExtra;
+                mExtra = e;
+            }
+        }
+
+        private void redo() {
+            if (lastSwap) {
+                rawSwap();
+            } else {
+                clear(mv, md1, ms1, ma);
+                put(mv, md1, ms1, mb);
+                int e = extraCost[mv];
+                extraCost[mv] = mExtra;
+                mExtra = e;
+            }
+        }
+
+        private void rawSwap() {
+            int a = g.get(mv, md1, ms1), b = g.get(mv, md2, ms2);
+            clear(mv, md1, ms1, a);
+            clear(mv, md2, ms2, b);
+            put(mv, md1, ms1, b);
+            put(mv, md2, ms2, a);
+        }
+
+        private boolean movable(int id) {
+            return id != TimetableGrid.RECESS && !g.isLab(id);
+        }
+
+        private boolean canPlace(int v, int d, int s, int fac) {
+            return !st.facultyBusy.isBusy(fac, d, s)
+                    && st.hasCapacity(fac, d, 1)
+                    && g.facultyAt(v, d, s - 1) != fac
+                    && g.facultyAt(v, d, s + 1) != fac
+                    && st.hasRoom(v, d, s);
+        }
+
+        private void clear(int v, int d, int s, int id) {
+            if (id == TimetableGrid.FREE) return;
+            st.removeLecture(v, d, s, g.facultyOf(id));
+            count[v][id]--;
+        }
+
+        private void put(int v, int d, int s, int id) {
+            if (id == TimetableGrid.FREE) return;
+            st.placeLecture(v, d, s, id, g.facultyOf(id));
+            count[v][id]++;
+        }
+
+        // ------------------------------ COST ------------------------------
+        /** Sum of the cost terms a move on (v, d1, d2) with faculties fa, fb can change. */
+        private long localCost(int v, int d1, int d2, int fa, int fb) {
+            long c = divisionDayCost(v, d1);
+            if (d2 != d1) c += divisionDayCost(v, d2);
+            c += facultyDayCost(fa, d1);
+            if (d2 != d1) c += facultyDayCost(fa, d2);
+            if (fb != fa) {
+                c += facultyDayCost(fb, d1);
+                if (d2 != d1) c += facultyDayCost(fb, d2);
+            }
+            return c;
+        }
+
+        private int divisionDayCost(int v, int d) {
+            int c = 0;
+            int first = -1, last = -1;
+            for (int s = 1; s <= numSlots; s++) {
+                int id = g.get(v, d, s);
+                if (id == TimetableGrid.FREE || id == TimetableGrid.RECESS) continue;
+                if (first < 0) first = s;
+                last = s;
+                // repeated subject (lectures only, a lab block is one session)
+                if (g.isLab(id)) continue;
+                for (int t = 1; t < s; t++) {
+                    if (g.get(v, d, t) == id) { c += W_SAME_SUBJECT; break; }
+                }
+            }
+            // idle slots between the first and the last lesson
+            for (int s = first + 1; first > 0 && s < last; s++) {
+                if (g.get(v, d, s) == TimetableGrid.FREE) c += W_GAP;
+            }
+            return c;
+        }
+
+        private int facultyDayCost(int f, int d) {
+            if (f < 0) return 0;
+            int load = st.facultyBusy.load(f, d);
+            return W_FACULTY_LOAD * load * load;
+        }
+
+        private int extraCost(int v) {
+            int c = 0;
+            for (int id : problem.fillLectures(v)) {
+                int extra = Math.max(0, count[v][id] - required[v][id]);
+                c += W_EXTRA * extra * extra;
+            }
+            return c;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository;
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
+import com.example.timetablegenerator.repository.RunRepository.RunRow;
+import com.example.timetablegenerator.service.TimetableService.Lecture;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory inverted indexes over the lectures and labs of saved runs, for
+ * the lookup API: faculty → week, (faculty, day, slot) → cells and
+ * (subject, day) → cells. Each answer is one hash lookup returning a
+ * prebuilt list, with no database round trip.
+ *
+ * The published run is the latest saved one (highest version). A run saved
+ * by this instance is indexed from its grid as it is saved ({@link #publish});
+ * runs saved elsewhere (other instances, write-behind) are noticed at most
+ * {@code timetable.lookup.refresh-seconds} later, when a lookup checks the
+ * catalog for a newer version and indexes it from its rows. Any other run
+ * is indexed when it is first looked up. Bounded LRU of
+ * {@code timetable.lookup.capacity} runs; deleted runs are evicted.
+ */
+@Component
+public class LookupIndex {
+
+    /** One lecture or lab of a run. */
+    public static class Slot {
+        public String division;
+        public String day;
+        public int slot;
+        public String subject;
+        public String faculty;
+        public String room;
+        public String type;
+    }
+
+    private record At(String faculty, String day, int slot) {}
+
+    private record SubjectDay(String subject, String day) {}
+
+    /** The indexes of one run. */
+    public static final class Index {
+        public final UUID runId;
+        public final int version;
+        private final Map<String, List<Slot>> byFaculty = new HashMap<>();
+        private final Map<At, List<Slot>> byFacultyAt = new HashMap<>();
+        private final Map<SubjectDay, List<Slot>> bySubjectDay = new HashMap<>();
+
+        private Index(UUID runId, int version, List<Slot> slots, List<String> days) {
+            this.runId = runId;
+            this.version = version;
+            Map<String, Integer> dayOrder = new HashMap<>();
+            for (String day : days) dayOrder.putIfAbsent(day, dayOrder.size());
+            slots.sort(Comparator.comparingInt((Slot s) -> dayOrder.getOrDefault(s.day, Integer.MAX_VALUE))
+                    .thenComparingInt(s -> s.slot)
+                    .thenComparing(s -> s.division));
+            for (Slot s : slots) {
+                byFaculty.computeIfAbsent(s.faculty, k -> new ArrayList<>()).add(s);
+                byFacultyAt.computeIfAbsent(new At(s.faculty, s.day, s.slot), k -> new ArrayList<>(1)).add(s);
+                bySubjectDay.computeIfAbsent(new SubjectDay(s.subject, s.day), k -> new ArrayList<>()).add(s);
+            }
+        }
+
+        /** Where {@code faculty} teaches at {@code day} / {@code slot} (normally one cell). */
+        public List<Slot> facultyAt(String faculty, String day, int slot) {
+            return view(byFacultyAt.get(new At(faculty, day, slot)));
+        }
+
+        /** The week of {@code faculty}, by day (in the run's day order) and slot. */
+        public List<Slot> facultyWeek(String faculty) {
+            return view(byFaculty.get(faculty));
+        }
+
+        /** The cells of {@code subject} on {@code day}, by slot. */
+        public List<Slot> subjectOn(String subject, String day) {
+            return view(bySubjectDay.get(new SubjectDay(subject, day)));
+        }
+
+        private static List<Slot> view(List<Slot> slots) {
+            return slots == null ? List.of() : Collections.unmodifiableList(slots);
+        }
+    }
+
+    private final RunRepository runRepository;
+    private final RunDataCache runData;
+    private final long refreshNanos;
+    private final Map<UUID, Index> byRun;
+    private volatile Index published;
+    private volatile boolean noRuns;
+    private volatile long checkedAt;
+
+    public LookupIndex(RunRepository runRepository, RunDataCache runData,
+                       @Value("${timetable.lookup.capacity:4}") int capacity,
+                       @Value("${timetable.lookup.refresh-seconds:30}") int refreshSeconds) {
+        this.runRepository = runRepository;
+        this.runData = runData;
+        this.refreshNanos = TimeUnit.SECONDS.toNanos(Math.max(1, refreshSeconds));
+        this.byRun = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Index> eldest) {
+                return size() > Math.max(1, capacity);
+            }
+        };
+    }
+
+    /**
+     * The index of the latest saved run, or null when there is none. Either
+     * answer is reused for {@code refresh-seconds} before the catalog is
+     * checked again.
+     */
+    public Index published() throws SQLException {
+        Index current = published;
+        long now = System.nanoTime();
+        if ((current != null || noRuns) && now - checkedAt < refreshNanos) return current;
+        checkedAt = now;
+        List<RunRow> latest = runRepository.listRuns(null, null, null, 1);
+        if (latest.isEmpty()) {
+            noneSaved(current);
+            return null;
+        }
+        RunRow row = latest.get(0);
+        if (current != null && current.runId.equals(row.getRunId())) return current;
+        Index index = load(row);
+        offerPublished(index);
+        return published;
+    }
+
+    /** The index of run {@code runId}, or null when there is no such run. */
+    public Index run(UUID runId) throws SQLException {
+        Index index;
+        synchronized (this) {
+            index = byRun.get(runId);
+        }
+        if (index != null) return index;
+        RunRow row = runRepository.findRun(runId);
+        return row == null ? null : load(row);
+    }
+
+    /** Indexes a run just saved from {@code grid} as version {@code version}. */
+    public void publish(UUID runId, int version, TimetableGrid grid) {
+        List<Slot> slots = new ArrayList<>();
+        for (int div = 0; div < grid.divisionCount(); div++) {
+            for (int d = 0; d < grid.dayCount(); d++) {
+                for (int slot = 1; slot <= grid.numSlots(); slot++) {
+                    if (grid.isFree(div, d, slot)) continue;
+                    Lecture lec = grid.lecture(grid.get(div, d, slot));
+                    String room = grid.roomName(div, d, slot);
+                    Slot s = slot(grid.division(div), grid.day(d), slot, lec.getSubject(), lec.getFaculty(),
+                            room != null ? room : TimetableService.DEFAULT_CLASSNAME, lec.getSessionType());
+                    if (s != null) slots.add(s);
+                }
+            }
+        }
+        Index index = new Index(runId, version, slots, grid.days());
+        synchronized (this) {
+            byRun.put(runId, index);
+        }
+        offerPublished(index);
+    }
+
+    /** Forgets a deleted run. */
+    public synchronized void evict(UUID runId) {
+        byRun.remove(runId);
+        Index current = published;
+        if (current != null && current.runId.equals(runId)) {
+            published = null;
+        }
+    }
+
+    /** Forgets every run (runs were deleted in bulk). */
+    public synchronized void clear() {
+        byRun.clear();
+        published = null;
+    }
+
+    private Index load(RunRow row) throws SQLException {
+        List<Slot> slots = new ArrayList<>();
+        for (AllocationRow r : runData.rows(row.getRunId())) {
+            Slot s = slot(r.divisionname, r.dayname, r.slotno, r.subjectname, r.facultyname, r.classname, r.session_type);
+            if (s != null) slots.add(s);
+        }
+        Index index = new Index(row.getRunId(), row.getVersion(), slots, row.getDays());
+        synchronized (this) {
+            byRun.put(row.getRunId(), index);
+        }
+        return index;
+    }
+
+    private synchronized void offerPublished(Index index) {
+        Index current = published;
+        if (current == null || index.version >= current.version) published = index;
+        noRuns = false;
+    }
+
+    /** The catalog had no run; unless one was published meanwhile, remember that. */
+    private synchronized void noneSaved(Index seen) {
+        if (published != seen) return;
+        published = null;
+        noRuns = true;
+    }
+
+    /** A lecture or lab cell; null for recesses. */
+    private static Slot slot(String division, String day, int slot, String subject, String faculty, String room,
+                             String type) {
+        if ("RECESS".equalsIgnoreCase(type)) return null;
+        Slot s = new Slot();
+        s.division = division;
+        s.day = day;
+        s.slot = slot;
+        s.subject = subject != null ? subject : "---";
+        s.faculty = faculty != null ? faculty : "---";
+        s.room = room;
+        s.type = type;
+        return s;
+    }
+}
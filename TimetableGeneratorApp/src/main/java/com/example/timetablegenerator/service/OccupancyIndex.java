@@ -0,0 +1,57 @@
+package com.example.timetablegenerator.service;
+
+import java.util.Arrays;
+
+/**
+ * Slot occupancy of a resource (a faculty member) per day, kept as one long
+ * bitmask per (resource, day): bit {@code s} is set when slot {@code s} is taken.
+ *
+ * A conflict check is a single AND, the daily load is a popcount, and free
+ * runs of consecutive slots can be found with shifts. Slots are 1-based, so
+ * at most {@link #MAX_SLOTS} slots per day are supported.
+ */
+public class OccupancyIndex {
+
+    public static final int MAX_SLOTS = 63;
+
+    private final int numDays;
+    private long[][] busy; // busy[resource][day]
+
+    public OccupancyIndex(int resources, int numDays) {
+        this.numDays = numDays;
+        this.busy = new long[Math.max(resources, 8)][numDays];
+    }
+
+    /** Bits 1..numSlots set. */
+    public static long slotMask(int numSlots) {
+        return numSlots >= MAX_SLOTS ? -2L : ((1L << (numSlots + 1)) - 2);
+    }
+
+    public long mask(int resource, int day) {
+        return resource < busy.length ? busy[resource][day] : 0L;
+    }
+
+    public boolean isBusy(int resource, int day, int slot) {
+        return (mask(resource, day) & (1L << slot)) != 0;
+    }
+
+    public int load(int resource, int day) {
+        return Long.bitCount(mask(resource, day));
+    }
+
+    public void mark(int resource, int day, int slot) {
+        ensure(resource);
+        busy[resource][day] |= 1L << slot;
+    }
+
+    public void clear(int resource, int day, int slot) {
+        if (resource < busy.length) busy[resource][day] &= ~(1L << slot);
+    }
+
+    private void ensure(int resource) {
+        if (resource < busy.length) return;
+        int old = busy.length;
+        busy = Arrays.copyOf(busy, Math.max(resource + 1, old * 2));
+        for (int i = old; i < busy.length; i++) busy[i] = new long[numDays];
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.timetablegenerator.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs several greedy constructions of the same problem in parallel and keeps
+ * the best one.
+ *
+ * Member 0 is the plain input-order greedy, so the portfolio is never worse
+ * than a single run; the others use {@link GreedySolver#GreedySolver(long)}
+ * with seeds {@code baseSeed + i}. Every member is completed with
+ * {@link GreedySolver#fillRemaining} (its shortfall is counted before, as
+ * fill cells look like placed demand) and scored by unplaced demand first,
+ * then by idle gaps inside a division's day. Ties go to the lower member
+ * index, so the outcome does not depend on thread timing.
+ */
+public class PortfolioSolver {
+
+    /**
+     * Outcome of the winning member, whose state is already filled; {@code shortfall}
+     * is its {@link SolverProblem#shortfall} before the fill and {@code stats} holds
+     * the counters of every member, by index.
+     */
+    public static class Result {
+        public final SolverState state;
+        public final int unplaced;
+        public final int[] shortfall;
+        public final int gaps;
+        public final int member;
+        public final List<SolverStats> stats;
+
+        Result(SolverState state, int unplaced, int[] shortfall, int gaps, int member, List<SolverStats> stats) {
+            this.state = state;
+            this.unplaced = unplaced;
+            this.shortfall = shortfall;
+            this.gaps = gaps;
+            this.member = member;
+            this.stats = stats;
+        }
+
+        boolean betterThan(Result o) {
+            if (unplaced != o.unplaced) return unplaced < o.unplaced;
+            if (gaps != o.gaps) return gaps < o.gaps;
+            return member < o.member;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    public PortfolioSolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /** {@code listener} receives the progress of member 0 only. */
+    public Result solve(SolverProblem problem, int size, long baseSeed, GenerationListener listener)
+            throws InterruptedException {
+        List<Future<Result>> futures = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final int member = i;
+            futures.add(pool.submit(() -> runMember(problem, member, baseSeed, listener)));
+        }
+
+        Result best = null;
+        List<SolverStats> stats = new ArrayList<>(size);
+        try {
+            for (Future<Result> f : futures) {
+                Result r = f.get();
+                stats.add(r.stats.get(0));
+                if (best == null || r.betterThan(best)) best = r;
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Portfolio member failed", e.getCause());
+        }
+        return new Result(best.state, best.unplaced, best.shortfall, best.gaps, best.member, stats);
+    }
+
+    private static Result runMember(SolverProblem problem, int member, long baseSeed, GenerationListener listener) {
+        GreedySolver greedy = member == 0 ? new GreedySolver(listener) : new GreedySolver(baseSeed + member);
+        SolverState state = problem.newState();
+        int unplaced = greedy.solve(problem, state);
+        int[] shortfall = unplaced > 0 ? problem.shortfall(state.grid) : new int[2];
+        greedy.fillRemaining(problem, state);
+        return new Result(state, unplaced, shortfall, gaps(state.grid), member, List.of(greedy.stats()));
+    }
+
+    /** Free slots that lie between two taught slots of the same division and day. */
+    static int gaps(TimetableGrid g) {
+        int gaps = 0;
+        for (int div = 0; div < g.divisionCount(); div++) {
+            for (int d = 0; d < g.dayCount(); d++) {
+                long occ = g.occupiedMask(div, d);
+                if (occ == 0) continue;
+                int first = Long.numberOfTrailingZeros(occ);
+                int last = 63 - Long.numberOfLeadingZeros(occ);
+                gaps += (last - first + 1) - Long.bitCount(occ);
+            }
+        }
+        return gaps;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.timetablegenerator.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Recently generated timetables by run id, so the result page's exports and
+ * repairs address one specific result instead of "the last one generated".
+ * Bounded LRU; older results are still available from the database.
+ */
+@Component
+public class RecentTimetables {
+
+    private final Map<UUID, GeneratedTimetable> byRun;
+    private UUID latest;
+
+    public RecentTimetables(@Value("${timetable.results.recent-capacity:32}") int capacity) {
+        this.byRun = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, GeneratedTimetable> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized void put(UUID runId, GeneratedTimetable timetable) {
+        byRun.put(runId, timetable);
+        latest = runId;
+    }
+
+    /** @return the result for {@code runId}, or null when unknown or evicted */
+    public synchronized GeneratedTimetable get(UUID runId) {
+        return runId == null ? null : byRun.get(runId);
+    }
+
+    /** Run id of the most recently registered result (null if none, or if it was evicted). */
+    public synchronized UUID latestRunId() {
+        return latest != null && byRun.containsKey(latest) ? latest : null;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository.RunRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rendered history views by run id: the per-division HTML tables and the
+ * page metadata of /history/view, with a strong ETag hashed from them (the
+ * same on every instance and across restarts, and different as soon as the
+ * rendering changes). Saved runs only ever change name, so an entry stays
+ * valid until the run is renamed or deleted (callers {@link #evict}).
+ * Bounded LRU of {@code timetable.history.render-cache-capacity} runs;
+ * 0 disables it.
+ */
+@Component
+public class RenderedRunCache {
+
+    public static class RenderedRun {
+        public final String etag;
+        public final Map<String, String> htmlTables;
+        public final List<String> days;
+        public final int numSlots;
+        public final List<String> divisions;
+        public final int version;
+        public final Date generatedAt;
+        public final String runName;
+
+        public RenderedRun(RunRow meta, Map<String, String> htmlTables, List<String> days, int numSlots,
+                           List<String> divisions) {
+            this.htmlTables = htmlTables;
+            this.days = days;
+            this.numSlots = numSlots;
+            this.divisions = divisions;
+            this.version = meta.getVersion();
+            this.generatedAt = meta.getGeneratedAt();
+            this.runName = meta.getRunName();
+            this.etag = etag(this);
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<UUID, RenderedRun> byRun;
+
+    public RenderedRunCache(@Value("${timetable.history.render-cache-capacity:64}") int capacity) {
+        this.enabled = capacity > 0;
+        this.byRun = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, RenderedRun> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** SHA-256 of everything the page shows, base64url, quoted. */
+    private static String etag(RenderedRun view) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM has SHA-256
+        }
+        StringBuilder meta = new StringBuilder()
+                .append(view.version).append('\n')
+                .append(view.generatedAt != null ? view.generatedAt.getTime() : 0).append('\n')
+                .append(view.runName).append('\n')
+                .append(view.days).append('\n')
+                .append(view.numSlots).append('\n')
+                .append(view.divisions).append('\n');
+        sha.update(meta.toString().getBytes(StandardCharsets.UTF_8));
+        for (Map.Entry<String, String> e : view.htmlTables.entrySet()) {
+            sha.update(e.getKey().getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            sha.update(e.getValue().getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+        }
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(sha.digest()) + "\"";
+    }
+
+    /** @return the rendered view of {@code runId}, or null when not cached */
+    public synchronized RenderedRun get(UUID runId) {
+        return byRun.get(runId);
+    }
+
+    public synchronized void put(UUID runId, RenderedRun view) {
+        if (enabled) byRun.put(runId, view);
+    }
+
+    /** Drops the view of a renamed or deleted run. */
+    public synchronized void evict(UUID runId) {
+        byRun.remove(runId);
+    }
+
+    /** Drops every view (runs were deleted in bulk). */
+    public synchronized void clear() {
+        byRun.clear();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository;
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
+import com.example.timetablegenerator.service.TimetableRepairer.Change;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Incremental repair of an existing run: applies a change set to a recent
+ * generated result or to a saved run and stores the result as a new run/version.
+ *
+ * With row-only storage the new run copies the unchanged rows of the base run
+ * inside the database (INSERT ... SELECT) and only the changed cells are sent
+ * from here; with run snapshots the repaired run is saved whole, as one
+ * snapshot is cheaper to write than the copied rows.
+ */
+@Service
+public class RepairService {
+
+    // --------------------------- REQUEST / RESULT ---------------------------
+    public static class RepairRequest {
+        public UUID runId;               // base run; null = most recent generated result
+        public String runName;           // name of the new run (optional)
+        public Integer maxLecturesPerDay; // optional, see resolveMaxPerDay
+        public List<Unavailable> unavailable = new ArrayList<>();
+        public List<PlanDelta> planDeltas = new ArrayList<>();
+    }
+
+    /** Faculty member absent on a day. */
+    public static class Unavailable {
+        public String faculty;
+        public String day;
+    }
+
+    /** Change of one subject's plan in one division; blank faculty = unchanged. */
+    public static class PlanDelta {
+        public String division;
+        public String subject;
+        public int lectureDelta;
+        public int labDelta;
+        public String lectureFaculty;
+        public String labFaculty;
+    }
+
+    public static class RepairResult {
+        public UUID baseRunId;
+        public UUID runId;
+        public int version;
+        public boolean saved;
+        public int unplaced;
+        public long elapsedMs;
+        public List<Change> changes;
+    }
+
+    private final TimetableService timetableService;
+    private final HistoryService historyService;
+    private final RecentTimetables recentTimetables;
+    private final RunRepository runRepository;
+
+    public RepairService(TimetableService timetableService, HistoryService historyService,
+                         RecentTimetables recentTimetables, RunRepository runRepository) {
+        this.timetableService = timetableService;
+        this.historyService = historyService;
+        this.recentTimetables = recentTimetables;
+        this.runRepository = runRepository;
+    }
+
+    public RepairResult repair(RepairRequest req) {
+        long t0 = System.currentTimeMillis();
+
+        UUID baseRunId = req.runId != null ? req.runId : recentTimetables.latestRunId();
+        if (baseRunId == null) throw new IllegalStateException("No recent timetable to repair, pass a runId");
+        GeneratedTimetable recent = recentTimetables.get(baseRunId);
+        TimetableGrid base = recent != null ? recent.grid() : loadRun(baseRunId);
+
+        int maxPerDay = resolveMaxPerDay(req, base, recent);
+        TimetableRepairer repairer = new TimetableRepairer(base, maxPerDay);
+        for (Unavailable u : req.unavailable) {
+            repairer.facultyUnavailable(required(u.faculty, "faculty"), required(u.day, "day"));
+        }
+        for (PlanDelta p : req.planDeltas) {
+            repairer.planDelta(required(p.division, "division"), required(p.subject, "subject"),
+                    p.lectureDelta, p.labDelta, p.lectureFaculty, p.labFaculty);
+        }
+
+        RepairResult res = new RepairResult();
+        res.baseRunId = baseRunId;
+        res.changes = repairer.changes();
+        res.unplaced = repairer.unplaced();
+        if (res.changes.isEmpty()) {
+            // nothing moved: the base run already is the answer, no new run or version
+            res.runId = baseRunId;
+            res.elapsedMs = System.currentTimeMillis() - t0;
+            System.out.println("🩹 Repair: no cells changed, run " + baseRunId + " kept as is in " + res.elapsedMs + " ms");
+            return res;
+        }
+        res.runId = UUID.randomUUID();
+        String name = req.runName != null && !req.runName.isBlank()
+                ? req.runName.trim()
+                : "Repair " + java.time.LocalDateTime.now().withNano(0);
+
+        GeneratedTimetable repaired = new GeneratedTimetable(repairer.grid(), maxPerDay,
+                (recent != null ? recent.unplaced() : 0) + res.unplaced);
+        if (!runRepository.writesSnapshots() && hasAllocationRows(baseRunId)) {
+            int version = saveIncremental(baseRunId, res.runId, name, res.changes);
+            res.saved = version > 0;
+            res.version = Math.max(version, 0);
+        } else {
+            // snapshot storage, or a base that was never saved: write the repaired run whole
+            res.version = timetableService.save(repaired, res.runId, name);
+            res.saved = res.version > 0;
+        }
+        recentTimetables.put(res.runId, repaired);
+
+        res.elapsedMs = System.currentTimeMillis() - t0;
+        System.out.println("🩹 Repair: " + res.changes.size() + " cells changed, " + res.unplaced
+                + " units unplaced, run " + res.runId + " (v" + res.version + ") in " + res.elapsedMs + " ms");
+        return res;
+    }
+
+    private static String required(String value, String field) {
+        if (value == null || value.isBlank()) throw new IllegalArgumentException("Missing " + field + " in change set");
+        return value.trim();
+    }
+
+    // --------------------------- LOAD ---------------------------
+    private TimetableGrid loadRun(UUID runId) {
+        List<AllocationRow> rows = historyService.getRun(runId);
+        if (rows.isEmpty()) throw new IllegalArgumentException("No saved timetable rows found for run " + runId);
+
+        LinkedHashSet<String> divisions = new LinkedHashSet<>();
+        LinkedHashSet<String> days = new LinkedHashSet<>();
+        int numSlots = 0;
+        for (AllocationRow r : rows) {
+            divisions.add(r.divisionname);
+            days.add(r.dayname);
+            numSlots = Math.max(numSlots, r.slotno);
+        }
+        if (numSlots > OccupancyIndex.MAX_SLOTS) {
+            throw new IllegalArgumentException("Run " + runId + " has more than " + OccupancyIndex.MAX_SLOTS + " slots");
+        }
+
+        TimetableGrid g = new TimetableGrid(new ArrayList<>(divisions), new ArrayList<>(days), numSlots);
+        Map<String, Boolean> roomKinds = new LinkedHashMap<>(); // room name -> holds labs
+        for (AllocationRow r : rows) {
+            int id = g.lectureId(r.subjectname, r.facultyname, r.session_type);
+            g.set(g.divisionId(r.divisionname), g.dayId(r.dayname), r.slotno, id);
+            if (id > TimetableGrid.RECESS && isRoom(r.classname)) roomKinds.putIfAbsent(r.classname, g.isLab(id));
+        }
+        if (roomKinds.isEmpty()) return g;
+
+        // the rooms the run booked; capacities are not saved, so every room seats every division
+        List<Rooms.Room> rooms = new ArrayList<>();
+        roomKinds.forEach((name, lab) -> rooms.add(new Rooms.Room(name, lab, 0)));
+        g.setRooms(Rooms.of(rooms, g.divisions(), Map.of()));
+        for (AllocationRow r : rows) {
+            int room = isRoom(r.classname) ? g.rooms().idOf(r.classname) : -1;
+            if (room >= 0 && g.get(g.divisionId(r.divisionname), g.dayId(r.dayname), r.slotno) > TimetableGrid.RECESS) {
+                g.setRoom(g.divisionId(r.divisionname), g.dayId(r.dayname), r.slotno, room);
+            }
+        }
+        return g;
+    }
+
+    /** A booked room, not the placeholder written when no rooms were scheduled. */
+    private static boolean isRoom(String classname) {
+        return classname != null && !classname.isBlank() && !TimetableService.DEFAULT_CLASSNAME.equals(classname);
+    }
+
+    /** Explicit value, else the generation setting of a recent result, else the busiest faculty-day of the run. */
+    private int resolveMaxPerDay(RepairRequest req, TimetableGrid g, GeneratedTimetable recent) {
+        if (req.maxLecturesPerDay != null && req.maxLecturesPerDay > 0) return req.maxLecturesPerDay;
+        if (recent != null && recent.maxLecturesPerDay() > 0) return recent.maxLecturesPerDay();
+        int max = 1;
+        SolverState st = SolverState.of(g, Integer.MAX_VALUE);
+        for (int f = 0; f < g.facultyCount(); f++) {
+            for (int d = 0; d < g.dayCount(); d++) max = Math.max(max, st.facultyBusy.load(f, d));
+        }
+        return max;
+    }
+
+    // --------------------------- SAVE ---------------------------
+    /** Copies the base run minus the changed cells, then inserts the changed cells; returns the new version or -1. */
+    private int saveIncremental(UUID baseRunId, UUID runId, String runName, List<Change> changes) {
+        try {
+            return runRepository.insertRepair(baseRunId, runId, runName, changes);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private boolean hasAllocationRows(UUID runId) {
+        try {
+            return runRepository.hasAllocationRows(runId);
+        } catch (Exception e) {
+            System.out.println("⚠️ Could not look up run " + runId + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
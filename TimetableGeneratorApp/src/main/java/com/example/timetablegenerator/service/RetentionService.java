@@ -0,0 +1,173 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.AllocationPartitions;
+import com.example.timetablegenerator.repository.RunRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Housekeeping of saved runs, every {@code timetable.retention.interval-hours}
+ * on one background thread (and once at startup):
+ *
+ * 1. the allocation partitions of this month and the next
+ *    {@code timetable.partitions.months-ahead} are created ahead of the saves
+ *    that need them;
+ * 2. when {@code timetable.retention.enabled}, runs older than the last
+ *    {@code timetable.retention.keep-months} months (the current one
+ *    included, UTC) are archived: their catalog rows and snapshots, then each
+ *    old allocation partition, are written to gzipped CSV files in
+ *    {@code timetable.retention.archive-dir} and only then deleted
+ *    (partitions are detached and dropped, not emptied row by row).
+ *
+ * Retention needs PostgreSQL with the partitioned allocation table of
+ * miniproject.sql; elsewhere it logs that it is skipped.
+ */
+@Service
+public class RetentionService {
+
+    /** What one archive pass did. */
+    public static class Report {
+        public String keepFrom;
+        public long runsArchived;
+        public long rowsArchived;
+        public List<String> partitionsDropped = new ArrayList<>();
+        public List<String> files = new ArrayList<>();
+    }
+
+    private final RunRepository runRepository;
+    private final AllocationPartitions partitions;
+    private final RenderedRunCache renderedRuns;
+    private final RunDataCache runData;
+    private final LookupIndex lookupIndex;
+    private final GenerationCache generationCache;
+    private final boolean enabled;
+    private final int keepMonths;
+    private final int monthsAhead;
+    private final Path archiveDir;
+    private final int intervalHours;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "retention");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public RetentionService(RunRepository runRepository, AllocationPartitions partitions,
+                            RenderedRunCache renderedRuns, RunDataCache runData, LookupIndex lookupIndex,
+                            GenerationCache generationCache,
+                            @Value("${timetable.retention.enabled:false}") boolean enabled,
+                            @Value("${timetable.retention.keep-months:12}") int keepMonths,
+                            @Value("${timetable.retention.archive-dir:archive}") String archiveDir,
+                            @Value("${timetable.retention.interval-hours:24}") int intervalHours,
+                            @Value("${timetable.partitions.months-ahead:2}") int monthsAhead) {
+        this.runRepository = runRepository;
+        this.partitions = partitions;
+        this.renderedRuns = renderedRuns;
+        this.runData = runData;
+        this.lookupIndex = lookupIndex;
+        this.generationCache = generationCache;
+        this.enabled = enabled;
+        this.keepMonths = Math.max(1, keepMonths);
+        this.monthsAhead = Math.max(0, monthsAhead);
+        this.archiveDir = Path.of(archiveDir);
+        this.intervalHours = Math.max(1, intervalHours);
+    }
+
+    @PostConstruct
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, intervalHours, TimeUnit.HOURS);
+    }
+
+    /** One scheduled pass; failures are logged and retried on the next pass. */
+    void maintain() {
+        try {
+            YearMonth now = YearMonth.now(ZoneOffset.UTC);
+            for (int i = 0; i <= monthsAhead; i++) partitions.ensure(now.plusMonths(i));
+            if (enabled) archive();
+        } catch (Exception e) {
+            System.out.println("❌ Retention pass failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /** Archives and deletes everything generated before the kept months. */
+    public synchronized Report archive() throws SQLException, IOException {
+        Report report = new Report();
+        YearMonth keepFrom = YearMonth.now(ZoneOffset.UTC).minusMonths(keepMonths - 1);
+        report.keepFrom = keepFrom.toString();
+        if (!partitions.partitioned()) {
+            System.out.println("⚠️ Retention skipped: allocation is not a partitioned PostgreSQL table");
+            return report;
+        }
+        Files.createDirectories(archiveDir);
+
+        // runs first, so the history never lists a run whose rows are gone
+        Path runs = archiveDir.resolve(String.format("runs_before_%d%02d_%d.csv.gz",
+                keepFrom.getYear(), keepFrom.getMonthValue(), System.currentTimeMillis()));
+        long archived = write(runs, out -> runRepository.exportRunsBefore(keepFrom, out));
+        if (archived > 0) {
+            report.runsArchived = runRepository.deleteRunsBefore(keepFrom);
+            renderedRuns.clear();
+            runData.clear();
+            lookupIndex.clear();
+            generationCache.clear(); // entries may link to the deleted runs
+            report.files.add(runs.toString());
+        } else {
+            Files.deleteIfExists(runs);
+        }
+
+        for (YearMonth month : partitions.monthsBefore(keepFrom)) {
+            String table = AllocationPartitions.tableName(month);
+            partitions.detach(month);
+            Path file = archiveDir.resolve(table + ".csv.gz");
+            report.rowsArchived += write(file, out -> partitions.export(month, out));
+            partitions.drop(month);
+            report.partitionsDropped.add(table);
+            report.files.add(file.toString());
+        }
+
+        System.out.println("✅ Retention: kept from " + keepFrom + ", archived " + report.runsArchived + " runs and "
+                + report.rowsArchived + " allocation rows, dropped " + report.partitionsDropped);
+        return report;
+    }
+
+    private interface Export {
+        long to(OutputStream out) throws SQLException, IOException;
+    }
+
+    /** Gzips an export into {@code file} via a temporary file, so a file that exists is complete. */
+    private static long write(Path file, Export export) throws SQLException, IOException {
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        long rows;
+        try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(part)), 1 << 16)) {
+            rows = export.to(out);
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
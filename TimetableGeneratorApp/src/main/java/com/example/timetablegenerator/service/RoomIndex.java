@@ -0,0 +1,76 @@
+package com.example.timetablegenerator.service;
+
+/**
+ * Free rooms per (day, slot), kept as a bitset over room ids: bit {@code r}
+ * of {@code free[day][slot]} is set while room {@code r} is unbooked.
+ *
+ * Checking or booking a room is one bit operation; finding the best-fitting
+ * free room for a division is a scan for the first set bit from
+ * {@link Rooms#fitFrom}, one long per 64 rooms (for a lab, the AND of its two
+ * slots, so both halves get the same room).
+ */
+public class RoomIndex {
+
+    private final Rooms rooms;
+    private final int numSlots;
+    private final long[][][] free; // free[day][slot][word]
+
+    public RoomIndex(Rooms rooms, int numDays, int numSlots) {
+        this.rooms = rooms;
+        this.numSlots = numSlots;
+        int words = (rooms.count() + 63) >>> 6;
+        this.free = new long[numDays][numSlots + 2][words];
+        for (long[][] day : free) {
+            for (int s = 1; s <= numSlots; s++) {
+                for (int r = 0; r < rooms.count(); r++) day[s][r >>> 6] |= 1L << r;
+            }
+        }
+    }
+
+    public Rooms rooms() { return rooms; }
+
+    public boolean isFree(int room, int day, int slot) {
+        return (free[day][slot][room >>> 6] & (1L << room)) != 0;
+    }
+
+    public void take(int room, int day, int slot) {
+        free[day][slot][room >>> 6] &= ~(1L << room);
+    }
+
+    public void release(int room, int day, int slot) {
+        free[day][slot][room >>> 6] |= 1L << room;
+    }
+
+    /**
+     * Best free room of the session's kind that seats the division, at {@code slot}
+     * (labs: at {@code slot} and {@code slot + 1}); -1 when there is none.
+     */
+    public int find(int division, int day, int slot, boolean lab) {
+        if (!rooms.constrains(lab)) return -1;
+        int from = rooms.fitFrom(division, lab), to = rooms.kindEnd(lab);
+        if (from >= to) return -1;
+        long[] a = free[day][slot];
+        long[] b = lab ? free[day][slot + 1] : null;
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            long m = b == null ? a[w] : a[w] & b[w];
+            if (w == from >>> 6) m &= -1L << from;
+            if (w == (to - 1) >>> 6 && (to & 63) != 0) m &= (1L << to) - 1;
+            if (m != 0) return (w << 6) + Long.numberOfTrailingZeros(m);
+        }
+        return -1;
+    }
+
+    /**
+     * Slots of a day where the division would get a room for a session of this kind
+     * (labs: bit s when a room is free at s and s+1). All slots when the kind needs no room.
+     */
+    public long availableMask(int division, int day, boolean lab) {
+        if (!rooms.constrains(lab)) return -1L;
+        long m = 0;
+        int last = lab ? numSlots - 1 : numSlots;
+        for (int s = 1; s <= last; s++) {
+            if (find(division, day, s, lab) >= 0) m |= 1L << s;
+        }
+        return m;
+    }
+}
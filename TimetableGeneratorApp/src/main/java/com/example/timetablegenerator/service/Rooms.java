@@ -0,0 +1,116 @@
+package com.example.timetablegenerator.service;
+
+import java.util.*;
+
+/**
+ * Room inventory of one generation: lecture halls and lab rooms with their
+ * capacities, and the class size of each division.
+ *
+ * Room ids are ordered lecture halls first, then labs, each kind by
+ * ascending capacity (unknown capacity last, it fits any division). The
+ * rooms a division fits in are therefore one contiguous id range per kind,
+ * starting at {@link #fitFrom}, and the lowest free id in that range is the
+ * best fit. A kind with no rooms is not scheduled at all.
+ */
+public final class Rooms {
+
+    /** One room as entered: name, lab or lecture hall, seats (0 = unknown). */
+    public static final class Room {
+        public final String name;
+        public final boolean lab;
+        public final int capacity;
+
+        public Room(String name, boolean lab, int capacity) {
+            this.name = name;
+            this.lab = lab;
+            this.capacity = Math.max(0, capacity);
+        }
+    }
+
+    public static final Rooms NONE = new Rooms(List.of(), new int[0]);
+
+    private final String[] names;
+    private final int[] capacity;
+    private final int labFrom;          // ids [0, labFrom) are lecture halls, [labFrom, count) labs
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final int[] lectureFit, labFit; // per division id: first room id of that kind it fits in
+
+    private Rooms(List<Room> sorted, int[] divisionSize) {
+        int n = sorted.size();
+        names = new String[n];
+        capacity = new int[n];
+        int labs = 0;
+        for (int i = 0; i < n; i++) {
+            Room r = sorted.get(i);
+            names[i] = r.name;
+            capacity[i] = r.capacity;
+            ids.put(r.name, i);
+            if (r.lab) labs++;
+        }
+        labFrom = n - labs;
+        lectureFit = new int[divisionSize.length];
+        labFit = new int[divisionSize.length];
+        for (int div = 0; div < divisionSize.length; div++) {
+            lectureFit[div] = firstFit(0, labFrom, divisionSize[div]);
+            labFit[div] = firstFit(labFrom, n, divisionSize[div]);
+        }
+    }
+
+    /**
+     * @param divisions    division names in grid order
+     * @param divisionSize students per division (missing or 0 = unknown, fits any room)
+     */
+    public static Rooms of(List<Room> rooms, List<String> divisions, Map<String, Integer> divisionSize) {
+        if (rooms == null || rooms.isEmpty()) return NONE;
+        Map<String, Room> unique = new LinkedHashMap<>();
+        for (Room r : rooms) unique.putIfAbsent(r.name, r); // first definition of a name wins
+        List<Room> sorted = new ArrayList<>(unique.values());
+        sorted.sort(Comparator.comparing((Room r) -> r.lab)
+                .thenComparingInt(r -> effective(r.capacity))
+                .thenComparing(r -> r.name));
+        int[] sizes = new int[divisions.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = Math.max(0, divisionSize == null ? 0 : divisionSize.getOrDefault(divisions.get(i), 0));
+        }
+        return new Rooms(sorted, sizes);
+    }
+
+    private static int effective(int capacity) {
+        return capacity == 0 ? Integer.MAX_VALUE : capacity;
+    }
+
+    private int firstFit(int from, int to, int size) {
+        int lo = from, hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (effective(capacity[mid]) < size) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    public boolean isEmpty() { return names.length == 0; }
+    public int count() { return names.length; }
+    public String name(int id) { return names[id]; }
+    public int capacity(int id) { return capacity[id]; }
+    public boolean isLab(int id) { return id >= labFrom; }
+
+    /** @return the id of {@code name}, or -1 if there is no such room */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /** True when sessions of this kind need a room (at least one room of the kind exists). */
+    public boolean constrains(boolean lab) {
+        return lab ? labFrom < names.length : labFrom > 0;
+    }
+
+    /** First room id of the kind that seats {@code division}; the range ends at {@link #kindEnd}. */
+    public int fitFrom(int division, boolean lab) {
+        return lab ? labFit[division] : lectureFit[division];
+    }
+
+    public int kindEnd(boolean lab) {
+        return lab ? names.length : labFrom;
+    }
+}
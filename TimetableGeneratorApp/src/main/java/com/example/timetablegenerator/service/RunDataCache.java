@@ -0,0 +1,211 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository;
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of the allocation rows of saved runs, shared by the
+ * history view, the CSV/Excel exports and repairs, so opening a run and then
+ * downloading it reads the database once.
+ *
+ * Runs are held dictionary-encoded ({@link CachedRun}): every distinct string
+ * once, each row as a few ints. Bounded LRU of
+ * {@code timetable.run-data-cache.capacity} runs, each dropped
+ * {@code timetable.run-data-cache.ttl-minutes} after it was loaded; capacity 0
+ * disables caching. Concurrent misses on one run share a single load.
+ * Deleting a run invalidates it ({@link #invalidate}); renaming does not,
+ * as the rows do not carry the run name.
+ *
+ * Meters follow Micrometer's cache conventions, tagged cache=run-data:
+ * cache.gets{result=hit|miss}, cache.evictions, cache.size.
+ */
+@Component
+public class RunDataCache {
+
+    /** One run's rows: a string dictionary plus {@link #STRIDE} ints per row. */
+    static final class CachedRun {
+        static final int STRIDE = 8; // division, day, slot, subject, faculty, room, type, semester
+
+        final String[] dict;
+        final int[] cells;
+        final long loadedAt = System.nanoTime();
+
+        private CachedRun(String[] dict, int[] cells) {
+            this.dict = dict;
+            this.cells = cells;
+        }
+
+        static CachedRun of(List<AllocationRow> rows) {
+            Map<String, Integer> index = new HashMap<>();
+            List<String> dict = new ArrayList<>();
+            int[] cells = new int[rows.size() * STRIDE];
+            int i = 0;
+            for (AllocationRow r : rows) {
+                cells[i++] = code(index, dict, r.divisionname);
+                cells[i++] = code(index, dict, r.dayname);
+                cells[i++] = r.slotno;
+                cells[i++] = code(index, dict, r.subjectname);
+                cells[i++] = code(index, dict, r.facultyname);
+                cells[i++] = code(index, dict, r.classname);
+                cells[i++] = code(index, dict, r.session_type);
+                cells[i++] = r.semesternumber;
+            }
+            return new CachedRun(dict.toArray(new String[0]), cells);
+        }
+
+        private static int code(Map<String, Integer> index, List<String> dict, String s) {
+            if (s == null) return -1;
+            return index.computeIfAbsent(s, k -> {
+                dict.add(k);
+                return dict.size() - 1;
+            });
+        }
+
+        /** Fresh row objects (callers may keep or change them); the strings are shared. */
+        List<AllocationRow> rows() {
+            List<AllocationRow> out = new ArrayList<>(cells.length / STRIDE);
+            for (int i = 0; i < cells.length; i += STRIDE) {
+                AllocationRow r = new AllocationRow();
+                r.divisionname = str(cells[i]);
+                r.dayname = str(cells[i + 1]);
+                r.slotno = cells[i + 2];
+                r.subjectname = str(cells[i + 3]);
+                r.facultyname = str(cells[i + 4]);
+                r.classname = str(cells[i + 5]);
+                r.session_type = str(cells[i + 6]);
+                r.semesternumber = cells[i + 7];
+                out.add(r);
+            }
+            return out;
+        }
+
+        private String str(int code) {
+            return code < 0 ? null : dict[code];
+        }
+    }
+
+    private final RunRepository runRepository;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final Map<UUID, CachedRun> byRun;
+    private final Map<UUID, CompletableFuture<CachedRun>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private long epoch; // bumped by every invalidation; a load started before it is not stored
+
+    public RunDataCache(RunRepository runRepository, MeterRegistry registry,
+                        @Value("${timetable.run-data-cache.capacity:32}") int capacity,
+                        @Value("${timetable.run-data-cache.ttl-minutes:60}") int ttlMinutes) {
+        this.runRepository = runRepository;
+        this.registry = registry;
+        this.enabled = capacity > 0;
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(Math.max(1, ttlMinutes));
+        this.byRun = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CachedRun> eldest) {
+                if (size() <= capacity) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+        this.hits = Counter.builder("cache.gets").tag("cache", "run-data").tag("result", "hit")
+                .description("Run data cache lookups").register(registry);
+        this.misses = Counter.builder("cache.gets").tag("cache", "run-data").tag("result", "miss")
+                .description("Run data cache lookups").register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, AtomicLong::get).tag("cache", "run-data")
+                .description("Runs dropped by size or age").register(registry);
+    }
+
+    @PostConstruct
+    void registerSizeGauge() {
+        Gauge.builder("cache.size", this, RunDataCache::size).tag("cache", "run-data")
+                .description("Runs in the run data cache").register(registry);
+    }
+
+    /** Rows of {@code runId}, ordered by division, day and slot (empty when there is no such run). */
+    public List<AllocationRow> rows(UUID runId) throws SQLException {
+        if (!enabled) return runRepository.findAllocations(runId);
+
+        long startEpoch;
+        synchronized (this) {
+            CachedRun cached = byRun.get(runId);
+            if (cached != null && System.nanoTime() - cached.loadedAt > ttlNanos) {
+                byRun.remove(runId);
+                evictions.incrementAndGet();
+                cached = null;
+            }
+            if (cached != null) {
+                hits.increment();
+                return cached.rows();
+            }
+            misses.increment();
+            startEpoch = epoch;
+        }
+
+        CompletableFuture<CachedRun> mine = new CompletableFuture<>();
+        CompletableFuture<CachedRun> theirs = loading.putIfAbsent(runId, mine);
+        if (theirs != null) return join(theirs).rows();
+        try {
+            CachedRun run = CachedRun.of(runRepository.findAllocations(runId));
+            synchronized (this) {
+                // unknown runs are not remembered: the id may be saved later
+                if (epoch == startEpoch && run.cells.length > 0) byRun.put(runId, run);
+            }
+            mine.complete(run);
+            return run.rows();
+        } catch (SQLException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(runId, mine);
+        }
+    }
+
+    /** Forgets {@code runId} (deleted). */
+    public synchronized void invalidate(UUID runId) {
+        epoch++;
+        byRun.remove(runId);
+    }
+
+    /** Forgets every run (runs were deleted in bulk). */
+    public synchronized void clear() {
+        epoch++;
+        byRun.clear();
+    }
+
+    public synchronized int size() {
+        return byRun.size();
+    }
+
+    private static CachedRun join(CompletableFuture<CachedRun> load) throws SQLException {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sql) throw sql;
+            if (e.getCause() instanceof RuntimeException rt) throw rt;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository;
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
+import com.example.timetablegenerator.repository.RunRepository.RowCursor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Cell-by-cell difference between two saved runs, e.g. version N and N+1.
+ *
+ * Both runs are read with {@link RunRepository#openRun} in (division, day,
+ * slot) order and merge-joined in one pass, so only the current row of each
+ * run is in memory however large the runs are. A cell is "added" or
+ * "removed" when only one run occupies it, "changed" when its subject,
+ * faculty, room or session type differ. Only those cells are reported.
+ *
+ * The summary counts lectures and labs per faculty: "moved" when a faculty
+ * lost a class of some division and subject at one cell and gained the same
+ * class at another; "added"/"removed" for the rest. A cell that only
+ * changed room or session type is not counted. Its memory grows with the
+ * changes, not with the runs.
+ */
+@Service
+public class RunDiffService {
+
+    public static class Cell {
+        public String subject;
+        public String faculty;
+        public String room;
+        public String type;
+
+        static Cell of(AllocationRow r) {
+            if (r == null) return null;
+            Cell c = new Cell();
+            c.subject = r.subjectname;
+            c.faculty = r.facultyname;
+            c.room = r.classname;
+            c.type = r.session_type;
+            return c;
+        }
+    }
+
+    /** One differing cell; before is null when added, after is null when removed. */
+    public static class CellChange {
+        public final String type = "cell";
+        public String division;
+        public String day;
+        public int slot;
+        public String change; // added | removed | changed
+        public Cell before;
+        public Cell after;
+    }
+
+    public static class FacultyMoves {
+        public String faculty;
+        public int moved;
+        public int added;
+        public int removed;
+    }
+
+    public static class Summary {
+        public final String type = "summary";
+        public UUID from;
+        public UUID to;
+        public long unchanged;
+        public long changed;
+        public long added;
+        public long removed;
+        public List<FacultyMoves> faculty = new ArrayList<>();
+    }
+
+    /** Receives the differing cells in (division, day, slot) order. */
+    public interface Listener {
+        void change(CellChange change) throws IOException;
+    }
+
+    private static final Comparator<AllocationRow> CELL_ORDER =
+            Comparator.comparing((AllocationRow r) -> r.divisionname, RunRepository.NAME_ORDER)
+                    .thenComparing(r -> r.dayname, RunRepository.NAME_ORDER)
+                    .thenComparingInt(r -> r.slotno);
+
+    private final RunRepository runRepository;
+
+    public RunDiffService(RunRepository runRepository) {
+        this.runRepository = runRepository;
+    }
+
+    /** Streams the cells that differ from run {@code from} to run {@code to} to {@code listener}. */
+    public Summary diff(UUID from, UUID to, Listener listener) throws SQLException, IOException {
+        Summary summary = new Summary();
+        summary.from = from;
+        summary.to = to;
+        // faculty -> division + subject -> {lost, gained}
+        Map<String, Map<String, int[]>> classes = new HashMap<>();
+
+        try (RowCursor a = runRepository.openRun(from); RowCursor b = runRepository.openRun(to)) {
+            AllocationRow x = a.next();
+            AllocationRow y = b.next();
+            while (x != null || y != null) {
+                int cmp = x == null ? 1 : y == null ? -1 : CELL_ORDER.compare(x, y);
+                AllocationRow before = cmp <= 0 ? x : null;
+                AllocationRow after = cmp >= 0 ? y : null;
+                if (before != null && after != null && sameCell(before, after)) {
+                    summary.unchanged++;
+                } else {
+                    CellChange change = new CellChange();
+                    AllocationRow at = before != null ? before : after;
+                    change.division = at.divisionname;
+                    change.day = at.dayname;
+                    change.slot = at.slotno;
+                    change.before = Cell.of(before);
+                    change.after = Cell.of(after);
+                    if (before == null) {
+                        change.change = "added";
+                        summary.added++;
+                    } else if (after == null) {
+                        change.change = "removed";
+                        summary.removed++;
+                    } else {
+                        change.change = "changed";
+                        summary.changed++;
+                    }
+                    if (before == null || after == null || !sameClass(before, after)) {
+                        tally(classes, before, 0);
+                        tally(classes, after, 1);
+                    }
+                    listener.change(change);
+                }
+                if (before != null) x = advance(a, x, from);
+                if (after != null) y = advance(b, y, to);
+            }
+        }
+
+        for (Map.Entry<String, Map<String, int[]>> e : classes.entrySet()) {
+            FacultyMoves f = new FacultyMoves();
+            f.faculty = e.getKey();
+            for (int[] lostGained : e.getValue().values()) {
+                int moved = Math.min(lostGained[0], lostGained[1]);
+                f.moved += moved;
+                f.removed += lostGained[0] - moved;
+                f.added += lostGained[1] - moved;
+            }
+            summary.faculty.add(f);
+        }
+        summary.faculty.sort(Comparator.comparingInt((FacultyMoves f) -> -(f.moved + f.added + f.removed))
+                .thenComparing(f -> f.faculty));
+        return summary;
+    }
+
+    private static boolean sameCell(AllocationRow a, AllocationRow b) {
+        return Objects.equals(a.subjectname, b.subjectname)
+                && Objects.equals(a.facultyname, b.facultyname)
+                && Objects.equals(a.classname, b.classname)
+                && Objects.equals(a.session_type, b.session_type)
+                && a.semesternumber == b.semesternumber;
+    }
+
+    /** Same faculty teaching the same subject to the same division: a room or session type change, not a move. */
+    private static boolean sameClass(AllocationRow a, AllocationRow b) {
+        return Objects.equals(a.facultyname, b.facultyname)
+                && Objects.equals(a.divisionname, b.divisionname)
+                && Objects.equals(a.subjectname, b.subjectname);
+    }
+
+    /** Counts a lecture or lab its faculty lost (side 0) or gained (side 1); recesses and "---" are not counted. */
+    private static void tally(Map<String, Map<String, int[]>> classes, AllocationRow r, int side) {
+        if (r == null || r.facultyname == null || "---".equals(r.facultyname)
+                || "RECESS".equalsIgnoreCase(r.session_type)) {
+            return;
+        }
+        classes.computeIfAbsent(r.facultyname, k -> new HashMap<>())
+                .computeIfAbsent(r.divisionname + '\u0000' + r.subjectname, k -> new int[2])[side]++;
+    }
+
+    /** The next row of {@code cursor}, which must come after {@code current}: the merge relies on it. */
+    private static AllocationRow advance(RowCursor cursor, AllocationRow current, UUID runId) throws SQLException {
+        AllocationRow next = cursor.next();
+        if (next != null && CELL_ORDER.compare(current, next) >= 0) {
+            throw new IllegalStateException("Rows of run " + runId + " are not in (division, day, slot) order");
+        }
+        return next;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository.PendingRun;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of generated runs not yet written to the database
+ * ({@link RunWriteBehind}). Every record is length-prefixed and checksummed:
+ * <pre>
+ * int length, int crc32(body), body
+ * body: byte 1 (run),     long, long run id, UTF name ("" = none), int n, n bytes run snapshot
+ *       byte 2 (written), long, long run id
+ * </pre>
+ * An append returns once the record is fsync'd. On open the file is read
+ * back: runs without a "written" record are pending again, and a torn or
+ * corrupt tail (the process died mid-append) ends the file. The journal is
+ * then rewritten with just the pending runs, is emptied whenever nothing is
+ * pending, and is rewritten again once it is mostly "written" records.
+ * A lock file next to it keeps a second process from using the same journal.
+ */
+final class RunJournal implements Closeable {
+
+    private static final byte RUN = 1;
+    private static final byte WRITTEN = 2;
+    private static final int MAX_RECORD = 64 << 20;
+    private static final long COMPACT_BYTES = 4 << 20;
+
+    private final Path file;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Map<UUID, PendingRun> pending = new LinkedHashMap<>();
+    private FileChannel channel;
+    private long pendingBytes;
+
+    RunJournal(Path file) throws IOException {
+        this.file = file;
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Journal " + file + " is in use by another process");
+        }
+        if (Files.exists(file)) replay();
+        rewrite();
+    }
+
+    /** Runs still to be written, oldest first, at most {@code max}. */
+    synchronized List<PendingRun> pending(int max) {
+        List<PendingRun> out = new ArrayList<>(Math.min(max, pending.size()));
+        for (PendingRun run : pending.values()) {
+            if (out.size() == max) break;
+            out.add(run);
+        }
+        return out;
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    /** Appends {@code run} and forces it to disk. */
+    synchronized void append(PendingRun run) throws IOException {
+        append(record(body(run)));
+        if (pending.put(run.runId, run) == null) pendingBytes += size(run);
+    }
+
+    /** Records that {@code runs} are in the database; they are not replayed again. */
+    synchronized void written(Collection<PendingRun> runs) throws IOException {
+        for (PendingRun run : runs) {
+            if (pending.remove(run.runId) != null) pendingBytes -= size(run);
+        }
+        if (pending.isEmpty()) {
+            channel.truncate(0);
+            channel.force(false);
+            pendingBytes = 0;
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * runs.size());
+        for (PendingRun run : runs) out.writeBytes(record(writtenBody(run.runId)));
+        append(out.toByteArray());
+        if (channel.size() > COMPACT_BYTES && channel.size() > 2 * pendingBytes) rewrite();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (channel != null) channel.close();
+        } finally {
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    /** Reads the file back into {@link #pending}, up to the first incomplete or corrupt record. */
+    private void replay() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        int records = 0;
+        int end = 0; // end of the last good record
+        while (in.remaining() >= 8) {
+            int length = in.getInt();
+            int crc = in.getInt();
+            if (length <= 0 || length > MAX_RECORD || length > in.remaining()) break;
+            CRC32 check = new CRC32();
+            check.update(bytes, in.position(), length);
+            if ((int) check.getValue() != crc) break;
+            DataInputStream body = new DataInputStream(new ByteArrayInputStream(bytes, in.position(), length));
+            byte type = body.readByte();
+            UUID runId = new UUID(body.readLong(), body.readLong());
+            if (type == RUN) {
+                String name = body.readUTF();
+                byte[] payload = new byte[body.readInt()];
+                body.readFully(payload);
+                pending.put(runId, new PendingRun(runId, name.isEmpty() ? null : name, payload));
+            } else if (type == WRITTEN) {
+                pending.remove(runId);
+            } else {
+                break;
+            }
+            in.position(in.position() + length);
+            end = in.position();
+            records++;
+        }
+        if (end < bytes.length) {
+            System.out.println("⚠️ Journal " + file + ": ignoring " + (bytes.length - end)
+                    + " bytes of an incomplete record at its end");
+        }
+        System.out.println("♻️ Journal " + file + ": " + records + " records read, " + pending.size() + " runs pending");
+    }
+
+    /** Replaces the file with one holding only the pending runs (temporary file, fsync, atomic move). */
+    private void rewrite() throws IOException {
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        pendingBytes = 0;
+        try (FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (PendingRun run : pending.values()) {
+                ByteBuffer buf = ByteBuffer.wrap(record(body(run)));
+                while (buf.hasRemaining()) out.write(buf);
+                pendingBytes += size(run);
+            }
+            out.force(true);
+        }
+        if (channel != null) channel.close();
+        Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Path dir = file.toAbsolutePath().getParent();
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true); // the rename itself
+        } catch (IOException e) {
+            // not every platform can sync a directory
+        }
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /** Writes and syncs {@code bytes}; a failed write is cut off again so later records stay readable. */
+    private void append(byte[] bytes) throws IOException {
+        long end = channel.size();
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) channel.write(buf);
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(end);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private static byte[] record(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return ByteBuffer.allocate(8 + body.length).putInt(body.length).putInt((int) crc.getValue()).put(body).array();
+    }
+
+    private static byte[] body(PendingRun run) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + run.payload.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RUN);
+            out.writeLong(run.runId.getMostSignificantBits());
+            out.writeLong(run.runId.getLeastSignificantBits());
+            out.writeUTF(run.runName != null ? run.runName : "");
+            out.writeInt(run.payload.length);
+            out.write(run.payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Approximate record size of {@code run}, for deciding when to compact. */
+    private static long size(PendingRun run) {
+        return 39L + run.payload.length + (run.runName != null ? run.runName.length() : 0);
+    }
+
+    private static byte[] writtenBody(UUID runId) {
+        return ByteBuffer.allocate(17).put(WRITTEN)
+                .putLong(runId.getMostSignificantBits()).putLong(runId.getLeastSignificantBits()).array();
+    }
+}
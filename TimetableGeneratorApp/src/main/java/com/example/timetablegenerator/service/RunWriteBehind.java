@@ -0,0 +1,135 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository;
+import com.example.timetablegenerator.repository.RunRepository.PendingRun;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind saving of generated runs ({@code timetable.write-behind.enabled}):
+ * {@link #submit} appends the run to a local fsync'd journal ({@link RunJournal})
+ * and returns, and one background thread writes journaled runs to the
+ * database, up to {@code timetable.write-behind.batch-size} per transaction
+ * ({@link RunRepository#insertPending}). A failed batch is retried with a
+ * doubling delay of up to {@code timetable.write-behind.max-retry-seconds}.
+ *
+ * Runs still in the journal when the process stops are written after the
+ * next start. Inserts are idempotent on run_id, so a batch that was committed
+ * but not yet marked written in the journal is not saved twice. A run gets its
+ * version, and shows up in the history, once it is written; its
+ * {@link GenerationCache} entry gets the version then too.
+ *
+ * Gauge timetable.write_behind.pending: runs in the journal.
+ */
+@Service
+public class RunWriteBehind {
+
+    private final RunRepository runRepository;
+    private final GenerationCache generationCache;
+    private final MeterRegistry registry;
+    private final RunJournal journal; // null when disabled
+    private final int batchSize;
+    private final long maxRetryMs;
+    private final ScheduledThreadPoolExecutor flusher = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "run-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private long retryMs; // flusher thread only
+
+    public RunWriteBehind(RunRepository runRepository, GenerationCache generationCache, MeterRegistry registry,
+                          @Value("${timetable.write-behind.enabled:false}") boolean enabled,
+                          @Value("${timetable.write-behind.journal:journal/runs.journal}") String journalFile,
+                          @Value("${timetable.write-behind.batch-size:32}") int batchSize,
+                          @Value("${timetable.write-behind.max-retry-seconds:60}") int maxRetrySeconds) {
+        this.runRepository = runRepository;
+        this.generationCache = generationCache;
+        this.registry = registry;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRetryMs = TimeUnit.SECONDS.toMillis(Math.max(1, maxRetrySeconds));
+        flusher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false); // no waiting out a retry delay
+        try {
+            this.journal = enabled ? new RunJournal(Path.of(journalFile)) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-behind journal " + journalFile, e);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (journal == null) return;
+        Gauge.builder("timetable.write_behind.pending", journal, RunJournal::size)
+                .description("Generated runs journaled but not yet in the database").register(registry);
+        if (journal.size() > 0) wake(); // replay what the last process left
+    }
+
+    public boolean enabled() {
+        return journal != null;
+    }
+
+    /**
+     * Journals {@code timetable} as run {@code runId} for the flusher to save.
+     *
+     * @return false when write-behind is off or the journal could not be
+     *         written (the caller saves the run directly instead)
+     */
+    public boolean submit(GeneratedTimetable timetable, UUID runId, String runName) {
+        if (journal == null || timetable == null || timetable.isEmpty()) return false;
+        try {
+            journal.append(PendingRun.of(runId, runName, timetable.grid()));
+        } catch (IOException | RuntimeException e) {
+            System.out.println("⚠️ Could not journal run " + runId + ": " + e.getMessage());
+            return false;
+        }
+        wake();
+        return true;
+    }
+
+    private void wake() {
+        if (scheduled.compareAndSet(false, true)) flusher.execute(this::flush);
+    }
+
+    /** Writes journaled runs until none are left or a batch fails. */
+    void flush() {
+        scheduled.set(false); // runs journaled from here on schedule another pass
+        try {
+            List<PendingRun> batch;
+            while (!(batch = journal.pending(batchSize)).isEmpty()) {
+                int[] versions = runRepository.insertPending(batch);
+                journal.written(batch);
+                for (int i = 0; i < batch.size(); i++) generationCache.runSaved(batch.get(i).runId, versions[i]);
+                System.out.println("✅ Write-behind: " + batch.size() + " runs saved (v" + versions[0]
+                        + (batch.size() > 1 ? "–v" + versions[versions.length - 1] : "") + "), "
+                        + journal.size() + " pending");
+            }
+            retryMs = 0;
+        } catch (Exception e) {
+            retryMs = retryMs == 0 ? 1000 : Math.min(2 * retryMs, maxRetryMs);
+            System.out.println("⚠️ Write-behind: saving failed (" + e.getMessage() + "), " + journal.size()
+                    + " runs pending, retrying in " + retryMs + " ms");
+            if (scheduled.compareAndSet(false, true)) flusher.schedule(this::flush, retryMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException, InterruptedException {
+        flusher.shutdown(); // a batch in progress may finish; waiting runs stay journaled
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flusher.shutdownNow();
+        if (journal != null) journal.close();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.timetablegenerator.service;
+
+import java.util.*;
+
+/**
+ * Solver input: a template grid (recess already marked, every lecture id
+ * interned), the demand to place and the lectures the fill pass may use.
+ *
+ * A problem may cover only some divisions of the template (see
+ * {@link #splitByFaculty(int)}); solvers then leave the other rows untouched.
+ */
+public class SolverProblem {
+
+    /** One line of demand: {@code count} lectures (or 2-slot labs) of a subject for a division. */
+    public static class Demand {
+        public final int division;
+        public final String subject;
+        public final int lectureId;
+        public final int faculty;
+        public final boolean lab;
+        public final int count;
+
+        public Demand(int division, String subject, int lectureId, int faculty, boolean lab, int count) {
+            this.division = division;
+            this.subject = subject;
+            this.lectureId = lectureId;
+            this.faculty = faculty;
+            this.lab = lab;
+            this.count = count;
+        }
+    }
+
+    private final TimetableGrid template;
+    private final int maxLecturesPerDay;
+    private final List<Demand> demands = new ArrayList<>();
+    // fill candidates per division, in preference order
+    private final int[][] fillLectures;
+    private final int[][] fillFaculties;
+    // divisions this problem covers, ascending
+    private final int[] divisions;
+
+    public SolverProblem(TimetableGrid template, int maxLecturesPerDay) {
+        this.template = template;
+        this.maxLecturesPerDay = maxLecturesPerDay;
+        this.fillLectures = new int[template.divisionCount()][0];
+        this.fillFaculties = new int[template.divisionCount()][0];
+        this.divisions = new int[template.divisionCount()];
+        for (int i = 0; i < divisions.length; i++) divisions[i] = i;
+    }
+
+    /** Sub-problem over {@code divisions}: same template and fill candidates, only their demand. */
+    private SolverProblem(SolverProblem parent, int[] divisions) {
+        this.template = parent.template;
+        this.maxLecturesPerDay = parent.maxLecturesPerDay;
+        this.fillLectures = parent.fillLectures;
+        this.fillFaculties = parent.fillFaculties;
+        this.divisions = divisions;
+        BitSet in = new BitSet();
+        for (int v : divisions) in.set(v);
+        for (Demand d : parent.demands) {
+            if (in.get(d.division)) demands.add(d);
+        }
+    }
+
+    public void addDemand(Demand d) {
+        if (d.count > 0) demands.add(d);
+    }
+
+    public void setFillCandidates(int division, int[] lectureIds, int[] facultyIds) {
+        fillLectures[division] = lectureIds;
+        fillFaculties[division] = facultyIds;
+    }
+
+    public TimetableGrid template() { return template; }
+    public int maxLecturesPerDay() { return maxLecturesPerDay; }
+    public List<Demand> demands() { return Collections.unmodifiableList(demands); }
+    public int[] fillLectures(int division) { return fillLectures[division]; }
+    public int[] fillFaculties(int division) { return fillFaculties[division]; }
+    public int[] divisions() { return divisions; }
+
+    public int totalUnits() {
+        int n = 0;
+        for (Demand d : demands) n += d.count;
+        return n;
+    }
+
+    /**
+     * Lecture and lab units of the demand {@code grid} falls short of, as
+     * {lectures, labs} (a lab fills two cells). Only meaningful before the
+     * fill pass, whose cells use the same lecture ids.
+     */
+    public int[] shortfall(TimetableGrid grid) {
+        int lectures = 0, labs = 0;
+        for (Demand dm : demands) {
+            int cells = 0;
+            for (int d = 0; d < grid.dayCount(); d++) {
+                for (int s = 1; s <= grid.numSlots(); s++) {
+                    if (grid.get(dm.division, d, s) == dm.lectureId) cells++;
+                }
+            }
+            int missing = dm.count - (dm.lab ? cells / 2 : cells);
+            if (missing <= 0) continue;
+            if (dm.lab) labs += missing;
+            else lectures += missing;
+        }
+        return new int[]{lectures, labs};
+    }
+
+    /**
+     * Splits the problem into groups of divisions that share no faculty.
+     *
+     * Divisions interact only through faculty occupancy, so divisions are
+     * joined (union-find) whenever a demand or fill candidate of one uses a
+     * faculty member of the other. The connected components are then packed
+     * into at most {@code maxParts} groups, largest first onto the group with
+     * the least demand, so that many tiny departments do not each become a
+     * task of their own. Returns {@code [this]} when there is nothing to split.
+     */
+    public List<SolverProblem> splitByFaculty(int maxParts) {
+        int n = divisions.length;
+        if (n < 2 || maxParts < 2) return List.of(this);
+
+        int[] parent = new int[template.divisionCount()];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        Map<Integer, Integer> facultyOwner = new HashMap<>(); // faculty -> some division using it
+        for (Demand d : demands) union(parent, facultyOwner, d.faculty, d.division);
+        for (int v : divisions) {
+            for (int f : fillFaculties[v]) union(parent, facultyOwner, f, v);
+        }
+
+        Map<Integer, List<Integer>> byRoot = new LinkedHashMap<>();
+        for (int v : divisions) byRoot.computeIfAbsent(find(parent, v), k -> new ArrayList<>()).add(v);
+        if (byRoot.size() == 1) return List.of(this);
+
+        int[] units = new int[template.divisionCount()];
+        for (Demand d : demands) units[d.division] += d.lab ? 2 * d.count : d.count;
+        List<List<Integer>> components = new ArrayList<>(byRoot.values());
+        components.sort(Comparator.comparingInt((List<Integer> c) -> weight(c, units)).reversed());
+
+        int parts = Math.min(maxParts, components.size());
+        List<List<Integer>> groups = new ArrayList<>(parts);
+        int[] load = new int[parts];
+        for (int i = 0; i < parts; i++) groups.add(new ArrayList<>());
+        for (List<Integer> c : components) {
+            int best = 0;
+            for (int i = 1; i < parts; i++) if (load[i] < load[best]) best = i;
+            groups.get(best).addAll(c);
+            load[best] += weight(c, units);
+        }
+
+        List<SolverProblem> out = new ArrayList<>(parts);
+        for (List<Integer> grp : groups) {
+            int[] divs = grp.stream().mapToInt(Integer::intValue).sorted().toArray();
+            out.add(new SolverProblem(this, divs));
+        }
+        return out;
+    }
+
+    private static void union(int[] parent, Map<Integer, Integer> facultyOwner, int faculty, int division) {
+        Integer other = facultyOwner.putIfAbsent(faculty, division);
+        if (other == null) return;
+        int a = find(parent, other), b = find(parent, division);
+        if (a != b) parent[a] = b;
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private static int weight(List<Integer> divisions, int[] units) {
+        int w = 0;
+        for (int v : divisions) w += units[v] + 1;
+        return w;
+    }
+
+    /** Fresh mutable state over a copy of the template grid. */
+    public SolverState newState() {
+        return new SolverState(template.copy(), maxLecturesPerDay);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.timetablegenerator.service;
+
+/**
+ * Mutable placement state shared by the solver engines: the grid, faculty
+ * occupancy, room occupancy and the one-lab-per-day flag, with
+ * constraint-aware place/remove. Placing a session into a free cell books
+ * the best-fitting free room of its kind; removing it releases the room.
+ */
+public class SolverState {
+
+    public final TimetableGrid grid;
+    public final OccupancyIndex facultyBusy;
+    public final RoomIndex roomsFree;
+    // divisionDayHasLab[division][day]
+    public final boolean[][] divisionDayHasLab;
+    public final int maxLecturesPerDay;
+    private final long validSlots;
+
+    public SolverState(TimetableGrid grid, int maxLecturesPerDay) {
+        this.grid = grid;
+        this.facultyBusy = new OccupancyIndex(grid.facultyCount(), grid.dayCount());
+        this.roomsFree = new RoomIndex(grid.rooms(), grid.dayCount(), grid.numSlots());
+        this.divisionDayHasLab = new boolean[grid.divisionCount()][grid.dayCount()];
+        this.maxLecturesPerDay = maxLecturesPerDay;
+        this.validSlots = OccupancyIndex.slotMask(grid.numSlots());
+    }
+
+    /** Rebuilds faculty occupancy and lab flags from an already filled grid. */
+    public static SolverState of(TimetableGrid grid, int maxLecturesPerDay) {
+        SolverState st = new SolverState(grid, maxLecturesPerDay);
+        for (int div = 0; div < grid.divisionCount(); div++) {
+            for (int day = 0; day < grid.dayCount(); day++) {
+                for (int s = 1; s <= grid.numSlots(); s++) {
+                    int id = grid.get(div, day, s);
+                    int fac = grid.facultyOf(id);
+                    if (fac >= 0) st.facultyBusy.mark(fac, day, s);
+                    if (grid.isLab(id)) st.divisionDayHasLab[div][day] = true;
+                    int room = grid.roomAt(div, day, s);
+                    if (room >= 0) st.roomsFree.take(room, day, s);
+                }
+            }
+        }
+        return st;
+    }
+
+    public boolean hasCapacity(int faculty, int day, int need) {
+        return facultyBusy.load(faculty, day) + need <= maxLecturesPerDay;
+    }
+
+    /** Slots free both in the division and for the faculty on this day. */
+    public long freeMask(int division, int day, int faculty) {
+        return ~(grid.occupiedMask(division, day) | facultyBusy.mask(faculty, day)) & validSlots;
+    }
+
+    /** Slots of this division on this day taught by {@code faculty}. */
+    public long facultySlots(int division, int day, int faculty) {
+        long m = grid.occupiedMask(division, day) & facultyBusy.mask(faculty, day);
+        long out = 0;
+        while (m != 0) {
+            int s = Long.numberOfTrailingZeros(m);
+            m &= m - 1;
+            if (grid.facultyAt(division, day, s) == faculty) out |= 1L << s;
+        }
+        return out;
+    }
+
+    /**
+     * Slots of a day where the division can get a room for a lecture (lab: a room free
+     * for s and s+1); all slots when no rooms are scheduled. Replacing a session
+     * in an occupied cell keeps its room and needs no check.
+     */
+    public long roomMask(int division, int day, boolean lab) {
+        return roomsFree.availableMask(division, day, lab);
+    }
+
+    public boolean hasRoom(int division, int day, int slot) {
+        return !grid.rooms().constrains(false) || roomsFree.find(division, day, slot, false) >= 0;
+    }
+
+    public void placeLecture(int division, int day, int slot, int lectureId, int faculty) {
+        grid.set(division, day, slot, lectureId);
+        facultyBusy.mark(faculty, day, slot);
+        if (grid.roomAt(division, day, slot) < 0) book(division, day, slot, roomsFree.find(division, day, slot, false));
+    }
+
+    public void removeLecture(int division, int day, int slot, int faculty) {
+        grid.set(division, day, slot, TimetableGrid.FREE);
+        facultyBusy.clear(faculty, day, slot);
+        int room = grid.roomAt(division, day, slot);
+        if (room >= 0) {
+            roomsFree.release(room, day, slot);
+            grid.setRoom(division, day, slot, -1);
+        }
+    }
+
+    public void placeLab(int division, int day, int slot, int lectureId, int faculty) {
+        grid.set(division, day, slot, lectureId);
+        grid.set(division, day, slot + 1, lectureId);
+        facultyBusy.mark(faculty, day, slot);
+        facultyBusy.mark(faculty, day, slot + 1);
+        int room = roomsFree.find(division, day, slot, true);
+        book(division, day, slot, room);
+        book(division, day, slot + 1, room);
+        divisionDayHasLab[division][day] = true;
+    }
+
+    private void book(int division, int day, int slot, int room) {
+        if (room < 0) return;
+        roomsFree.take(room, day, slot);
+        grid.setRoom(division, day, slot, room);
+    }
+
+    public void removeLab(int division, int day, int slot, int faculty) {
+        removeLecture(division, day, slot, faculty);
+        removeLecture(division, day, slot + 1, faculty);
+        divisionDayHasLab[division][day] = false;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.timetablegenerator.service;
+
+/**
+ * Placement counters and phase times of one greedy construction (see
+ * {@link GreedySolver#stats}). Plain fields, one instance per solver run:
+ * the counters sit in the hot loops, so they are never shared between threads.
+ *
+ * A probe is one candidate tried for one unit: a day for a lab or lecture, a
+ * (cell, fill candidate) pair during fill. A rejected probe is counted under
+ * the first reason that rules it out.
+ */
+public final class SolverStats {
+
+    public enum Reject {
+        BUSY,         // no slot free for both the division and the faculty
+        CAPACITY,     // faculty daily limit reached, or the division already has a lab that day
+        RECESS,       // the only free slots are recess
+        CONSECUTIVE,  // no two adjacent free slots for a lab, or same faculty back-to-back
+        ROOM          // free slots, but no room of the kind that seats the division
+    }
+
+    public long probes;
+    public final long[] rejected = new long[Reject.values().length];
+
+    // phase durations, -1 = phase not run by this instance
+    public long labsNanos = -1;
+    public long lecturesNanos = -1;
+    public long fillNanos = -1;
+
+    void reject(Reject reason) {
+        rejected[reason.ordinal()]++;
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.TimetableService.Lecture;
+
+import java.util.*;
+
+/**
+ * Dense timetable storage used during generation.
+ *
+ * Division, day, subject and faculty names are interned to int ids and every
+ * cell of the int[division][day][slot] grid is an index into a small table of
+ * shared {@link Lecture} instances (0 = free, 1 = RECESS). A parallel grid
+ * holds the room booked for each cell when the generation has {@link Rooms}.
+ * {@link #asMap()}
+ * exposes the nested division -> day -> slot map that the controllers and
+ * exports read, without materialising it.
+ */
+public class TimetableGrid {
+
+    public static final int FREE = 0;
+    public static final int RECESS = 1;
+
+    /** Simple name <-> id interning table. */
+    public static class Names {
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        public Names() {}
+
+        Names(Names other) {
+            names.addAll(other.names);
+            ids.putAll(other.ids);
+        }
+
+        public int intern(String name) {
+            Integer id = ids.get(name);
+            if (id != null) return id;
+            int next = names.size();
+            names.add(name);
+            ids.put(name, next);
+            return next;
+        }
+
+        /** @return the id of {@code name}, or -1 if it was never interned */
+        public int idOf(String name) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+
+        public String name(int id) { return names.get(id); }
+        public int size() { return names.size(); }
+        public List<String> all() { return Collections.unmodifiableList(names); }
+    }
+
+    private final Names divisionNames;
+    private final Names dayNames;
+    private final Names subjectNames;
+    private final Names facultyNames;
+    private final Names sessionTypes;
+    private final int numSlots;
+
+    // shared cell values: lectureId -> Lecture, plus the faculty id of each (-1 for RECESS)
+    private final List<Lecture> lectures;
+    private int[] lectureFaculty;
+    private final Map<Long, Integer> lectureIndex;
+    private final BitSet labLectures;
+
+    // cells[division][day][slot]; slots are 1-based, index 0 is unused
+    private final int[][][] cells;
+    // occupied[division][day]: bit s set when cell s is not FREE
+    private final long[][] occupied;
+    // roomCells[division][day][slot]: room id + 1, 0 = no room
+    private Rooms rooms = Rooms.NONE;
+    private int[][][] roomCells;
+
+    public TimetableGrid(List<String> divisions, List<String> days, int numSlots) {
+        this.divisionNames = new Names();
+        this.dayNames = new Names();
+        this.subjectNames = new Names();
+        this.facultyNames = new Names();
+        this.sessionTypes = new Names();
+        this.lectures = new ArrayList<>();
+        this.lectureFaculty = new int[16];
+        this.lectureIndex = new HashMap<>();
+        this.labLectures = new BitSet();
+
+        for (String d : divisions) divisionNames.intern(d);
+        for (String d : days) dayNames.intern(d);
+        this.numSlots = numSlots;
+        this.cells = new int[divisionNames.size()][dayNames.size()][numSlots + 1];
+        this.occupied = new long[divisionNames.size()][dayNames.size()];
+
+        lectures.add(null);                              // FREE
+        lectures.add(new Lecture(null, null, "RECESS")); // RECESS, shared by every cell
+        lectureFaculty[FREE] = -1;
+        lectureFaculty[RECESS] = -1;
+    }
+
+    private TimetableGrid(TimetableGrid other) {
+        this.divisionNames = new Names(other.divisionNames);
+        this.dayNames = new Names(other.dayNames);
+        this.subjectNames = new Names(other.subjectNames);
+        this.facultyNames = new Names(other.facultyNames);
+        this.sessionTypes = new Names(other.sessionTypes);
+        this.numSlots = other.numSlots;
+        this.lectures = new ArrayList<>(other.lectures); // Lecture instances are immutable, share them
+        this.lectureFaculty = other.lectureFaculty.clone();
+        this.lectureIndex = new HashMap<>(other.lectureIndex);
+        this.labLectures = (BitSet) other.labLectures.clone();
+
+        this.cells = new int[other.cells.length][][];
+        for (int div = 0; div < cells.length; div++) {
+            cells[div] = new int[other.cells[div].length][];
+            for (int day = 0; day < cells[div].length; day++) cells[div][day] = other.cells[div][day].clone();
+        }
+        this.occupied = new long[other.occupied.length][];
+        for (int div = 0; div < occupied.length; div++) occupied[div] = other.occupied[div].clone();
+
+        this.rooms = other.rooms;
+        if (other.roomCells != null) {
+            this.roomCells = new int[other.roomCells.length][][];
+            for (int div = 0; div < roomCells.length; div++) {
+                roomCells[div] = new int[other.roomCells[div].length][];
+                for (int day = 0; day < roomCells[div].length; day++) {
+                    roomCells[div][day] = other.roomCells[div][day].clone();
+                }
+            }
+        }
+    }
+
+    /** Independent copy: same ids and lecture table, cells copied. */
+    public TimetableGrid copy() {
+        return new TimetableGrid(this);
+    }
+
+    /** Overwrites one division's row with the same row of {@code other} (a copy of the same template). */
+    public void copyDivisionFrom(TimetableGrid other, int division) {
+        for (int day = 0; day < cells[division].length; day++) {
+            System.arraycopy(other.cells[division][day], 0, cells[division][day], 0, numSlots + 1);
+        }
+        System.arraycopy(other.occupied[division], 0, occupied[division], 0, occupied[division].length);
+        if (roomCells != null) {
+            for (int day = 0; day < roomCells[division].length; day++) {
+                System.arraycopy(other.roomCells[division][day], 0, roomCells[division][day], 0, numSlots + 1);
+            }
+        }
+    }
+
+    // --------------------------- DIMENSIONS ---------------------------
+    public int divisionCount() { return divisionNames.size(); }
+    public int dayCount() { return dayNames.size(); }
+    public int numSlots() { return numSlots; }
+
+    public String division(int id) { return divisionNames.name(id); }
+    public String day(int id) { return dayNames.name(id); }
+    public List<String> divisions() { return divisionNames.all(); }
+    public List<String> days() { return dayNames.all(); }
+
+    public int divisionId(String division) { return divisionNames.idOf(division); }
+    public int dayId(String day) { return dayNames.idOf(day); }
+
+    public int facultyId(String faculty) { return facultyNames.intern(faculty); }
+    /** Id of a faculty the grid already knows, -1 otherwise (never interns). */
+    public int knownFacultyId(String faculty) { return facultyNames.idOf(faculty); }
+    public String faculty(int id) { return facultyNames.name(id); }
+    public int facultyCount() { return facultyNames.size(); }
+
+    // --------------------------- LECTURE TABLE ---------------------------
+    /** Returns the id of the shared Lecture for this (subject, faculty, type), creating it once. */
+    public int lectureId(String subject, String faculty, String sessionType) {
+        if ("RECESS".equalsIgnoreCase(sessionType)) return RECESS;
+        int sub = subject == null ? -1 : subjectNames.intern(subject);
+        int fac = faculty == null ? -1 : facultyNames.intern(faculty);
+        int type = sessionTypes.intern(sessionType);
+        long key = ((long) type << 42) | ((long) (sub + 1) << 21) | (fac + 1);
+
+        Integer id = lectureIndex.get(key);
+        if (id != null) return id;
+
+        int next = lectures.size();
+        lectures.add(new Lecture(subject, faculty, sessionType));
+        if (next == lectureFaculty.length) lectureFaculty = Arrays.copyOf(lectureFaculty, next * 2);
+        lectureFaculty[next] = fac;
+        lectureIndex.put(key, next);
+        if ("Lab".equalsIgnoreCase(sessionType)) labLectures.set(next);
+        return next;
+    }
+
+    public Lecture lecture(int lectureId) { return lectures.get(lectureId); }
+
+    public int lectureCount() { return lectures.size(); }
+
+    public boolean isLab(int lectureId) { return labLectures.get(lectureId); }
+
+    /** Faculty id of a lecture id, -1 for FREE/RECESS. */
+    public int facultyOf(int lectureId) { return lectureFaculty[lectureId]; }
+
+    // --------------------------- CELLS ---------------------------
+    public int get(int division, int day, int slot) { return cells[division][day][slot]; }
+
+    public void set(int division, int day, int slot, int lectureId) {
+        cells[division][day][slot] = lectureId;
+        if (lectureId == FREE) occupied[division][day] &= ~(1L << slot);
+        else occupied[division][day] |= 1L << slot;
+    }
+
+    /** Bitmask of the non-free slots of a division on a day (bit s = slot s). */
+    public long occupiedMask(int division, int day) { return occupied[division][day]; }
+
+    public boolean isFree(int division, int day, int slot) { return cells[division][day][slot] == FREE; }
+
+    public boolean isRecess(int division, int day, int slot) { return cells[division][day][slot] == RECESS; }
+
+    /** Faculty id teaching in this cell, or -1 for free/recess cells and out-of-range slots. */
+    public int facultyAt(int division, int day, int slot) {
+        if (slot < 1 || slot > numSlots) return -1;
+        return lectureFaculty[cells[division][day][slot]];
+    }
+
+    public boolean isEmpty() { return cells.length == 0; }
+
+    // --------------------------- ROOMS ---------------------------
+    /** Sets the room inventory (once, on the template grid, before any room is booked). */
+    public void setRooms(Rooms rooms) {
+        this.rooms = rooms;
+        this.roomCells = rooms.isEmpty() ? null : new int[cells.length][dayCount()][numSlots + 1];
+    }
+
+    public Rooms rooms() { return rooms; }
+
+    /** Room id booked for this cell, or -1. */
+    public int roomAt(int division, int day, int slot) {
+        return roomCells == null ? -1 : roomCells[division][day][slot] - 1;
+    }
+
+    public void setRoom(int division, int day, int slot, int room) {
+        if (roomCells != null) roomCells[division][day][slot] = room + 1;
+    }
+
+    /** Name of the room booked for this cell, or null. */
+    public String roomName(int division, int day, int slot) {
+        int room = roomAt(division, day, slot);
+        return room < 0 ? null : rooms.name(room);
+    }
+
+    // --------------------------- MAP VIEW ---------------------------
+    /** Read-only division -> day -> slot -> Lecture view; free cells are absent. */
+    public Map<String, Map<String, Map<Integer, Lecture>>> asMap() {
+        return new DivisionView();
+    }
+
+    private class DivisionView extends AbstractMap<String, Map<String, Map<Integer, Lecture>>> {
+        @Override
+        public Map<String, Map<Integer, Lecture>> get(Object key) {
+            int div = key instanceof String ? divisionNames.idOf((String) key) : -1;
+            return div < 0 ? null : new DayView(div);
+        }
+
+        @Override
+        public boolean containsKey(Object key) { return get(key) != null; }
+
+        @Override
+        public int size() { return divisionCount(); }
+
+        @Override
+        public Set<Entry<String, Map<String, Map<Integer, Lecture>>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override public int size() { return divisionCount(); }
+                @Override public Iterator<Entry<String, Map<String, Map<Integer, Lecture>>>> iterator() {
+                    return new Iterator<>() {
+                        int next = 0;
+                        @Override public boolean hasNext() { return next < divisionCount(); }
+                        @Override public Entry<String, Map<String, Map<Integer, Lecture>>> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            int div = next++;
+                            return new SimpleImmutableEntry<>(division(div), new DayView(div));
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private class DayView extends AbstractMap<String, Map<Integer, Lecture>> {
+        private final int div;
+
+        DayView(int div) { this.div = div; }
+
+        @Override
+        public Map<Integer, Lecture> get(Object key) {
+            int day = key instanceof String ? dayNames.idOf((String) key) : -1;
+            return day < 0 ? null : new SlotView(div, day);
+        }
+
+        @Override
+        public boolean containsKey(Object key) { return get(key) != null; }
+
+        @Override
+        public int size() { return dayCount(); }
+
+        @Override
+        public Set<Entry<String, Map<Integer, Lecture>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override public int size() { return dayCount(); }
+                @Override public Iterator<Entry<String, Map<Integer, Lecture>>> iterator() {
+                    return new Iterator<>() {
+                        int next = 0;
+                        @Override public boolean hasNext() { return next < dayCount(); }
+                        @Override public Entry<String, Map<Integer, Lecture>> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            int day = next++;
+                            return new SimpleImmutableEntry<>(day(day), new SlotView(div, day));
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private class SlotView extends AbstractMap<Integer, Lecture> {
+        private final int[] row;
+
+        SlotView(int div, int day) { this.row = cells[div][day]; }
+
+        @Override
+        public Lecture get(Object key) {
+            if (!(key instanceof Integer)) return null;
+            int slot = (Integer) key;
+            if (slot < 1 || slot > numSlots) return null;
+            return lectures.get(row[slot]);
+        }
+
+        @Override
+        public boolean containsKey(Object key) { return get(key) != null; }
+
+        @Override
+        public int size() {
+            int n = 0;
+            for (int s = 1; s <= numSlots; s++) if (row[s] != FREE) n++;
+            return n;
+        }
+
+        @Override
+        public Set<Entry<Integer, Lecture>> entrySet() {
+            return new AbstractSet<>() {
+                @Override public int size() { return SlotView.this.size(); }
+                @Override public Iterator<Entry<Integer, Lecture>> iterator() {
+                    return new Iterator<>() {
+                        int slot = advance(1);
+
+                        private int advance(int from) {
+                            while (from <= numSlots && row[from] == FREE) from++;
+                            return from;
+                        }
+
+                        @Override public boolean hasNext() { return slot <= numSlots; }
+                        @Override public Entry<Integer, Lecture> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            int s = slot;
+                            slot = advance(s + 1);
+                            return new SimpleImmutableEntry<>(s, lectures.get(row[s]));
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.TimetableService.Lecture;
+
+import java.util.*;
+
+/**
+ * Local repair of a finished timetable.
+ *
+ * Only the cells hit by a change are re-placed, everything else stays where
+ * it is. A displaced lecture is tried, in order: with a substitute faculty
+ * member of the same subject in the same slot, in a free cell of the same
+ * division, by swapping with another lecture of the division, in place of
+ * the division's most repeated lecture. Labs try the substitute, then another
+ * day, then a pair of cells whose lectures are displaced in turn. What
+ * still does not fit is counted as unplaced and its cells are refilled with
+ * the division's other subjects, like the generation fill pass.
+ */
+public class TimetableRepairer {
+
+    private static final String LECTURE = "Lecture";
+    private static final String LAB = "Lab";
+
+    /** One cell that differs from the original timetable (session or room); {@code null} means free / no room. */
+    public static class Change {
+        public final String division;
+        public final String day;
+        public final int slot;
+        public final Lecture before;
+        public final Lecture after;
+        public final String room;
+
+        Change(String division, String day, int slot, Lecture before, Lecture after, String room) {
+            this.division = division;
+            this.day = day;
+            this.slot = slot;
+            this.before = before;
+            this.after = after;
+            this.room = room;
+        }
+    }
+
+    private final TimetableGrid original;
+    private final TimetableGrid g;
+    private final SolverState st;
+    private final Set<Long> blocked = new HashSet<>(); // faculty << 32 | day
+    private int unplaced;
+
+    /** Works on a copy; {@code source} is left untouched. */
+    public TimetableRepairer(TimetableGrid source, int maxLecturesPerDay) {
+        this.original = source;
+        this.g = source.copy();
+        this.st = SolverState.of(g, maxLecturesPerDay);
+    }
+
+    public TimetableGrid grid() { return g; }
+    public int unplaced() { return unplaced; }
+
+    // --------------------------- CHANGES ---------------------------
+    /** Faculty member cannot teach on {@code day}: move or hand over every session they have that day. */
+    public void facultyUnavailable(String faculty, String day) {
+        int d = requireDay(day);
+        int fac = requireFaculty(faculty);
+        blocked.add(key(fac, d));
+
+        for (int div = 0; div < g.divisionCount(); div++) {
+            for (int s = 1; s <= g.numSlots(); s++) {
+                if (g.facultyAt(div, d, s) != fac) continue;
+                int id = g.get(div, d, s);
+                if (g.isLab(id)) {
+                    int start = s > 1 && g.get(div, d, s - 1) == id ? s - 1 : s;
+                    st.removeLab(div, d, start, fac);
+                    if (!relocateLab(div, d, start, id)) lost(div, d, start, 2, id);
+                    s = start + 1;
+                } else {
+                    st.removeLecture(div, d, s, fac);
+                    if (!relocateLecture(div, d, s, id)) lost(div, d, s, 1, id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plan change for one subject of a division: lecture/lab counts move by the
+     * given deltas, and a non-blank faculty replaces the current one.
+     */
+    public void planDelta(String division, String subject, int lectureDelta, int labDelta,
+                          String lectureFaculty, String labFaculty) {
+        int div = g.divisionId(division);
+        if (div < 0) throw new IllegalArgumentException("Unknown division: " + division);
+
+        int lecId = currentLecture(div, subject, LECTURE, lectureFaculty);
+        int labId = currentLecture(div, subject, LAB, labFaculty);
+        if (lectureFaculty != null && !lectureFaculty.isBlank()) lecId = reassignFaculty(div, lecId);
+        if (labFaculty != null && !labFaculty.isBlank()) labId = reassignFaculty(div, labId);
+
+        for (int i = 0; i < -lectureDelta; i++) {
+            int[] cell = mostRepeatedCell(div, lecId);
+            if (cell == null) break;
+            st.removeLecture(div, cell[0], cell[1], g.facultyOf(lecId));
+            refill(div, cell[0], cell[1], lecId);
+        }
+        for (int i = 0; i < lectureDelta; i++) {
+            if (!addLecture(div, lecId)) unplaced++;
+        }
+        for (int i = 0; i < -labDelta; i++) {
+            int[] cell = firstLab(div, labId);
+            if (cell == null) break;
+            st.removeLab(div, cell[0], cell[1], g.facultyOf(labId));
+            refill(div, cell[0], cell[1], labId);
+            refill(div, cell[0], cell[1] + 1, labId);
+        }
+        for (int i = 0; i < labDelta; i++) {
+            if (!addLab(div, labId)) unplaced++;
+        }
+    }
+
+    /** Cells that differ from the original, in grid order. */
+    public List<Change> changes() {
+        List<Change> out = new ArrayList<>();
+        for (int div = 0; div < g.divisionCount(); div++) {
+            for (int d = 0; d < g.dayCount(); d++) {
+                for (int s = 1; s <= g.numSlots(); s++) {
+                    int now = g.get(div, d, s);
+                    Lecture before = original.lecture(original.get(div, d, s));
+                    Lecture after = g.lecture(now);
+                    String room = g.roomName(div, d, s);
+                    if (before != after || !Objects.equals(room, original.roomName(div, d, s))) {
+                        out.add(new Change(g.division(div), g.day(d), s, before, after, room));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    // --------------------------- LECTURES ---------------------------
+    private boolean relocateLecture(int div, int day, int slot, int id) {
+        // 1) someone else who teaches the subject takes the same slot
+        int sub = substitute(id, div, day, slot, 1);
+        if (sub >= 0) {
+            st.placeLecture(div, day, slot, sub, g.facultyOf(sub));
+            return true;
+        }
+        // 2) same faculty, free cell of the division on another day
+        int fac = g.facultyOf(id);
+        for (int d = 0; d < g.dayCount(); d++) {
+            for (int s = 1; s <= g.numSlots(); s++) {
+                if (g.isFree(div, d, s) && !(d == day && s == slot) && canTeach(div, d, s, fac)) {
+                    st.placeLecture(div, d, s, id, fac);
+                    refill(div, day, slot, -1);
+                    return true;
+                }
+            }
+        }
+        // 3) swap with a lecture of the division whose faculty can take over the freed slot
+        for (int d = 0; d < g.dayCount(); d++) {
+            for (int s = 1; s <= g.numSlots(); s++) {
+                int other = g.get(div, d, s);
+                if (other <= TimetableGrid.RECESS || g.isLab(other) || (d == day && s == slot)) continue;
+                int ofac = g.facultyOf(other);
+                if (ofac == fac) continue;
+                st.removeLecture(div, d, s, ofac);
+                if (canTeach(div, d, s, fac) && canTeach(div, day, slot, ofac)) {
+                    st.placeLecture(div, d, s, id, fac);
+                    st.placeLecture(div, day, slot, other, ofac);
+                    return true;
+                }
+                st.placeLecture(div, d, s, other, ofac);
+            }
+        }
+        // 4) take the cell of the division's most repeated lecture that the faculty can teach
+        if (addLecture(div, id)) {
+            refill(div, day, slot, -1);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean addLecture(int div, int id) {
+        int fac = g.facultyOf(id);
+        int[] counts = lectureCounts(div);
+        int bestD = -1, bestS = -1, bestCount = -1;
+        for (int d = 0; d < g.dayCount(); d++) {
+            for (int s = 1; s <= g.numSlots(); s++) {
+                int cur = g.get(div, d, s);
+                if (cur == TimetableGrid.RECESS || cur == id || (cur != TimetableGrid.FREE && g.isLab(cur))) continue;
+                int displaced = cur == TimetableGrid.FREE ? Integer.MAX_VALUE : counts[cur];
+                if (displaced <= bestCount) continue;
+                int curFac = g.facultyOf(cur);
+                if (cur != TimetableGrid.FREE) st.removeLecture(div, d, s, curFac);
+                boolean ok = canTeach(div, d, s, fac);
+                if (cur != TimetableGrid.FREE) st.placeLecture(div, d, s, cur, curFac);
+                if (ok) {
+                    bestD = d; bestS = s; bestCount = displaced;
+                }
+            }
+        }
+        if (bestD < 0) return false;
+        int cur = g.get(div, bestD, bestS);
+        if (cur != TimetableGrid.FREE) st.removeLecture(div, bestD, bestS, g.facultyOf(cur));
+        st.placeLecture(div, bestD, bestS, id, fac);
+        return true;
+    }
+
+    // --------------------------- LABS ---------------------------
+    private boolean relocateLab(int div, int day, int slot, int id) {
+        int sub = substitute(id, div, day, slot, 2);
+        if (sub >= 0) {
+            st.placeLab(div, day, slot, sub, g.facultyOf(sub));
+            return true;
+        }
+        int fac = g.facultyOf(id);
+        for (int d = 0; d < g.dayCount(); d++) {
+            if (d == day || st.divisionDayHasLab[div][d] || !canTeachDay(fac, d, 2)) continue;
+            long free = st.freeMask(div, d, fac);
+            long pairs = free & (free >>> 1) & st.roomMask(div, d, true);
+            if (pairs == 0) continue;
+            st.placeLab(div, d, Long.numberOfTrailingZeros(pairs), id, fac);
+            refill(div, day, slot, -1);
+            refill(div, day, slot + 1, -1);
+            return true;
+        }
+        if (addLab(div, id)) {
+            refill(div, day, slot, -1);
+            refill(div, day, slot + 1, -1);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean addLab(int div, int id) {
+        int fac = g.facultyOf(id);
+        for (int d = 0; d < g.dayCount(); d++) {
+            if (st.divisionDayHasLab[div][d] || !canTeachDay(fac, d, 2)) continue;
+            long labRooms = st.roomMask(div, d, true); // lecture halls freed below do not change it
+            for (int s = 1; s < g.numSlots(); s++) {
+                int a = g.get(div, d, s), b = g.get(div, d, s + 1);
+                if (a == TimetableGrid.RECESS || b == TimetableGrid.RECESS) continue;
+                if ((st.facultyBusy.mask(fac, d) & (3L << s)) != 0 || (labRooms & (1L << s)) == 0) continue;
+                if (a != TimetableGrid.FREE) st.removeLecture(div, d, s, g.facultyOf(a));
+                if (b != TimetableGrid.FREE) st.removeLecture(div, d, s + 1, g.facultyOf(b));
+                st.placeLab(div, d, s, id, fac);
+                // the lectures the lab took the place of are displaced like any other
+                if (a != TimetableGrid.FREE && !relocateLecture(div, d, s, a)) lost(div, d, s, 1, a);
+                if (b != TimetableGrid.FREE && !relocateLecture(div, d, s + 1, b)) lost(div, d, s + 1, 1, b);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // --------------------------- HELPERS ---------------------------
+    /** Lecture of the same subject and type taught by someone who can take (day, slot..slot+len-1); -1 if none. */
+    private int substitute(int id, int div, int day, int slot, int len) {
+        Lecture lec = g.lecture(id);
+        int best = -1, bestLoad = Integer.MAX_VALUE;
+        for (int other = TimetableGrid.RECESS + 1; other < g.lectureCount(); other++) {
+            if (other == id) continue;
+            Lecture o = g.lecture(other);
+            if (!Objects.equals(o.getSubject(), lec.getSubject())
+                    || !Objects.equals(o.getSessionType(), lec.getSessionType())) continue;
+            int fac = g.facultyOf(other);
+            boolean ok = len == 1 ? canTeach(div, day, slot, fac)
+                    : canTeachDay(fac, day, 2) && (st.facultyBusy.mask(fac, day) & (3L << slot)) == 0;
+            int load = st.facultyBusy.load(fac, day);
+            if (ok && load < bestLoad) {
+                best = other;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    /** Same checks as generation: no clash, daily cap, no back-to-back with the same faculty, a free room. */
+    private boolean canTeach(int div, int day, int slot, int fac) {
+        return g.isFree(div, day, slot)
+                && canTeachDay(fac, day, 1)
+                && !st.facultyBusy.isBusy(fac, day, slot)
+                && g.facultyAt(div, day, slot - 1) != fac
+                && g.facultyAt(div, day, slot + 1) != fac
+                && st.hasRoom(div, day, slot);
+    }
+
+    private boolean canTeachDay(int fac, int day, int need) {
+        return !blocked.contains(key(fac, day)) && st.hasCapacity(fac, day, need);
+    }
+
+    /** Gives a freed cell to the division's least-taught other lecture that fits; leaves it free otherwise. */
+    private void refill(int div, int day, int slot, int exclude) {
+        if (!g.isFree(div, day, slot)) return;
+        int[] counts = lectureCounts(div);
+        int best = -1;
+        for (int id = TimetableGrid.RECESS + 1; id < counts.length; id++) {
+            if (counts[id] == 0 || id == exclude || g.isLab(id)) continue;
+            if (!canTeach(div, day, slot, g.facultyOf(id))) continue;
+            if (best < 0 || counts[id] < counts[best]) best = id;
+        }
+        if (best >= 0) st.placeLecture(div, day, slot, best, g.facultyOf(best));
+    }
+
+    private void lost(int div, int day, int slot, int len, int id) {
+        unplaced++;
+        System.out.println("⚠️ WARN: Repair could not re-place " + g.lecture(id) + " of " + g.division(div)
+                + " on " + g.day(day) + " S" + slot);
+        for (int i = 0; i < len; i++) refill(div, day, slot + i, id);
+    }
+
+    /** Lecture id the division uses for this subject/type, switched to {@code faculty} when given. */
+    private int currentLecture(int div, String subject, String type, String faculty) {
+        if (faculty != null && !faculty.isBlank()) return g.lectureId(subject, faculty.trim(), type);
+        int[] counts = lectureCounts(div);
+        for (int id = TimetableGrid.RECESS + 1; id < counts.length; id++) {
+            Lecture l = g.lecture(id);
+            if (counts[id] > 0 && subject.equals(l.getSubject()) && type.equals(l.getSessionType())) return id;
+        }
+        return g.lectureId(subject, "Faculty-" + subject, type);
+    }
+
+    /** Moves the division's sessions of the subject over to the faculty of {@code target}. */
+    private int reassignFaculty(int div, int target) {
+        Lecture t = g.lecture(target);
+        int fac = g.facultyOf(target);
+        for (int d = 0; d < g.dayCount(); d++) {
+            for (int s = 1; s <= g.numSlots(); s++) {
+                int id = g.get(div, d, s);
+                if (id <= TimetableGrid.RECESS || id == target) continue;
+                Lecture l = g.lecture(id);
+                if (!Objects.equals(l.getSubject(), t.getSubject())
+                        || !Objects.equals(l.getSessionType(), t.getSessionType())) continue;
+
+                if (g.isLab(id)) {
+                    st.removeLab(div, d, s, g.facultyOf(id));
+                    boolean ok = canTeachDay(fac, d, 2) && (st.facultyBusy.mask(fac, d) & (3L << s)) == 0;
+                    if (ok) st.placeLab(div, d, s, target, fac);
+                    else if (!relocateLab(div, d, s, target)) lost(div, d, s, 2, target);
+                    s++;
+                } else {
+                    st.removeLecture(div, d, s, g.facultyOf(id));
+                    if (canTeach(div, d, s, fac)) st.placeLecture(div, d, s, target, fac);
+                    else if (!relocateLecture(div, d, s, target)) lost(div, d, s, 1, target);
+                }
+            }
+        }
+        return target;
+    }
+
+    /** A cell holding {@code id} on the day where the division has it most often. */
+    private int[] mostRepeatedCell(int div, int id) {
+        int[] best = null;
+        int bestCount = 0;
+        for (int d = 0; d < g.dayCount(); d++) {
+            int n = 0, last = -1;
+            for (int s = 1; s <= g.numSlots(); s++) {
+                if (g.get(div, d, s) == id) { n++; last = s; }
+            }
+            if (n > bestCount) {
+                bestCount = n;
+                best = new int[]{d, last};
+            }
+        }
+        return best;
+    }
+
+    private int[] firstLab(int div, int id) {
+        for (int d = 0; d < g.dayCount(); d++) {
+            for (int s = 1; s < g.numSlots(); s++) {
+                if (g.get(div, d, s) == id) return new int[]{d, s};
+            }
+        }
+        return null;
+    }
+
+    private int[] lectureCounts(int div) {
+        int[] counts = new int[g.lectureCount()];
+        for (int d = 0; d < g.dayCount(); d++) {
+            for (int s = 1; s <= g.numSlots(); s++) counts[g.get(div, d, s)]++;
+        }
+        return counts;
+    }
+
+    private int requireDay(String day) {
+        int d = g.dayId(day);
+        if (d < 0) throw new IllegalArgumentException("Unknown day: " + day);
+        return d;
+    }
+
+    private int requireFaculty(String faculty) {
+        int f = g.knownFacultyId(faculty);
+        if (f < 0) throw new IllegalArgumentException("Unknown faculty: " + faculty);
+        return f;
+    }
+
+    private static long key(int fac, int day) {
+        return ((long) fac << 32) | day;
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.timetablegenerator.service;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.util.*;
+import java.util.concurrent.*;
 
-import com.example.timetablegenerator.database.DBConnection;
+import com.example.timetablegenerator.repository.ClassRoomRepository;
+import com.example.timetablegenerator.repository.RunRepository;
 
 @Service
 public class TimetableService {
@@ -46,497 +49,393 @@ public class TimetableService {
         public String labFaculty;
     }
 
-    // --------------------------- FIELDS ---------------------------
-    private List<String> days = new ArrayList<>();
-    private int numSlots;
-    private List<String> divisions = new ArrayList<>();
-    private int maxLecturesPerDay;
-    private int totalLectures; // per subject per division per week (uniform mode)
-    private int totalLabs;     // per lab-subject per division per week (uniform mode)
-    private List<String> subjectNames = Collections.emptyList(); // merged (subjects ∪ labSubjects)
-    private List<String> labSubjects = Collections.emptyList();  // exactly what user entered
-    private List<int[]> recesses = new ArrayList<>();
-
-    // plan mode
-    private Map<String, Map<String, SubjectPlan>> planByDivision = new HashMap<>(); // division -> subject -> plan
-
-    // timetable[division][day][slot]
-    private final Map<String, Map<String, Map<Integer, Lecture>>> timetable = new HashMap<>();
-
-    // prevent more than one lab block per day per division
-    private final Map<String, Set<String>> divisionDayHasLab = new HashMap<>();
-
-    // --------------------------- INPUT SETUP ---------------------------
-    public void setInputs(List<String> days, int numSlots, List<String> divisions,
-                          List<String> subjectNames, List<String> labSubjects,
-                          List<int[]> recesses, int maxLecturesPerDay,
-                          int totalLectures, int totalLabs) {
-
-        this.days = new ArrayList<>(days);
-        this.numSlots = numSlots;
-        this.divisions = new ArrayList<>(divisions);
-
-        LinkedHashSet<String> merged = new LinkedHashSet<>();
-        if (subjectNames != null) merged.addAll(subjectNames);
-        if (labSubjects != null) merged.addAll(labSubjects);
-        this.subjectNames = new ArrayList<>(merged);
-
-        this.labSubjects = (labSubjects != null) ? labSubjects : Collections.emptyList();
-
-        this.recesses = (recesses != null) ? recesses : new ArrayList<>();
-        this.maxLecturesPerDay = maxLecturesPerDay;
-        this.totalLectures = totalLectures;
-        this.totalLabs = totalLabs;
-
-        this.planByDivision = new HashMap<>();
-    }
+    // --------------------------- CONFIG ---------------------------
+    /** classname written for cells without a booked room (no rooms scheduled, recess). */
+    public static final String DEFAULT_CLASSNAME = "Classroom 1";
 
-    public void setInputsWithPlan(List<String> days, int numSlots, List<String> divisions,
-                                  List<int[]> recesses, int maxLecturesPerDay,
-                                  Map<String, Map<String, SubjectPlan>> planByDivision) {
+    // All generation state is local to a call (see GenerationRequest / GeneratedTimetable);
+    // the fields below are settings only, so concurrent requests never share working state.
 
-        this.days = new ArrayList<>(days);
-        this.numSlots = numSlots;
-        this.divisions = new ArrayList<>(divisions);
-        this.recesses = (recesses != null) ? recesses : new ArrayList<>();
-        this.maxLecturesPerDay = maxLecturesPerDay;
-        this.planByDivision = (planByDivision != null) ? planByDivision : new HashMap<>();
+    // parallel randomized greedy runs; 0 = one per core, 1 = a single input-order run
+    @Value("${timetable.solver.portfolio.size:0}")
+    private int portfolioSize = 0;
 
-        LinkedHashSet<String> subs = new LinkedHashSet<>();
-        for (Map<String, SubjectPlan> m : this.planByDivision.values()) subs.addAll(m.keySet());
-        this.subjectNames = new ArrayList<>(subs);
+    @Value("${timetable.solver.portfolio.seed:1}")
+    private long portfolioSeed = 1;
 
-        this.labSubjects = Collections.emptyList();
-        this.totalLectures = 0;
-        this.totalLabs = 0;
-    }
+    // solve groups of divisions that share no faculty concurrently (see SolverProblem.splitByFaculty)
+    @Value("${timetable.solver.decompose.enabled:true}")
+    private boolean decomposeEnabled = true;
 
-    // --------------------------- MAIN LOGIC ---------------------------
-    public boolean generateTimetable() {
-        try {
-            if (numSlots <= 0 || days == null || days.isEmpty() || divisions == null || divisions.isEmpty()) {
-                System.out.println("❌ GEN FAIL — Invalid inputs: days/divisions empty or numSlots<=0");
-                return false;
-            }
+    private final ForkJoinPool solverPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
-            timetable.clear();
-            divisionDayHasLab.clear();
-            for (String division : divisions) divisionDayHasLab.put(division, new HashSet<>());
-
-            // Base + RECESS initialization
-            for (String division : divisions) {
-                Map<String, Map<Integer, Lecture>> divisionTable = new HashMap<>();
-                for (String day : days) {
-                    Map<Integer, Lecture> daySlots = new HashMap<>();
-                    for (int[] r : recesses) {
-                        int start = Math.max(1, r[0]);
-                        int end = Math.min(numSlots, r[1]);
-                        for (int s = start; s <= end; s++) {
-                            daySlots.put(s, new Lecture(null, null, "RECESS"));
-                        }
-                    }
-                    divisionTable.put(day, daySlots);
-                }
-                timetable.put(division, divisionTable);
-            }
+    // second engine, used only when the greedy pass leaves demand unplaced
+    @Value("${timetable.solver.backtracking.enabled:true}")
+    private boolean backtrackingEnabled = true;
 
-            // Track faculty load + collisions
-            Set<String> facultyBusy = new HashSet<>(); // key: day#slot#faculty
-            Map<String, Map<String, Integer>> facultyDayCount = new HashMap<>();
-
-            if (!planByDivision.isEmpty()) {
-                // PLAN MODE
-                for (Map<String, SubjectPlan> subMap : planByDivision.values()) {
-                    for (SubjectPlan sp : subMap.values()) {
-                        for (String fac : facultiesOf(sp)) {
-                            facultyDayCount.putIfAbsent(fac, new HashMap<>());
-                            for (String day : days) facultyDayCount.get(fac).putIfAbsent(day, 0);
-                        }
-                    }
-                }
+    @Value("${timetable.solver.backtracking.time-budget-ms:2000}")
+    private long backtrackingBudgetMs = 2000;
 
-                // Labs
-                for (String division : divisions) {
-                    Map<String, SubjectPlan> subs = planByDivision.getOrDefault(division, Collections.emptyMap());
-                    for (SubjectPlan sp : subs.values()) {
-                        int labsToPlace = Math.max(0, sp.labsPerWeek);
-                        if (labsToPlace == 0) continue;
-
-                        String faculty = (sp.labFaculty != null && !sp.labFaculty.isEmpty())
-                                ? sp.labFaculty : sp.lectureFaculty;
-
-                        while (labsToPlace > 0) {
-                            boolean placed = false;
-                            outer:
-                            for (String day : days) {
-                                if (divisionDayHasLab.get(division).contains(day)) continue;
-                                if (!hasCapacity(facultyDayCount, faculty, day, 2, maxLecturesPerDay)) continue;
-
-                                Map<Integer, Lecture> daySlots = timetable.get(division).get(day);
-                                for (int slot = 1; slot <= numSlots - 1; slot++) {
-                                    if (isRecess(daySlots, slot) || isRecess(daySlots, slot + 1)) continue;
-                                    if (daySlots.containsKey(slot) || daySlots.containsKey(slot + 1)) continue;
-                                    if (isFacultyBusy(facultyBusy, day, slot, faculty)) continue;
-                                    if (isFacultyBusy(facultyBusy, day, slot + 1, faculty)) continue;
-
-                                    daySlots.put(slot, new Lecture(sp.subject, faculty, "Lab"));
-                                    daySlots.put(slot + 1, new Lecture(sp.subject, faculty, "Lab"));
-                                    markBusy(facultyBusy, day, slot, faculty);
-                                    markBusy(facultyBusy, day, slot + 1, faculty);
-                                    incrementCount(facultyDayCount, faculty, day, 2);
-                                    divisionDayHasLab.get(division).add(day);
-                                    placed = true;
-                                    break outer;
-                                }
-                            }
-                            if (!placed) {
-                                System.out.println("⚠️ WARN: Could not place LAB for " + sp.subject + " in " + division);
-                                break;
-                            }
-                            labsToPlace--;
-                        }
-                    }
-                }
+    // simulated-annealing pass over the complete timetable (soft constraints only)
+    @Value("${timetable.optimizer.enabled:true}")
+    private boolean optimizerEnabled = true;
 
-                // Lectures
-                for (String division : divisions) {
-                    Map<String, SubjectPlan> subs = planByDivision.getOrDefault(division, Collections.emptyMap());
-                    for (SubjectPlan sp : subs.values()) {
-                        int lecturesToPlace = Math.max(0, sp.lecturesPerWeek);
-                        String faculty = sp.lectureFaculty;
-
-                        int dayStartIdx = 0;
-                        int slotStart = 1;
-
-                        while (lecturesToPlace > 0) {
-                            boolean placed = false;
-
-                            for (int d = 0; d < days.size() && !placed; d++) {
-                                String day = days.get((dayStartIdx + d) % days.size());
-                                Map<Integer, Lecture> daySlots = timetable.get(division).get(day);
-
-                                if (!hasCapacity(facultyDayCount, faculty, day, 1, maxLecturesPerDay)) continue;
-
-                                for (int s = slotStart; s <= numSlots; s++) {
-                                    if (isRecess(daySlots, s)) continue;
-                                    if (daySlots.containsKey(s)) continue;
-                                    if (isFacultyBusy(facultyBusy, day, s, faculty)) continue;
-
-                                    Lecture prev = daySlots.get(s - 1);
-                                    if (prev != null && faculty.equals(prev.getFaculty()) &&
-                                            !"RECESS".equalsIgnoreCase(prev.getSessionType())) {
-                                        continue;
-                                    }
-
-                                    daySlots.put(s, new Lecture(sp.subject, faculty, "Lecture"));
-                                    markBusy(facultyBusy, day, s, faculty);
-                                    incrementCount(facultyDayCount, faculty, day, 1);
-
-                                    placed = true;
-                                    lecturesToPlace--;
-                                    dayStartIdx = (dayStartIdx + 1) % days.size();
-                                    slotStart = (s % numSlots) + 1;
-                                    break;
-                                }
-                            }
-
-                            if (!placed) {
-                                System.out.println("⚠️ WARN: Could not place LECTURE for " + sp.subject + " in " + division);
-                                break;
-                            }
-                        }
-                    }
-                }
+    @Value("${timetable.optimizer.max-iterations:200000}")
+    private int optimizerMaxIterations = 200000;
 
-                fillRemainingSlotsPlanMode(facultyDayCount, facultyBusy);
+    @Value("${timetable.optimizer.time-limit-ms:500}")
+    private long optimizerTimeLimitMs = 500;
 
-            } else {
-                // UNIFORM MODE
-                Map<String, String> facultyBySubject = new HashMap<>();
-                for (String sub : subjectNames) facultyBySubject.put(sub, "Faculty-" + sub.trim());
+    @Value("${timetable.optimizer.seed:42}")
+    private long optimizerSeed = 42;
 
-                for (String fac : facultyBySubject.values()) {
-                    facultyDayCount.putIfAbsent(fac, new HashMap<>());
-                    for (String day : days) facultyDayCount.get(fac).putIfAbsent(day, 0);
-                }
+    // book rooms from the class table when the form lists none
+    @Value("${timetable.rooms.from-class-table:false}")
+    private boolean roomsFromClassTable = false;
 
-                // Labs
-                for (String division : divisions) {
-                    for (String subject : labSubjects) {
-                        int labsToPlace = Math.max(0, totalLabs);
-                        String faculty = facultyBySubject.getOrDefault(subject, "Faculty-" + subject);
-
-                        while (labsToPlace > 0) {
-                            boolean placed = false;
-                            outer:
-                            for (String day : days) {
-                                if (divisionDayHasLab.get(division).contains(day)) continue;
-                                if (!hasCapacity(facultyDayCount, faculty, day, 2, maxLecturesPerDay)) continue;
-
-                                Map<Integer, Lecture> daySlots = timetable.get(division).get(day);
-                                for (int s = 1; s <= numSlots - 1; s++) {
-                                    if (isRecess(daySlots, s) || isRecess(daySlots, s + 1)) continue;
-                                    if (daySlots.containsKey(s) || daySlots.containsKey(s + 1)) continue;
-                                    if (isFacultyBusy(facultyBusy, day, s, faculty)) continue;
-                                    if (isFacultyBusy(facultyBusy, day, s + 1, faculty)) continue;
-
-                                    daySlots.put(s, new Lecture(subject, faculty, "Lab"));
-                                    daySlots.put(s + 1, new Lecture(subject, faculty, "Lab"));
-                                    markBusy(facultyBusy, day, s, faculty);
-                                    markBusy(facultyBusy, day, s + 1, faculty);
-                                    incrementCount(facultyDayCount, faculty, day, 2);
-                                    divisionDayHasLab.get(division).add(day);
-
-                                    placed = true;
-                                    break outer;
-                                }
-                            }
-                            if (!placed) {
-                                System.out.println("⚠️ WARN: Could not place LAB for subject " + subject + " in " + division);
-                                break;
-                            }
-                            labsToPlace--;
-                        }
-                    }
-                }
+    // Spring-wired; a TimetableService created with new (benchmarks) generates but does not save
+    private GenerationMetrics metrics = GenerationMetrics.NONE;
+    private RunRepository runRepository;
+    private ClassRoomRepository classRoomRepository;
+    private LookupIndex lookupIndex;
 
-                // Lectures
-                for (String division : divisions) {
-                    for (String subject : subjectNames) {
-                        int lecturesToPlace = Math.max(0, totalLectures);
-                        String faculty = facultyBySubject.getOrDefault(subject, "Faculty-" + subject);
-
-                        int dayStartIdx = 0;
-                        int slotStart = 1;
-
-                        while (lecturesToPlace > 0) {
-                            boolean placed = false;
-
-                            for (int d = 0; d < days.size() && !placed; d++) {
-                                String day = days.get((dayStartIdx + d) % days.size());
-                                Map<Integer, Lecture> daySlots = timetable.get(division).get(day);
-
-                                if (!hasCapacity(facultyDayCount, faculty, day, 1, maxLecturesPerDay)) continue;
-
-                                for (int s = slotStart; s <= numSlots; s++) {
-                                    if (isRecess(daySlots, s)) continue;
-                                    if (daySlots.containsKey(s)) continue;
-                                    if (isFacultyBusy(facultyBusy, day, s, faculty)) continue;
-
-                                    Lecture prev = daySlots.get(s - 1);
-                                    if (prev != null && faculty.equals(prev.getFaculty()) &&
-                                            !"RECESS".equalsIgnoreCase(prev.getSessionType())) continue;
-
-                                    daySlots.put(s, new Lecture(subject, faculty, "Lecture"));
-                                    markBusy(facultyBusy, day, s, faculty);
-                                    incrementCount(facultyDayCount, faculty, day, 1);
-
-                                    placed = true;
-                                    lecturesToPlace--;
-                                    dayStartIdx = (dayStartIdx + 1) % days.size();
-                                    slotStart = (s % numSlots) + 1;
-                                    break;
-                                }
-                            }
-                            if (!placed) {
-                                System.out.println("⚠️ WARN: Could not place LECTURE for subject " + subject + " in " + division);
-                                break;
-                            }
-                        }
-                    }
-                }
+    @Autowired(required = false)
+    public void setMetrics(GenerationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Autowired(required = false)
+    public void setLookupIndex(LookupIndex lookupIndex) {
+        this.lookupIndex = lookupIndex;
+    }
+
+    @Autowired(required = false)
+    public void setRepositories(RunRepository runRepository, ClassRoomRepository classRoomRepository) {
+        this.runRepository = runRepository;
+        this.classRoomRepository = classRoomRepository;
+    }
+
+    // --------------------------- MAIN LOGIC ---------------------------
+    /**
+     * Generates a timetable for {@code req}. Safe to call from many threads at once.
+     *
+     * @return the result, or {@code null} when the inputs are invalid or generation failed
+     */
+    public GeneratedTimetable generate(GenerationRequest req) {
+        return generate(req, GenerationListener.NONE);
+    }
+
+    /** Same as {@link #generate(GenerationRequest)}, reporting progress to {@code listener}. */
+    public GeneratedTimetable generate(GenerationRequest req, GenerationListener listener) {
+        return metrics.generation(() -> generateTimed(req, listener));
+    }
 
-                fillRemainingSlotsUniformMode(facultyDayCount, facultyBusy);
+    private GeneratedTimetable generateTimed(GenerationRequest req, GenerationListener listener) {
+        try {
+            List<String> days = req.days();
+            List<String> divisions = req.divisions();
+            int numSlots = req.numSlots();
+            if (numSlots <= 0 || days.isEmpty() || divisions.isEmpty()) {
+                System.out.println("❌ GEN FAIL — Invalid inputs: days/divisions empty or numSlots<=0");
+                return null;
             }
+            if (numSlots > OccupancyIndex.MAX_SLOTS) {
+                System.out.println("❌ GEN FAIL — numSlots=" + numSlots + " exceeds " + OccupancyIndex.MAX_SLOTS);
+                return null;
+            }
+
+            SolverProblem problem = metrics.time("init", () -> buildProblem(req));
+
+            // rooms are shared by every division, so groups are only independent without them
+            List<SolverProblem> parts = decomposeEnabled && problem.template().rooms().isEmpty()
+                    ? problem.splitByFaculty(solverPool.getParallelism())
+                    : List.of(problem);
+            Solved solved = parts.size() == 1 ? solve(problem, listener) : solveParts(problem, parts, listener);
 
             System.out.println("✅ Timetable generated successfully with " +
                     divisions.size() + " divisions and " + days.size() + " days (" + numSlots + " slots each).");
 
             System.out.println("✅ GEN OK — divisions=" + divisions.size() +
                     ", days=" + days.size() + ", numSlots=" + numSlots);
-            return true;
+            return new GeneratedTimetable(solved.grid(), req.maxLecturesPerDay(), solved.unplaced(),
+                    solved.timeLimited());
 
         } catch (Exception e) {
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
-    // --------------------------- HELPERS ---------------------------
-    private void fillRemainingSlotsPlanMode(Map<String, Map<String, Integer>> facultyDayCount, Set<String> facultyBusy) {
-        for (String division : divisions) {
-            Map<String, Map<Integer, Lecture>> divTable = timetable.get(division);
-            Map<String, SubjectPlan> subs = planByDivision.getOrDefault(division, Collections.emptyMap());
-            for (String day : days) {
-                Map<Integer, Lecture> daySlots = divTable.get(day);
-                for (int slot = 1; slot <= numSlots; slot++) {
-                    if (daySlots.containsKey(slot) || isRecess(daySlots, slot)) continue;
-
-                    for (SubjectPlan sp : subs.values()) {
-                        String faculty = sp.lectureFaculty;
-                        if (!hasCapacity(facultyDayCount, faculty, day, 1, maxLecturesPerDay)) continue;
-                        if (isFacultyBusy(facultyBusy, day, slot, faculty)) continue;
-
-                        Lecture prev = daySlots.get(slot - 1);
-                        if (prev != null && faculty.equals(prev.getFaculty()) &&
-                                !"RECESS".equalsIgnoreCase(prev.getSessionType())) continue;
-
-                        daySlots.put(slot, new Lecture(sp.subject, faculty, "Lecture"));
-                        markBusy(facultyBusy, day, slot, faculty);
-                        incrementCount(facultyDayCount, faculty, day, 1);
-                        break;
-                    }
-                }
-            }
+    /**
+     * SHA-256 (hex) of the request's canonical form plus every solver setting
+     * that shapes the result, seeds included. The canonical form keeps every
+     * order generation depends on, so generation is deterministic for equal
+     * keys unless a time limit cuts the backtracking or local search
+     * short ({@link GeneratedTimetable#timeLimited()}); {@link GenerationCache}
+     * keeps only the results no limit touched.
+     */
+    public String cacheKey(GenerationRequest req) {
+        int members = portfolioSize > 0 ? portfolioSize : solverPool.getParallelism();
+        String material = req.canonicalForm()
+                + "|solver=" + members + ',' + portfolioSeed + ',' + decomposeEnabled + ',' + solverPool.getParallelism()
+                + ',' + backtrackingEnabled + ',' + backtrackingBudgetMs
+                + ",opt=" + optimizerEnabled + ',' + optimizerMaxIterations + ',' + optimizerTimeLimitMs + ',' + optimizerSeed;
+        try {
+            byte[] digest = java.security.MessageDigest.getInstance("SHA-256")
+                    .digest(material.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
-    private void fillRemainingSlotsUniformMode(Map<String, Map<String, Integer>> facultyDayCount, Set<String> facultyBusy) {
-        Map<String, String> facultyBySubject = new HashMap<>();
-        for (String sub : subjectNames) facultyBySubject.put(sub, "Faculty-" + sub.trim());
-
-        for (String division : divisions) {
-            Map<String, Map<Integer, Lecture>> divTable = timetable.get(division);
-            for (String day : days) {
-                Map<Integer, Lecture> daySlots = divTable.get(day);
-                for (int slot = 1; slot <= numSlots; slot++) {
-                    if (daySlots.containsKey(slot) || isRecess(daySlots, slot)) continue;
-
-                    for (String subject : subjectNames) {
-                        String faculty = facultyBySubject.get(subject);
-                        if (!hasCapacity(facultyDayCount, faculty, day, 1, maxLecturesPerDay)) continue;
-                        if (isFacultyBusy(facultyBusy, day, slot, faculty)) continue;
-
-                        Lecture prev = daySlots.get(slot - 1);
-                        if (prev != null && faculty.equals(prev.getFaculty()) &&
-                                !"RECESS".equalsIgnoreCase(prev.getSessionType())) continue;
-
-                        daySlots.put(slot, new Lecture(subject, faculty, "Lecture"));
-                        markBusy(facultyBusy, day, slot, faculty);
-                        incrementCount(facultyDayCount, faculty, day, 1);
-                        break;
-                    }
-                }
+    private record Solved(TimetableGrid grid, int unplaced, boolean timeLimited) {}
+
+    /** Full pipeline for one (sub-)problem: greedy/portfolio, backtracking fallback, fill, local search. */
+    private Solved solve(SolverProblem problem, GenerationListener listener) throws InterruptedException {
+        GreedySolver greedy = new GreedySolver(listener);
+
+        SolverState state;
+        int unplaced;
+        int[] filledShortfall = null; // set while state is a portfolio member's, already filled
+        boolean timeLimited = false;
+        int members = portfolioSize > 0 ? portfolioSize : solverPool.getParallelism();
+        if (members > 1) {
+            long t0 = System.currentTimeMillis();
+            PortfolioSolver.Result best = new PortfolioSolver(solverPool).solve(problem, members, portfolioSeed, listener);
+            System.out.println("🎲 Portfolio: best of " + members + " greedy runs is #" + best.member
+                    + " (unplaced=" + best.unplaced + ", gaps=" + best.gaps + ", "
+                    + (System.currentTimeMillis() - t0) + " ms)");
+            state = best.state;
+            unplaced = best.unplaced;
+            filledShortfall = best.shortfall;
+            best.stats.forEach(metrics::record);
+        } else {
+            state = problem.newState();
+            unplaced = greedy.solve(problem, state);
+        }
+
+        if (unplaced > 0 && backtrackingEnabled) {
+            System.out.println("🔁 Greedy left " + unplaced + " units unplaced, trying backtracking (budget "
+                    + backtrackingBudgetMs + " ms)");
+            listener.phase("backtracking");
+            long t0 = System.nanoTime();
+            SolverState retry = problem.newState();
+            BacktrackingSolver backtracking = new BacktrackingSolver(backtrackingBudgetMs);
+            int left = backtracking.solve(problem, retry);
+            metrics.phase("backtracking", System.nanoTime() - t0);
+            timeLimited = backtracking.timedOut();
+            if (left < unplaced) {
+                state = retry;
+                unplaced = left;
+                filledShortfall = null;
             }
         }
-    }
+        if (unplaced > 0) {
+            System.out.println("⚠️ WARN: " + unplaced + " lecture/lab units could not be placed");
+            int[] missing = filledShortfall != null ? filledShortfall : problem.shortfall(state.grid);
+            metrics.unplaced(missing[0], missing[1]);
+        }
 
-    private List<String> facultiesOf(SubjectPlan sp) {
-        Set<String> s = new LinkedHashSet<>();
-        if (sp.lectureFaculty != null && !sp.lectureFaculty.isEmpty()) s.add(sp.lectureFaculty);
-        if (sp.labFaculty != null && !sp.labFaculty.isEmpty()) s.add(sp.labFaculty);
-        return new ArrayList<>(s);
+        listener.unplaced(unplaced);
+        listener.phase("fill");
+        if (filledShortfall == null) {
+            greedy.fillRemaining(problem, state);
+            metrics.record(greedy.stats());
+        }
+        if (optimizerEnabled) {
+            listener.phase("optimize");
+            SolverState filled = state;
+            LocalSearchOptimizer optimizer =
+                    new LocalSearchOptimizer(optimizerMaxIterations, optimizerTimeLimitMs, optimizerSeed);
+            state = metrics.time("optimize", () -> optimizer.optimize(problem, filled));
+            if (optimizer.timedOut()) {
+                metrics.optimizeTimeLimited();
+                timeLimited = true;
+            }
+        }
+        return new Solved(state.grid, unplaced, timeLimited);
     }
 
-    private boolean isRecess(Map<Integer, Lecture> daySlots, int slot) {
-        Lecture l = daySlots.get(slot);
-        return l != null && "RECESS".equalsIgnoreCase(l.getSessionType());
+    /**
+     * Solves faculty-disjoint groups of divisions concurrently and merges their rows.
+     * Each group runs on a virtual thread so it can block on the portfolio pool.
+     */
+    private Solved solveParts(SolverProblem problem, List<SolverProblem> parts, GenerationListener listener)
+            throws Exception {
+        System.out.println("🧩 Split " + problem.divisions().length + " divisions into " + parts.size()
+                + " groups that share no faculty");
+        List<Future<Solved>> futures = new ArrayList<>(parts.size());
+        try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (SolverProblem part : parts) futures.add(exec.submit(() -> solve(part, listener)));
+
+            TimetableGrid merged = problem.newState().grid;
+            int unplaced = 0;
+            boolean timeLimited = false;
+            for (int i = 0; i < parts.size(); i++) {
+                Solved solved = futures.get(i).get();
+                for (int div : parts.get(i).divisions()) merged.copyDivisionFrom(solved.grid(), div);
+                unplaced += solved.unplaced();
+                timeLimited |= solved.timeLimited();
+            }
+            return new Solved(merged, unplaced, timeLimited);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e.getCause() instanceof Exception ex ? ex : e;
+        }
     }
 
-    private boolean isFacultyBusy(Set<String> busy, String day, int slot, String faculty) {
-        return busy.contains(day + "#" + slot + "#" + faculty);
+    @PreDestroy
+    public void shutdownSolverPool() {
+        solverPool.shutdownNow();
     }
 
-    private void markBusy(Set<String> busy, String day, int slot, String faculty) {
-        busy.add(day + "#" + slot + "#" + faculty);
-    }
+    // --------------------------- HELPERS ---------------------------
+    /**
+     * Builds the solver input: template grid with RECESS cells, one demand line per
+     * (division, subject, lab/lecture) and the per-division fill candidates.
+     * Uniform mode is expressed as the equivalent plan with faculty "Faculty-" + subject.
+     */
+    private SolverProblem buildProblem(GenerationRequest req) {
+        int numSlots = req.numSlots();
+        List<int[]> recesses = req.recesses();
+        TimetableGrid g = new TimetableGrid(req.divisions(), req.days(), numSlots);
+        g.setRooms(Rooms.of(req.rooms(), g.divisions(), req.divisionSizes()));
+
+        // Base + RECESS initialization (every recess cell shares one Lecture)
+        for (int div = 0; div < g.divisionCount(); div++) {
+            for (int day = 0; day < g.dayCount(); day++) {
+                for (int[] r : recesses) {
+                    int start = Math.max(1, r[0]);
+                    int end = Math.min(numSlots, r[1]);
+                    for (int s = start; s <= end; s++) g.set(div, day, s, TimetableGrid.RECESS);
+                }
+            }
+        }
 
-    private void incrementCount(Map<String, Map<String, Integer>> count,
-                                String faculty, String day, int delta) {
-        count.putIfAbsent(faculty, new HashMap<>());
-        count.get(faculty).put(day, count.get(faculty).getOrDefault(day, 0) + delta);
+        SolverProblem problem = new SolverProblem(g, req.maxLecturesPerDay());
+
+        if (req.isPlanMode()) {
+            // PLAN MODE
+            for (int div = 0; div < g.divisionCount(); div++) {
+                for (SubjectPlan sp : req.planFor(g.division(div)).values()) {
+                    String faculty = (sp.labFaculty != null && !sp.labFaculty.isEmpty())
+                            ? sp.labFaculty : sp.lectureFaculty;
+                    problem.addDemand(new SolverProblem.Demand(div, sp.subject,
+                            g.lectureId(sp.subject, faculty, "Lab"), g.facultyId(faculty), true,
+                            Math.max(0, sp.labsPerWeek)));
+                }
+            }
+            for (int div = 0; div < g.divisionCount(); div++) {
+                Collection<SubjectPlan> subs = req.planFor(g.division(div)).values();
+                int[] lecIds = new int[subs.size()];
+                int[] facIds = new int[subs.size()];
+                int i = 0;
+                for (SubjectPlan sp : subs) {
+                    lecIds[i] = g.lectureId(sp.subject, sp.lectureFaculty, "Lecture");
+                    facIds[i] = g.facultyId(sp.lectureFaculty);
+                    problem.addDemand(new SolverProblem.Demand(div, sp.subject, lecIds[i], facIds[i], false,
+                            Math.max(0, sp.lecturesPerWeek)));
+                    i++;
+                }
+                problem.setFillCandidates(div, lecIds, facIds);
+            }
+        } else {
+            // UNIFORM MODE
+            List<String> subjectNames = req.subjectNames();
+            int[] lecIds = new int[subjectNames.size()];
+            int[] facIds = new int[subjectNames.size()];
+            for (int i = 0; i < subjectNames.size(); i++) {
+                String subject = subjectNames.get(i);
+                String faculty = "Faculty-" + subject.trim();
+                lecIds[i] = g.lectureId(subject, faculty, "Lecture");
+                facIds[i] = g.facultyId(faculty);
+            }
+            for (int div = 0; div < g.divisionCount(); div++) {
+                for (String subject : req.labSubjects()) {
+                    String faculty = "Faculty-" + subject.trim();
+                    problem.addDemand(new SolverProblem.Demand(div, subject,
+                            g.lectureId(subject, faculty, "Lab"), g.facultyId(faculty), true, Math.max(0, req.totalLabs())));
+                }
+            }
+            for (int div = 0; div < g.divisionCount(); div++) {
+                for (int i = 0; i < subjectNames.size(); i++) {
+                    problem.addDemand(new SolverProblem.Demand(div, subjectNames.get(i), lecIds[i], facIds[i], false,
+                            Math.max(0, req.totalLectures())));
+                }
+                problem.setFillCandidates(div, lecIds, facIds);
+            }
+        }
+        return problem;
     }
 
-    private boolean hasCapacity(Map<String, Map<String, Integer>> facultyDayCount,
-                                String faculty, String day, int needSlotsToday, int maxPerDay) {
-        int used = facultyDayCount.getOrDefault(faculty, Collections.emptyMap()).getOrDefault(day, 0);
-        return used + needSlotsToday <= maxPerDay;
+    // --------------------------- ROOMS ---------------------------
+    /** {@code req} with the class table's rooms when it has none and that is enabled; {@code req} otherwise. */
+    public GenerationRequest withDefaultRooms(GenerationRequest req) {
+        if (!roomsFromClassTable || !req.rooms().isEmpty()) return req;
+        List<Rooms.Room> rooms = loadClassRooms();
+        return rooms.isEmpty() ? req : req.withRooms(rooms, req.divisionSizes());
     }
 
-    // --------------------------- DATABASE SAVE ---------------------------
-    /** Convenience: auto create run/version if caller forgets. */
-    public boolean saveToDatabase() {
-        UUID runId = java.util.UUID.randomUUID();
-        int version = 1;
-        try (Connection c = DBConnection.getConnection();
-             PreparedStatement ps = c.prepareStatement("SELECT COALESCE(MAX(version),0)+1 FROM allocation")) {
-            try (java.sql.ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) version = rs.getInt(1);
-            }
-        } catch (Exception ignore) {}
-        String runName = "Run " + java.time.LocalDateTime.now();
-        return saveToDatabase(runId, version, runName);
+    /** Rooms of the class table (room_type 'LAB' = lab room, capacity 0 = unknown); empty if unreachable. */
+    public List<Rooms.Room> loadClassRooms() {
+        if (classRoomRepository == null) return List.of();
+        try {
+            return classRoomRepository.findAll();
+        } catch (Exception e) {
+            System.out.println("⚠️ Could not load rooms from class table, rooms not scheduled: " + e.getMessage());
+            return List.of();
+        }
     }
 
-    /** New: writes run_meta then rows with run_id/version. */
-    public boolean saveToDatabase(java.util.UUID runId, int version, String runName) {
+    // --------------------------- DATABASE SAVE ---------------------------
+    /**
+     * Saves {@code timetable} as a new run, numbered with the next free version in the
+     * same transaction.
+     *
+     * @return the version, or 0 when nothing was saved
+     */
+    public int save(GeneratedTimetable timetable, java.util.UUID runId, String runName) {
         if (timetable == null || timetable.isEmpty()) {
             System.out.println("⚠️ No timetable data to save.");
-            return false;
+            return 0;
         }
+        int[] versions = saveAll(List.of(timetable), List.of(runId), Collections.singletonList(runName));
+        return versions == null ? 0 : versions[0];
+    }
 
-        Connection conn = null;
+    /**
+     * Saves several timetables in one transaction, numbered with consecutive versions
+     * from the next free one. Empty timetables are skipped (version 0).
+     *
+     * @return the version of each timetable, or null when the transaction failed
+     */
+    public int[] saveAll(List<GeneratedTimetable> timetables, List<java.util.UUID> runIds, List<String> runNames) {
+        if (runRepository == null) {
+            System.out.println("⚠️ No database configured, timetables not saved.");
+            return null;
+        }
+        List<TimetableGrid> grids = new ArrayList<>(timetables.size());
+        for (GeneratedTimetable t : timetables) grids.add(t == null ? null : t.grid());
+        long t0 = System.nanoTime();
         try {
-            conn = DBConnection.getConnection();
-            conn.setAutoCommit(false);
-
-            // 1) ensure run_meta
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO run_meta(run_id, run_name) VALUES(?, ?) ON CONFLICT (run_id) DO NOTHING")) {
-                ps.setObject(1, runId);
-                ps.setString(2, runName != null ? runName : ("Run " + java.time.LocalDateTime.now()));
-                ps.executeUpdate();
+            int[] versions = runRepository.insertRuns(grids, runIds, runNames);
+            metrics.phase("save", System.nanoTime() - t0);
+            if (lookupIndex != null) {
+                // the newest of these is now the published run
+                int newest = 0;
+                for (int i = 1; i < versions.length; i++) if (versions[i] > versions[newest]) newest = i;
+                if (versions[newest] > 0) lookupIndex.publish(runIds.get(newest), versions[newest], grids.get(newest));
             }
-
-            // 2) insert allocations
-            String sql = "INSERT INTO allocation " +
-                    "(divisionname, semesternumber, subjectname, facultyname, classname, dayname, slotno, session_type, generated_at, run_id, version) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, now(), ?, ?)";
-
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                for (String division : timetable.keySet()) {
-                    Map<String, Map<Integer, Lecture>> divTable = timetable.get(division);
-                    for (String day : divTable.keySet()) {
-                        Map<Integer, Lecture> daySlots = divTable.get(day);
-                        for (Map.Entry<Integer, Lecture> e : daySlots.entrySet()) {
-                            int slot = e.getKey();
-                            Lecture lec = e.getValue();
-
-                            pstmt.setString(1, division);
-                            pstmt.setInt(2, 1); // semester (keep 1 by default or wire later)
-                            pstmt.setString(3, Optional.ofNullable(lec.getSubject()).orElse("---"));
-                            pstmt.setString(4, Optional.ofNullable(lec.getFaculty()).orElse("---"));
-                            pstmt.setString(5, "Classroom 1"); // classroom (keep default)
-                            pstmt.setString(6, day);
-                            pstmt.setInt(7, slot);
-                            pstmt.setString(8, lec.getSessionType());
-                            pstmt.setObject(9, runId);
-                            pstmt.setInt(10, version);
-                            pstmt.addBatch();
-                        }
-                    }
-                }
-                pstmt.executeBatch();
+            if (timetables.size() == 1) {
+                System.out.println("✅ Timetable saved to PostgreSQL with run " + runIds.get(0) + " (v" + versions[0] + ")");
+            } else {
+                System.out.println("✅ Saved " + timetables.size() + " timetables to PostgreSQL in one transaction");
             }
-
-            conn.commit();
-            System.out.println("✅ Timetable saved to PostgreSQL with run " + runId + " (v" + version + ")");
-            return true;
-
+            return versions;
         } catch (Exception e) {
             e.printStackTrace();
-            try { if (conn != null) conn.rollback(); } catch (Exception ignore) {}
-            return false;
-        } finally {
-            try { if (conn != null) conn.setAutoCommit(true); conn.close(); } catch (Exception ignore) {}
-        }
-    }
-
-    public Map<String, Map<String, Map<Integer, Lecture>>> getTimetable() {
-        if (timetable == null || timetable.isEmpty()) {
-            System.out.println("⚠️ Timetable is empty or null at getTimetable()");
-            return Collections.emptyMap();
+            return null;
         }
-        return timetable;
     }
 }
@@ -0,0 +1,12 @@
+package com.example.timetablegenerator.service;
+
+/**
+ * A placement engine: puts the demand of a {@link SolverProblem} into a
+ * {@link SolverState} (labs as 2-slot blocks, lectures as single slots).
+ * Filling the leftover free cells is not part of a solver's job.
+ */
+public interface TimetableSolver {
+
+    /** @return number of demand units (lectures + labs) left unplaced */
+    int solve(SolverProblem problem, SolverState state);
+}
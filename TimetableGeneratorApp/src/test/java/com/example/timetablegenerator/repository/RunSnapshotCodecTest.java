@@ -0,0 +1,129 @@
+package com.example.timetablegenerator.repository;
+
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
+import com.example.timetablegenerator.service.Rooms;
+import com.example.timetablegenerator.service.TimetableGrid;
+import com.example.timetablegenerator.service.TimetableService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunSnapshotCodecTest {
+
+    // by code point "Ａ" (U+FF21) comes before "𝔸" (U+1D538); String.compareTo (UTF-16 units) has it after
+    private static final List<String> DIVISIONS = List.of("𝔸 Div", "Ａ Div", "B", "A😀");
+    private static final List<String> DAYS = List.of("Wed", "Mon", "📅 Sat");
+    private static final int SLOTS = 63;
+
+    /** Every division: a lab in slots 1-2, a lecture in odd slots from 5, recess in slot 4, slot 63 taken. */
+    private static TimetableGrid grid() {
+        TimetableGrid g = new TimetableGrid(DIVISIONS, DAYS, SLOTS);
+        g.setRooms(Rooms.of(List.of(new Rooms.Room("Room 🏫", false, 60), new Rooms.Room("Lab 1", true, 30)),
+                DIVISIONS, Map.of()));
+        int lab = g.lectureId("Networks 𝐍", "Dr. 𐌀", "Lab");
+        int lecture = g.lectureId("Maths", "Prof. Z", "Lecture");
+        int noFaculty = g.lectureId("Sports", null, "Lecture");
+        int labRoom = g.rooms().idOf("Lab 1");
+        int room = g.rooms().idOf("Room 🏫");
+        for (int div = 0; div < g.divisionCount(); div++) {
+            for (int d = 0; d < g.dayCount(); d++) {
+                g.set(div, d, 1, lab);
+                g.set(div, d, 2, lab);
+                g.setRoom(div, d, 1, labRoom);
+                g.setRoom(div, d, 2, labRoom);
+                g.set(div, d, 4, TimetableGrid.RECESS);
+                for (int s = 5; s < SLOTS; s += 2) {
+                    g.set(div, d, s, lecture);
+                    if (s % 3 == 0) g.setRoom(div, d, s, room); // the others keep the default class name
+                }
+                g.set(div, d, SLOTS, noFaculty);
+            }
+        }
+        return g;
+    }
+
+    /** The rows the grid would be saved as, in cursor order. */
+    private static List<AllocationRow> expectedRows(TimetableGrid g) {
+        List<AllocationRow> rows = new ArrayList<>();
+        for (int div = 0; div < g.divisionCount(); div++) {
+            for (int d = 0; d < g.dayCount(); d++) {
+                for (int s = 1; s <= g.numSlots(); s++) {
+                    if (g.isFree(div, d, s)) continue;
+                    TimetableService.Lecture lec = g.lecture(g.get(div, d, s));
+                    AllocationRow r = new AllocationRow();
+                    r.divisionname = g.division(div);
+                    r.dayname = g.day(d);
+                    r.slotno = s;
+                    r.subjectname = lec.getSubject() != null ? lec.getSubject() : "---";
+                    r.facultyname = lec.getFaculty() != null ? lec.getFaculty() : "---";
+                    String room = g.roomName(div, d, s);
+                    r.classname = room != null ? room : TimetableService.DEFAULT_CLASSNAME;
+                    r.session_type = lec.getSessionType();
+                    r.semesternumber = 1;
+                    rows.add(r);
+                }
+            }
+        }
+        rows.sort(Comparator.comparing((AllocationRow r) -> r.divisionname, RunRepository.NAME_ORDER)
+                .thenComparing(r -> r.dayname, RunRepository.NAME_ORDER)
+                .thenComparingInt(r -> r.slotno));
+        return rows;
+    }
+
+    private static void assertSameRows(List<AllocationRow> expected, List<AllocationRow> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            AllocationRow e = expected.get(i), a = actual.get(i);
+            String at = "row " + i + " (" + e.divisionname + ", " + e.dayname + ", " + e.slotno + ")";
+            assertEquals(e.divisionname, a.divisionname, at);
+            assertEquals(e.dayname, a.dayname, at);
+            assertEquals(e.slotno, a.slotno, at);
+            assertEquals(e.subjectname, a.subjectname, at);
+            assertEquals(e.facultyname, a.facultyname, at);
+            assertEquals(e.classname, a.classname, at);
+            assertEquals(e.session_type, a.session_type, at);
+            assertEquals(e.semesternumber, a.semesternumber, at);
+        }
+    }
+
+    @Test
+    void decodeReturnsTheEncodedRowsInNameOrder() throws Exception {
+        TimetableGrid g = grid();
+        RunSnapshotCodec.Snapshot snapshot = RunSnapshotCodec.encode(g);
+        List<AllocationRow> expected = expectedRows(g);
+        assertEquals(expected.size(), snapshot.rows());
+
+        RunSnapshotCodec.Run run = RunSnapshotCodec.read(snapshot.payload());
+        assertEquals(DIVISIONS, run.divisions());
+        assertEquals(DAYS, run.days());
+        assertSameRows(expected, run.rows());
+        assertSameRows(expected, RunSnapshotCodec.decode(snapshot.payload()));
+
+        AllocationRow first = run.rows().get(0);
+        assertEquals("A😀", first.divisionname);
+        assertEquals("Mon", first.dayname);
+        assertEquals("𝔸 Div", run.rows().get(run.rows().size() - 1).divisionname);
+    }
+
+    @Test
+    void cursorReturnsTheSameRowsAsDecode() throws Exception {
+        byte[] payload = RunSnapshotCodec.encode(grid()).payload();
+        List<AllocationRow> streamed = new ArrayList<>();
+        try (RunSnapshotCodec.Cursor cursor = new RunSnapshotCodec.Cursor(payload)) {
+            for (AllocationRow r = cursor.next(); r != null; r = cursor.next()) streamed.add(r);
+        }
+        assertSameRows(RunSnapshotCodec.decode(payload), streamed);
+    }
+
+    @Test
+    void rejectsAPayloadWithoutTheHeader() {
+        byte[] payload = RunSnapshotCodec.encode(grid()).payload();
+        payload[0] = 'X';
+        assertThrows(java.io.IOException.class, () -> RunSnapshotCodec.decode(payload));
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.SolverProblem.Demand;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BacktrackingSolverTest {
+
+    private static final long BUDGET_MS = 60_000;
+
+    /** Grid of {@code divisions} divisions named D0, D1, … over {@code days} days. */
+    private static TimetableGrid grid(int divisions, List<String> days, int numSlots) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < divisions; i++) names.add("D" + i);
+        return new TimetableGrid(names, days, numSlots);
+    }
+
+    private static Demand lectures(TimetableGrid g, int div, String subject, String faculty, int count) {
+        return new Demand(div, subject, g.lectureId(subject, faculty, "Lecture"), g.facultyId(faculty), false, count);
+    }
+
+    private static Demand labs(TimetableGrid g, int div, String subject, String faculty, int count) {
+        return new Demand(div, subject, g.lectureId(subject, faculty, "Lab"), g.facultyId(faculty), true, count);
+    }
+
+    /** Units of {@code problem} present in {@code grid} (a lab fills two cells). */
+    private static int placed(SolverProblem problem, TimetableGrid grid) {
+        int units = 0;
+        for (Demand dm : problem.demands()) {
+            int cells = 0;
+            for (int d = 0; d < grid.dayCount(); d++) {
+                for (int s = 1; s <= grid.numSlots(); s++) if (grid.get(dm.division, d, s) == dm.lectureId) cells++;
+            }
+            units += dm.lab ? cells / 2 : cells;
+        }
+        return units;
+    }
+
+    @Test
+    void placesTheMostConstrainedLineFirst() {
+        // day 0 has a recess in the middle, so the lab only fits on day 1; the lectures fill what is left exactly
+        TimetableGrid g = grid(1, List.of("Mon", "Tue"), 3);
+        g.set(0, 0, 2, TimetableGrid.RECESS);
+        SolverProblem problem = new SolverProblem(g, 3);
+        problem.addDemand(lectures(g, 0, "Maths", "X", 1));
+        problem.addDemand(lectures(g, 0, "Physics", "Y", 1));
+        problem.addDemand(lectures(g, 0, "Chemistry", "Z", 1));
+        Demand lab = labs(g, 0, "Networks", "W", 1);
+        problem.addDemand(lab);
+
+        SolverState state = problem.newState();
+        assertEquals(0, new BacktrackingSolver(BUDGET_MS).solve(problem, state));
+        assertEquals(problem.totalUnits(), placed(problem, state.grid));
+        int labCells = 0;
+        for (int s = 1; s <= 3; s++) if (state.grid.get(0, 1, s) == lab.lectureId) labCells++;
+        assertEquals(2, labCells, "the lab must take two adjacent cells of Tue");
+    }
+
+    @Test
+    void forwardCheckingKeepsFacultyWithinDailyLoad() {
+        // F teaches both divisions but may give only one lecture a day
+        TimetableGrid g = grid(2, List.of("Mon", "Tue"), 2);
+        SolverProblem problem = new SolverProblem(g, 1);
+        problem.addDemand(lectures(g, 0, "Maths", "F", 1));
+        problem.addDemand(lectures(g, 1, "Maths", "F", 1));
+        problem.addDemand(lectures(g, 0, "Physics", "P", 2));
+        problem.addDemand(lectures(g, 1, "Physics", "Q", 2));
+
+        SolverState state = problem.newState();
+        assertEquals(0, new BacktrackingSolver(BUDGET_MS).solve(problem, state));
+        int f = g.facultyId("F");
+        for (int d = 0; d < 2; d++) {
+            int load = 0;
+            for (int div = 0; div < 2; div++) {
+                for (int s = 1; s <= 2; s++) if (state.grid.facultyAt(div, d, s) == f) load++;
+            }
+            assertTrue(load <= 1, "F has " + load + " lectures on day " + d);
+        }
+    }
+
+    /**
+     * Division 0 cannot hold three lectures of F in three slots (no back-to-back),
+     * which only shows once its lines are opened, after every other division is placed.
+     * Those divisions share nothing with it, so the search must jump past them instead
+     * of trying their 2^40 arrangements, and keeps them as its partial assignment.
+     */
+    private static SolverProblem deadEndAfterIndependentDivisions(TimetableGrid g, int others) {
+        for (int v = 1; v <= others; v++) g.set(v, 0, 2, TimetableGrid.RECESS);
+        SolverProblem problem = new SolverProblem(g, 3);
+        for (int v = 1; v <= others; v++) {
+            problem.addDemand(lectures(g, v, "Maths", "M" + v, 1));
+            problem.addDemand(lectures(g, v, "Physics", "P" + v, 1));
+        }
+        problem.addDemand(lectures(g, 0, "Maths", "F", 2));
+        problem.addDemand(lectures(g, 0, "Physics", "F", 1));
+        return problem;
+    }
+
+    @Test
+    void backjumpsOverUnrelatedPlacementsAndKeepsTheBestPartialAssignment() {
+        int others = 40;
+        TimetableGrid g = grid(others + 1, List.of("Mon"), 3);
+        SolverProblem problem = deadEndAfterIndependentDivisions(g, others);
+
+        SolverState state = problem.newState();
+        long t0 = System.nanoTime();
+        int unplaced = new BacktrackingSolver(BUDGET_MS).solve(problem, state);
+        long ms = (System.nanoTime() - t0) / 1_000_000L;
+
+        assertTrue(ms < 5_000, "search took " + ms + " ms");
+        assertEquals(2, unplaced);
+        assertEquals(problem.totalUnits() - unplaced, placed(problem, state.grid));
+        for (int v = 1; v <= others; v++) {
+            assertFalse(state.grid.isFree(v, 0, 1), "division " + v + " slot 1");
+            assertFalse(state.grid.isFree(v, 0, 3), "division " + v + " slot 3");
+        }
+    }
+
+    @Test
+    void stopsAtTheTimeBudgetWithAPartialAssignment() {
+        int others = 400;
+        TimetableGrid g = grid(others + 1, List.of("Mon"), 3);
+        SolverProblem problem = deadEndAfterIndependentDivisions(g, others);
+
+        SolverState state = problem.newState();
+        int unplaced = new BacktrackingSolver(0).solve(problem, state);
+
+        // the deadline is checked every 256 nodes, long before the 800 independent units are placed
+        assertTrue(unplaced > 2 && unplaced < problem.totalUnits(), "unplaced=" + unplaced);
+        assertEquals(problem.totalUnits() - unplaced, placed(problem, state.grid));
+    }
+
+    @Test
+    void infeasibleDemandLeavesTheStateEmpty() {
+        TimetableGrid g = grid(1, List.of("Mon"), 2);
+        SolverProblem problem = new SolverProblem(g, 3);
+        problem.addDemand(lectures(g, 0, "Maths", "X", 3));
+
+        SolverState state = problem.newState();
+        assertEquals(3, new BacktrackingSolver(BUDGET_MS).solve(problem, state));
+        assertEquals(0, placed(problem, state.grid));
+    }
+}
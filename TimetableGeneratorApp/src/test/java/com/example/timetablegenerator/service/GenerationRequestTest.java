@@ -0,0 +1,56 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.TimetableService.SubjectPlan;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationRequestTest {
+
+    private static final List<String> DAYS = List.of("Mon", "Tue");
+
+    private static SubjectPlan plan(String subject, String faculty) {
+        SubjectPlan sp = new SubjectPlan();
+        sp.subject = subject;
+        sp.lecturesPerWeek = 2;
+        sp.lectureFaculty = faculty;
+        return sp;
+    }
+
+    private static GenerationRequest request(List<String> subjects, List<int[]> recesses) {
+        Map<String, SubjectPlan> bySubject = new LinkedHashMap<>();
+        for (String s : subjects) bySubject.put(s, plan(s, "F-" + s));
+        return GenerationRequest.withPlan(DAYS, 4, List.of("A"), recesses, 2, Map.of("A", bySubject));
+    }
+
+    @Test
+    void keepsThePlanRowOrderGenerationPlacesThemIn() {
+        List<int[]> recess = List.<int[]>of(new int[]{3, 3});
+        String ab = request(List.of("Maths", "Physics"), recess).canonicalForm();
+        assertEquals(ab, request(List.of("Maths", "Physics"), recess).canonicalForm());
+        assertNotEquals(ab, request(List.of("Physics", "Maths"), recess).canonicalForm());
+    }
+
+    @Test
+    void ignoresTheOrderOfRecesses() {
+        List<String> subjects = List.of("Maths");
+        assertEquals(request(subjects, List.of(new int[]{1, 1}, new int[]{3, 4})).canonicalForm(),
+                request(subjects, List.of(new int[]{4, 3}, new int[]{1, 1})).canonicalForm());
+    }
+
+    @Test
+    void keepsTheUniformSubjectOrderAndNamesAsGiven() {
+        GenerationRequest a = GenerationRequest.uniform(DAYS, 4, List.of("A"), List.of("Maths", "Physics"),
+                List.of(), List.of(), 2, 2, 0);
+        GenerationRequest b = GenerationRequest.uniform(DAYS, 4, List.of("A"), List.of("Physics", "Maths"),
+                List.of(), List.of(), 2, 2, 0);
+        GenerationRequest c = GenerationRequest.uniform(DAYS, 4, List.of("A"), List.of("Maths ", "Physics"),
+                List.of(), List.of(), 2, 2, 0);
+        assertNotEquals(a.canonicalForm(), b.canonicalForm());
+        assertNotEquals(a.canonicalForm(), c.canonicalForm());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LookupIndexTest {
+
+    @Test
+    void remembersThatNoRunIsSavedUntilOneIsPublished() throws Exception {
+        RunRepository repository = mock(RunRepository.class);
+        when(repository.listRuns(any(), any(), any(), anyInt())).thenReturn(List.of());
+        LookupIndex index = new LookupIndex(repository, mock(RunDataCache.class), 4, 30);
+
+        assertNull(index.published());
+        assertNull(index.published());
+        verify(repository, times(1)).listRuns(any(), any(), any(), anyInt());
+
+        TimetableGrid g = new TimetableGrid(List.of("A"), List.of("Mon"), 2);
+        g.set(0, 0, 1, g.lectureId("Maths", "F1", "Lecture"));
+        UUID runId = UUID.randomUUID();
+        index.publish(runId, 1, g);
+
+        LookupIndex.Index published = index.published();
+        assertNotNull(published);
+        assertEquals(runId, published.runId);
+        verify(repository, times(1)).listRuns(any(), any(), any(), anyInt());
+    }
+}
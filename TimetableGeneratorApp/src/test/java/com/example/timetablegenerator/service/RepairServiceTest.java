@@ -0,0 +1,111 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository;
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
+import com.example.timetablegenerator.service.TimetableRepairer.Change;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RepairServiceTest {
+
+    private static AllocationRow row(String division, String day, int slot,
+                                     String subject, String faculty, String room, String type) {
+        AllocationRow r = new AllocationRow();
+        r.divisionname = division;
+        r.dayname = day;
+        r.slotno = slot;
+        r.subjectname = subject;
+        r.facultyname = faculty;
+        r.classname = room;
+        r.session_type = type;
+        r.semesternumber = 1;
+        return r;
+    }
+
+    /** Three divisions sharing halls R1 and R2 and one lab room; on Tue slot 3 both halls are taken. */
+    private static List<AllocationRow> savedRun() {
+        List<AllocationRow> rows = new ArrayList<>();
+        rows.add(row("A", "Mon", 1, "Maths", "F1", "R1", "Lecture"));
+        rows.add(row("A", "Mon", 2, "Physics", "F2", "R1", "Lecture"));
+        rows.add(row("A", "Mon", 3, "Chemistry", "F3", "R1", "Lecture"));
+        rows.add(row("A", "Tue", 1, "Networks", "L1", "Lab 1", "Lab"));
+        rows.add(row("A", "Tue", 2, "Networks", "L1", "Lab 1", "Lab"));
+        rows.add(row("B", "Mon", 1, "Maths", "F5", "R2", "Lecture"));
+        rows.add(row("B", "Mon", 2, "Biology", "F4", "R2", "Lecture"));
+        rows.add(row("B", "Tue", 1, "Chemistry", "F3", "R1", "Lecture"));
+        rows.add(row("B", "Tue", 2, "---", "---", TimetableService.DEFAULT_CLASSNAME, "RECESS"));
+        rows.add(row("B", "Tue", 3, "Physics", "F2", "R1", "Lecture"));
+        rows.add(row("C", "Mon", 3, "Biology", "F4", "R2", "Lecture"));
+        rows.add(row("C", "Tue", 3, "Maths", "F5", "R2", "Lecture"));
+        return rows;
+    }
+
+    @Test
+    void repairingASavedRunKeepsItsRoomsBooked() {
+        UUID baseRunId = UUID.randomUUID();
+        List<AllocationRow> saved = savedRun();
+        HistoryService history = mock(HistoryService.class);
+        when(history.getRun(baseRunId)).thenReturn(saved);
+        RunRepository repository = mock(RunRepository.class);
+        when(repository.writesSnapshots()).thenReturn(true);
+        TimetableService timetableService = mock(TimetableService.class);
+        when(timetableService.save(any(), any(), any())).thenReturn(2);
+        RepairService service = new RepairService(timetableService, history, new RecentTimetables(4), repository);
+
+        RepairService.RepairRequest req = new RepairService.RepairRequest();
+        req.runId = baseRunId;
+        req.maxLecturesPerDay = 3;
+        RepairService.Unavailable u = new RepairService.Unavailable();
+        u.faculty = "F1";
+        u.day = "Mon";
+        req.unavailable.add(u);
+        RepairService.RepairResult res = service.repair(req);
+
+        assertTrue(res.saved);
+        assertFalse(res.changes.isEmpty());
+        for (Change c : res.changes) {
+            if (c.after != null) assertNotNull(c.room, c.division + " " + c.day + " S" + c.slot + " has no room");
+        }
+
+        ArgumentCaptor<GeneratedTimetable> captor = ArgumentCaptor.forClass(GeneratedTimetable.class);
+        verify(timetableService).save(captor.capture(), eq(res.runId), any());
+        TimetableGrid g = captor.getValue().grid();
+        assertNotEquals("F1", g.lecture(g.get(g.divisionId("A"), g.dayId("Mon"), 1)).getFaculty());
+
+        Map<String, String> booked = new HashMap<>(); // room@day@slot -> division
+        for (int div = 0; div < g.divisionCount(); div++) {
+            for (int d = 0; d < g.dayCount(); d++) {
+                for (int s = 1; s <= g.numSlots(); s++) {
+                    if (g.get(div, d, s) <= TimetableGrid.RECESS) continue;
+                    String at = g.division(div) + " " + g.day(d) + " S" + s;
+                    String room = g.roomName(div, d, s);
+                    assertNotNull(room, at + " has no room");
+                    String other = booked.put(room + "@" + d + "@" + s, g.division(div));
+                    assertNull(other, at + " double-books " + room);
+                }
+            }
+        }
+        // cells the repair did not touch keep the rooms they were saved with
+        for (AllocationRow r : saved) {
+            if ("RECESS".equals(r.session_type)) continue;
+            boolean changed = res.changes.stream().anyMatch(c -> c.division.equals(r.divisionname)
+                    && c.day.equals(r.dayname) && c.slot == r.slotno);
+            if (!changed) {
+                assertEquals(r.classname, g.roomName(g.divisionId(r.divisionname), g.dayId(r.dayname), r.slotno));
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository;
+import com.example.timetablegenerator.repository.RunRepository.AllocationRow;
+import com.example.timetablegenerator.repository.RunRepository.RowCursor;
+import com.example.timetablegenerator.service.RunDiffService.CellChange;
+import com.example.timetablegenerator.service.RunDiffService.FacultyMoves;
+import com.example.timetablegenerator.service.RunDiffService.Summary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RunDiffServiceTest {
+
+    private static final UUID BEFORE = UUID.randomUUID();
+    private static final UUID AFTER = UUID.randomUUID();
+    private static final UUID EMPTY = UUID.randomUUID();
+
+    private RunDiffService service;
+
+    private static AllocationRow row(String division, String day, int slot,
+                                     String subject, String faculty, String room, String type) {
+        AllocationRow r = new AllocationRow();
+        r.divisionname = division;
+        r.dayname = day;
+        r.slotno = slot;
+        r.subjectname = subject;
+        r.facultyname = faculty;
+        r.classname = room;
+        r.session_type = type;
+        r.semesternumber = 1;
+        return r;
+    }
+
+    private static RowCursor cursor(List<AllocationRow> rows) {
+        Iterator<AllocationRow> it = rows.iterator();
+        return new RowCursor() {
+            @Override
+            public AllocationRow next() {
+                return it.hasNext() ? it.next() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static List<AllocationRow> beforeRows() {
+        return List.of(
+                row("D1", "Mon", 1, "Maths", "F1", "R1", "Lecture"),
+                row("D1", "Mon", 2, "Physics", "F2", "R1", "Lecture"),
+                row("D1", "Mon", 3, "Chemistry", "F3", "R1", "Lecture"),
+                row("D1", "Tue", 1, "Maths", "F1", "R1", "Lecture"),
+                row("D2", "Mon", 1, "Maths", "F1", "R1", "Lecture"),
+                row("D2", "Mon", 2, "---", "---", "---", "RECESS"));
+    }
+
+    private static List<AllocationRow> afterRows() {
+        return List.of(
+                row("D1", "Mon", 1, "Maths", "F1", "R1", "Lecture"),     // unchanged
+                row("D1", "Mon", 2, "Physics", "F2", "R2", "Lecture"),   // room only
+                row("D1", "Tue", 1, "Biology", "F4", "R1", "Lecture"),   // another class
+                row("D1", "Tue", 2, "Chemistry", "F3", "R1", "Lecture"), // Mon 3 moved here
+                row("D2", "Mon", 1, "Maths", "F1", "Lab 1", "Lab"),      // type and room only
+                row("D2", "Mon", 2, "---", "---", "---", "RECESS"));
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        RunRepository repository = mock(RunRepository.class);
+        when(repository.openRun(BEFORE)).thenAnswer(inv -> cursor(beforeRows()));
+        when(repository.openRun(AFTER)).thenAnswer(inv -> cursor(afterRows()));
+        when(repository.openRun(EMPTY)).thenAnswer(inv -> cursor(List.of()));
+        service = new RunDiffService(repository);
+    }
+
+    private static FacultyMoves faculty(Summary summary, String name) {
+        return summary.faculty.stream().filter(f -> f.faculty.equals(name)).findFirst().orElse(null);
+    }
+
+    @Test
+    void mergesTwoRunsCellByCell() throws Exception {
+        List<CellChange> changes = new ArrayList<>();
+        Summary summary = service.diff(BEFORE, AFTER, changes::add);
+
+        assertEquals(2, summary.unchanged);
+        assertEquals(3, summary.changed);
+        assertEquals(1, summary.added);
+        assertEquals(1, summary.removed);
+
+        List<String> seen = changes.stream()
+                .map(c -> c.division + " " + c.day + " " + c.slot + " " + c.change).toList();
+        assertEquals(List.of("D1 Mon 2 changed", "D1 Mon 3 removed", "D1 Tue 1 changed",
+                "D1 Tue 2 added", "D2 Mon 1 changed"), seen);
+        assertNull(changes.get(1).after);
+        assertNull(changes.get(3).before);
+        assertEquals("R1", changes.get(0).before.room);
+        assertEquals("R2", changes.get(0).after.room);
+
+        FacultyMoves f1 = faculty(summary, "F1");
+        assertEquals(0, f1.moved);
+        assertEquals(1, f1.removed, "only Tue 1 lost F1 a class; D2's room and type change is not counted");
+        assertEquals(0, f1.added);
+        assertNull(faculty(summary, "F2"), "a room-only change is not a move");
+        FacultyMoves f3 = faculty(summary, "F3");
+        assertEquals(1, f3.moved);
+        assertEquals(0, f3.added + f3.removed);
+        FacultyMoves f4 = faculty(summary, "F4");
+        assertEquals(1, f4.added);
+        assertEquals(3, summary.faculty.size());
+    }
+
+    @Test
+    void comparesWithAnEmptyRun() throws Exception {
+        List<CellChange> changes = new ArrayList<>();
+        Summary removed = service.diff(BEFORE, EMPTY, changes::add);
+        assertEquals(6, removed.removed);
+        assertEquals(0, removed.added + removed.changed + removed.unchanged);
+        assertEquals(6, changes.size());
+        assertEquals(3, faculty(removed, "F1").removed);
+
+        Summary added = service.diff(EMPTY, AFTER, c -> { });
+        assertEquals(6, added.added);
+        assertEquals(0, added.removed + added.changed + added.unchanged);
+        assertNull(faculty(added, "---"), "recesses are not counted");
+
+        Summary none = service.diff(EMPTY, EMPTY, c -> fail("no cells to compare"));
+        assertEquals(0, none.added + none.removed + none.changed + none.unchanged);
+        assertTrue(none.faculty.isEmpty());
+    }
+
+    @Test
+    void rejectsRowsOutOfOrder() throws Exception {
+        RunRepository repository = mock(RunRepository.class);
+        List<AllocationRow> shuffled = List.of(beforeRows().get(3), beforeRows().get(0));
+        when(repository.openRun(BEFORE)).thenAnswer(inv -> cursor(shuffled));
+        when(repository.openRun(EMPTY)).thenAnswer(inv -> cursor(List.of()));
+        RunDiffService diff = new RunDiffService(repository);
+        assertThrows(IllegalStateException.class, () -> diff.diff(BEFORE, EMPTY, c -> { }));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.RunRepository.PendingRun;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static PendingRun run(String name) {
+        TimetableGrid g = new TimetableGrid(List.of("A"), List.of("Mon"), 3);
+        g.set(0, 0, 1, g.lectureId("Maths", "F1", "Lecture"));
+        g.set(0, 0, 2, TimetableGrid.RECESS);
+        return PendingRun.of(UUID.randomUUID(), name, g);
+    }
+
+    private static List<UUID> ids(RunJournal journal) {
+        return journal.pending(Integer.MAX_VALUE).stream().map(r -> r.runId).toList();
+    }
+
+    /** Size of the record starting at {@code offset}: length and CRC, then the body. */
+    private static int recordSize(Path file, int offset) throws IOException {
+        return 8 + ByteBuffer.wrap(Files.readAllBytes(file)).getInt(offset);
+    }
+
+    @Test
+    void replaysPendingRunsAfterARestart() throws IOException {
+        Path file = dir.resolve("runs.journal");
+        PendingRun a = run("A"), b = run(null);
+        try (RunJournal journal = new RunJournal(file)) {
+            journal.append(a);
+            journal.append(b);
+        }
+        try (RunJournal journal = new RunJournal(file)) {
+            assertEquals(List.of(a.runId, b.runId), ids(journal));
+            List<PendingRun> pending = journal.pending(2);
+            assertEquals("A", pending.get(0).runName);
+            assertNull(pending.get(1).runName);
+            assertArrayEquals(a.payload, pending.get(0).payload);
+        }
+    }
+
+    @Test
+    void ignoresATornTail() throws IOException {
+        Path file = dir.resolve("runs.journal");
+        PendingRun a = run("A"), b = run("B"), c = run("C");
+        try (RunJournal journal = new RunJournal(file)) {
+            journal.append(a);
+            journal.append(b);
+        }
+        // the process died while appending b
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 5);
+        }
+        try (RunJournal journal = new RunJournal(file)) {
+            assertEquals(List.of(a.runId), ids(journal));
+            journal.append(c);
+        }
+        // the torn record was dropped when the journal was rewritten, so c is readable
+        try (RunJournal journal = new RunJournal(file)) {
+            assertEquals(List.of(a.runId, c.runId), ids(journal));
+        }
+    }
+
+    @Test
+    void stopsAtARecordWithABadChecksum() throws IOException {
+        Path file = dir.resolve("runs.journal");
+        PendingRun a = run("A"), b = run("B"), c = run("C");
+        try (RunJournal journal = new RunJournal(file)) {
+            journal.append(a);
+            journal.append(b);
+            journal.append(c);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        int second = recordSize(file, 0);
+        bytes[second + 8 + 20] ^= 0x5A; // inside b's body
+        Files.write(file, bytes);
+
+        try (RunJournal journal = new RunJournal(file)) {
+            assertEquals(List.of(a.runId), ids(journal));
+        }
+        assertEquals(second, Files.size(file), "the journal keeps only the records before the corrupt one");
+    }
+
+    @Test
+    void writtenRunsAreNotReplayed() throws IOException {
+        Path file = dir.resolve("runs.journal");
+        PendingRun a = run("A"), b = run("B");
+        try (RunJournal journal = new RunJournal(file)) {
+            journal.append(a);
+            journal.append(b);
+            journal.written(List.of(a));
+        }
+        try (RunJournal journal = new RunJournal(file)) {
+            assertEquals(List.of(b.runId), ids(journal));
+            journal.written(List.of(b));
+            assertEquals(0, journal.size());
+        }
+        assertEquals(0, Files.size(file), "an empty journal is truncated");
+    }
+}
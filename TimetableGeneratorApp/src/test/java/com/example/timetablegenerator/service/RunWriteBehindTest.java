@@ -0,0 +1,112 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.repository.AllocationPartitions;
+import com.example.timetablegenerator.repository.RunRepository;
+import com.example.timetablegenerator.repository.RunRepository.PendingRun;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Write-behind against the load test's H2 schema (PostgreSQL mode). */
+class RunWriteBehindTest {
+
+    @TempDir
+    Path dir;
+
+    private JdbcDataSource dataSource;
+    private RunRepository repository;
+    private TimetableService timetableService;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new FileSystemResource("src/loadtest/resources/loadtest/schema-h2.sql"))
+                .execute(dataSource);
+        repository = new RunRepository(dataSource, new AllocationPartitions(dataSource), true, true, true);
+        timetableService = new TimetableService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        timetableService.shutdownSolverPool();
+    }
+
+    private static TimetableGrid grid(String subject) {
+        TimetableGrid g = new TimetableGrid(List.of("A", "B"), List.of("Mon", "Tue"), 3);
+        int lec = g.lectureId(subject, "F1", "Lecture");
+        for (int div = 0; div < 2; div++) {
+            g.set(div, 0, 1, lec);
+            g.set(div, 1, 3, lec);
+            g.set(div, 0, 2, TimetableGrid.RECESS);
+        }
+        return g;
+    }
+
+    private long count(String sql, UUID runId) throws Exception {
+        try (Connection c = dataSource.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setObject(1, runId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    @Test
+    void replaysARunAlreadyWrittenButNotMarkedWrittenOnce() throws Exception {
+        Path file = dir.resolve("runs.journal");
+        TimetableGrid savedGrid = grid("Maths"), newGrid = grid("Physics");
+        PendingRun saved = PendingRun.of(UUID.randomUUID(), "Saved before the crash", savedGrid);
+        PendingRun fresh = PendingRun.of(UUID.randomUUID(), "Journaled only", newGrid);
+
+        // the last process committed `saved` but died before recording it as written
+        int savedVersion = repository.insertPending(List.of(saved))[0];
+        try (RunJournal journal = new RunJournal(file)) {
+            journal.append(saved);
+            journal.append(fresh);
+        }
+
+        GenerationCache cache = new GenerationCache(timetableService, true, 4);
+        cache.put("saved", new GeneratedTimetable(savedGrid, 3, 0), saved.runId, 0, saved.runName);
+        cache.put("fresh", new GeneratedTimetable(newGrid, 3, 0), fresh.runId, 0, fresh.runName);
+
+        RunWriteBehind writeBehind = new RunWriteBehind(repository, cache, new SimpleMeterRegistry(),
+                true, file.toString(), 32, 60);
+        try {
+            writeBehind.flush();
+        } finally {
+            writeBehind.shutdown();
+        }
+
+        for (PendingRun run : List.of(saved, fresh)) {
+            assertEquals(1, count("SELECT COUNT(*) FROM run_catalog WHERE run_id = ?", run.runId));
+            assertEquals(1, count("SELECT COUNT(*) FROM run_snapshot WHERE run_id = ?", run.runId));
+            assertEquals(6, count("SELECT COUNT(*) FROM allocation WHERE run_id = ?", run.runId));
+        }
+        int freshVersion = repository.findRun(fresh.runId).getVersion();
+        assertEquals(savedVersion, repository.findRun(saved.runId).getVersion());
+        assertTrue(freshVersion > savedVersion);
+
+        assertEquals(savedVersion, cache.get("saved").version);
+        assertEquals(freshVersion, cache.get("fresh").version);
+
+        assertEquals(0, Files.size(file), "nothing is left to replay");
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.TimetableRepairer.Change;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimetableRepairerTest {
+
+    private static final int MAX_PER_DAY = 4;
+
+    private static TimetableGrid grid(List<String> divisions, List<String> days, int numSlots) {
+        return new TimetableGrid(divisions, days, numSlots);
+    }
+
+    private static void lecture(TimetableGrid g, String division, String day, int slot, String subject, String faculty) {
+        g.set(g.divisionId(division), g.dayId(day), slot, g.lectureId(subject, faculty, "Lecture"));
+    }
+
+    private static void lab(TimetableGrid g, String division, String day, int slot, String subject, String faculty) {
+        int id = g.lectureId(subject, faculty, "Lab");
+        g.set(g.divisionId(division), g.dayId(day), slot, id);
+        g.set(g.divisionId(division), g.dayId(day), slot + 1, id);
+    }
+
+    /** "Subject/Faculty (Type)" of a cell, or null when it is free. */
+    private static String at(TimetableGrid g, String division, String day, int slot) {
+        int id = g.get(g.divisionId(division), g.dayId(day), slot);
+        if (id == TimetableGrid.FREE) return null;
+        TimetableService.Lecture l = g.lecture(id);
+        return l.getSubject() + "/" + l.getFaculty() + " (" + l.getSessionType() + ")";
+    }
+
+    @Test
+    void handsALectureToASubstituteInTheSameSlot() {
+        TimetableGrid g = grid(List.of("A", "B"), List.of("Mon", "Tue"), 2);
+        lecture(g, "A", "Mon", 1, "Maths", "F1");
+        lecture(g, "B", "Tue", 1, "Maths", "F2");
+
+        TimetableRepairer repairer = new TimetableRepairer(g, MAX_PER_DAY);
+        repairer.facultyUnavailable("F1", "Mon");
+
+        assertEquals("Maths/F2 (Lecture)", at(repairer.grid(), "A", "Mon", 1));
+        assertEquals(0, repairer.unplaced());
+        List<Change> changes = repairer.changes();
+        assertEquals(1, changes.size());
+        assertEquals("F1", changes.get(0).before.getFaculty());
+        assertEquals("F2", changes.get(0).after.getFaculty());
+        assertEquals("Maths/F1 (Lecture)", at(g, "A", "Mon", 1), "the source grid is left untouched");
+    }
+
+    @Test
+    void movesALectureToAFreeCellOnAnotherDay() {
+        TimetableGrid g = grid(List.of("A"), List.of("Mon", "Tue"), 2);
+        lecture(g, "A", "Mon", 1, "Physics", "F1");
+
+        TimetableRepairer repairer = new TimetableRepairer(g, MAX_PER_DAY);
+        repairer.facultyUnavailable("F1", "Mon");
+
+        assertNull(at(repairer.grid(), "A", "Mon", 1));
+        assertEquals("Physics/F1 (Lecture)", at(repairer.grid(), "A", "Tue", 1));
+        assertEquals(0, repairer.unplaced());
+        assertEquals(2, repairer.changes().size());
+    }
+
+    @Test
+    void swapsWithAnotherLectureWhenNoCellIsFree() {
+        TimetableGrid g = grid(List.of("A"), List.of("Mon", "Tue"), 1);
+        lecture(g, "A", "Mon", 1, "Physics", "F1");
+        lecture(g, "A", "Tue", 1, "Chemistry", "F2");
+
+        TimetableRepairer repairer = new TimetableRepairer(g, MAX_PER_DAY);
+        repairer.facultyUnavailable("F1", "Mon");
+
+        assertEquals("Chemistry/F2 (Lecture)", at(repairer.grid(), "A", "Mon", 1));
+        assertEquals("Physics/F1 (Lecture)", at(repairer.grid(), "A", "Tue", 1));
+        assertEquals(0, repairer.unplaced());
+    }
+
+    @Test
+    void relocatesALabToAnotherDay() {
+        TimetableGrid g = grid(List.of("A"), List.of("Mon", "Tue"), 3);
+        lab(g, "A", "Mon", 1, "Networks", "L1");
+        lecture(g, "A", "Tue", 1, "Maths", "F1");
+
+        TimetableRepairer repairer = new TimetableRepairer(g, MAX_PER_DAY);
+        repairer.facultyUnavailable("L1", "Mon");
+
+        TimetableGrid out = repairer.grid();
+        assertEquals("Networks/L1 (Lab)", at(out, "A", "Tue", 2));
+        assertEquals("Networks/L1 (Lab)", at(out, "A", "Tue", 3));
+        assertEquals("Maths/F1 (Lecture)", at(out, "A", "Tue", 1));
+        // the freed Mon cells go to the division's other lecture where its faculty can take them
+        assertEquals("Maths/F1 (Lecture)", at(out, "A", "Mon", 1));
+        assertNull(at(out, "A", "Mon", 2), "no back-to-back lectures of F1");
+        assertEquals(0, repairer.unplaced());
+    }
+
+    @Test
+    void rePlacesLecturesALabTookThePlaceOf() {
+        TimetableGrid g = grid(List.of("A"), List.of("Mon", "Tue"), 2);
+        lecture(g, "A", "Mon", 1, "Maths", "F1");
+        lecture(g, "A", "Mon", 2, "Physics", "F2");
+
+        TimetableRepairer repairer = new TimetableRepairer(g, MAX_PER_DAY);
+        repairer.planDelta("A", "Networks", 0, 1, null, "L1");
+
+        TimetableGrid out = repairer.grid();
+        assertEquals("Networks/L1 (Lab)", at(out, "A", "Mon", 1));
+        assertEquals("Networks/L1 (Lab)", at(out, "A", "Mon", 2));
+        assertEquals("Maths/F1 (Lecture)", at(out, "A", "Tue", 1));
+        assertEquals("Physics/F2 (Lecture)", at(out, "A", "Tue", 2));
+        assertEquals(0, repairer.unplaced());
+    }
+
+    @Test
+    void countsLecturesALabDisplacedWhenTheyFitNowhere() {
+        TimetableGrid g = grid(List.of("A"), List.of("Mon"), 2);
+        lecture(g, "A", "Mon", 1, "Maths", "F1");
+        lecture(g, "A", "Mon", 2, "Physics", "F2");
+
+        TimetableRepairer repairer = new TimetableRepairer(g, MAX_PER_DAY);
+        repairer.planDelta("A", "Networks", 0, 1, null, "L1");
+
+        assertEquals("Networks/L1 (Lab)", at(repairer.grid(), "A", "Mon", 1));
+        assertEquals(2, repairer.unplaced());
+    }
+
+    @Test
+    void leavesTheTimetableAloneWhenNothingIsAffected() {
+        TimetableGrid g = grid(List.of("A"), List.of("Mon", "Tue"), 2);
+        lecture(g, "A", "Mon", 1, "Maths", "F1");
+        lecture(g, "A", "Tue", 1, "Physics", "F2");
+
+        TimetableRepairer repairer = new TimetableRepairer(g, MAX_PER_DAY);
+        repairer.facultyUnavailable("F2", "Mon");
+        repairer.planDelta("A", "Maths", 0, 0, null, null);
+
+        assertTrue(repairer.changes().isEmpty());
+        assertEquals(0, repairer.unplaced());
+    }
+
+    @Test
+    void rejectsAnUnknownFaculty() {
+        TimetableGrid g = grid(List.of("A"), List.of("Mon"), 2);
+        lecture(g, "A", "Mon", 1, "Maths", "F1");
+
+        TimetableRepairer repairer = new TimetableRepairer(g, MAX_PER_DAY);
+        assertThrows(IllegalArgumentException.class, () -> repairer.facultyUnavailable("Nobody", "Mon"));
+        assertThrows(IllegalArgumentException.class, () -> repairer.facultyUnavailable("F1", "Sun"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.timetablegenerator.service;
+
+import com.example.timetablegenerator.service.TimetableService.SubjectPlan;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimetableServiceTest {
+
+    private static final List<String> DAYS = List.of("Mon", "Tue", "Wed", "Thu", "Fri");
+
+    private final TimetableService service = new TimetableService();
+
+    @AfterEach
+    void shutDown() {
+        service.shutdownSolverPool();
+    }
+
+    /** 12 divisions of 6 subjects, each faculty member shared by two divisions; every third subject has a lab. */
+    private static GenerationRequest request() {
+        return request(3);
+    }
+
+    private static GenerationRequest request(int lecturesPerWeek) {
+        List<String> divisions = new ArrayList<>();
+        Map<String, Map<String, SubjectPlan>> plan = new LinkedHashMap<>();
+        for (int d = 0; d < 12; d++) {
+            divisions.add("D" + d);
+            Map<String, SubjectPlan> bySubject = new LinkedHashMap<>();
+            for (int s = 0; s < 6; s++) {
+                SubjectPlan sp = new SubjectPlan();
+                sp.subject = "S" + s;
+                sp.lecturesPerWeek = lecturesPerWeek;
+                sp.labsPerWeek = s % 3 == 0 ? 1 : 0;
+                sp.lectureFaculty = "F" + (d / 2 * 6 + s);
+                sp.labFaculty = "L" + (d / 2 * 6 + s);
+                bySubject.put(sp.subject, sp);
+            }
+            plan.put("D" + d, bySubject);
+        }
+        return GenerationRequest.withPlan(DAYS, 8, divisions, List.<int[]>of(new int[]{4, 4}), 4, plan);
+    }
+
+    private static void assertSameGrid(TimetableGrid a, TimetableGrid b) {
+        assertEquals(a.divisions(), b.divisions());
+        assertEquals(a.days(), b.days());
+        for (int div = 0; div < a.divisionCount(); div++) {
+            for (int d = 0; d < a.dayCount(); d++) {
+                for (int s = 1; s <= a.numSlots(); s++) {
+                    String at = a.division(div) + " " + a.day(d) + " slot " + s;
+                    TimetableService.Lecture x = a.lecture(a.get(div, d, s));
+                    TimetableService.Lecture y = b.lecture(b.get(div, d, s));
+                    assertEquals(x == null ? null : x.getSubject(), y == null ? null : y.getSubject(), at);
+                    assertEquals(x == null ? null : x.getFaculty(), y == null ? null : y.getFaculty(), at);
+                    assertEquals(x == null ? null : x.getSessionType(), y == null ? null : y.getSessionType(), at);
+                    assertEquals(a.roomName(div, d, s), b.roomName(div, d, s), at);
+                }
+            }
+        }
+    }
+
+    @Test
+    void sameSeedGeneratesTheSameTimetable() {
+        // a time limit far beyond the iterations, so only the seed decides
+        ReflectionTestUtils.setField(service, "optimizerTimeLimitMs", 600_000L);
+        GenerationRequest req = request();
+
+        GeneratedTimetable first = service.generate(req);
+        GeneratedTimetable second = service.generate(req);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertFalse(first.timeLimited());
+        assertFalse(second.timeLimited());
+        assertSameGrid(first.grid(), second.grid());
+    }
+
+    @Test
+    void resultsCutShortByATimeLimitAreNotCached() {
+        ReflectionTestUtils.setField(service, "optimizerTimeLimitMs", 0L);
+        GenerationCache cache = new GenerationCache(service, true, 4);
+        GenerationRequest req = request();
+
+        GeneratedTimetable result = service.generate(req);
+        assertNotNull(result);
+        assertTrue(result.timeLimited());
+
+        String key = cache.keyOf(req);
+        cache.put(key, result, null, 0, null);
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void portfolioCountsWhatItCouldNotPlaceBeforeTheFill() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service.setMetrics(new GenerationMetrics(registry));
+        ReflectionTestUtils.setField(service, "portfolioSize", 4);
+        ReflectionTestUtils.setField(service, "decomposeEnabled", false);
+        ReflectionTestUtils.setField(service, "backtrackingEnabled", false);
+        ReflectionTestUtils.setField(service, "optimizerEnabled", false);
+
+        // 6 subjects x 6 lectures (+ labs) do not fit in 5 days of 7 teaching slots
+        GeneratedTimetable result = service.generate(request(6));
+        assertNotNull(result);
+        assertTrue(result.unplaced() > 0);
+
+        double counted = registry.get("timetable.generation.unplaced").counters().stream()
+                .mapToDouble(c -> c.count()).sum();
+        assertEquals(result.unplaced(), (int) counted);
+        // one fill per member, none added after the portfolio
+        assertEquals(4, registry.get("timetable.generation.phase").tag("phase", "fill").timer().count());
+    }
+}
@@ -4,6 +4,10 @@
 DROP VIEW  IF EXISTS v_timetable_by_run;
 DROP VIEW  IF EXISTS v_timetable_runs;
 DROP VIEW  IF EXISTS v_latest_timetable;
+DROP TABLE IF EXISTS run_snapshot CASCADE;
+DROP TABLE IF EXISTS run_catalog CASCADE;
+DROP TABLE IF EXISTS run_meta CASCADE;
+DROP SEQUENCE IF EXISTS run_version_seq;
 DROP TABLE IF EXISTS allocation CASCADE;
 DROP TABLE IF EXISTS class CASCADE;
 DROP TABLE IF EXISTS faculty CASCADE;
@@ -41,14 +45,21 @@ CREATE TABLE faculty (
 
 CREATE TABLE class (
     classid   SERIAL PRIMARY KEY,
-    classname VARCHAR(50) UNIQUE NOT NULL
+    classname VARCHAR(50) UNIQUE NOT NULL,
+    room_type VARCHAR(10) NOT NULL DEFAULT 'LECTURE',  -- LECTURE or LAB
+    capacity  INT         NOT NULL DEFAULT 0           -- seats, 0 = unknown
 );
 
 -- =========================================
 -- Allocation (flat writes per timetable run)
+-- Partitioned by generation month (UTC): allocation_pYYYYMM. The app attaches
+-- the current and next months' partitions at startup and before saving, and
+-- retention detaches, archives and drops old ones (AllocationPartitions,
+-- RetentionService). There is no default partition. An allocation created
+-- as a plain table by an older script keeps working; retention then skips.
 -- =========================================
 CREATE TABLE allocation (
-    allocationid   SERIAL PRIMARY KEY,
+    allocationid   SERIAL,
     divisionname   VARCHAR(50)   NOT NULL,
     semesternumber INT           NOT NULL,
     subjectname    VARCHAR(100)  NOT NULL,
@@ -61,15 +72,44 @@ CREATE TABLE allocation (
 
     -- Versioning fields (nullable so old inserts still work)
     run_id         UUID,
-    version        INT
-);
+    version        INT,
+
+    PRIMARY KEY (allocationid, generated_at)
+) PARTITION BY RANGE (generated_at);
 
 -- Optional hard rule (single booking per run)
 -- ALTER TABLE allocation
 --   ADD CONSTRAINT uq_alloc_run_div_day_slot UNIQUE (run_id, divisionname, dayname, slotno);
 
+-- Run catalog: one row per saved run, written with the run (history list,
+-- run lookup, rename). Versions come from the sequence, so concurrent saves
+-- never get the same one; the unique index doubles as the history page key.
+-- generated_at equals the run's allocation rows' (same transaction): lookups
+-- by run match on it too, which prunes them to one allocation partition.
+CREATE SEQUENCE run_version_seq;
+CREATE TABLE run_catalog (
+    run_id       UUID PRIMARY KEY,
+    version      INT           NOT NULL UNIQUE,
+    run_name     VARCHAR(200),
+    generated_at TIMESTAMPTZ   NOT NULL DEFAULT now(),
+    updated_at   TIMESTAMPTZ   NOT NULL DEFAULT now(),
+    rows_count   INT           NOT NULL,
+    divisions    TEXT[]        NOT NULL,
+    days         TEXT[]        NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_run_catalog_generated_at ON run_catalog(generated_at);
+
+-- Whole run in one row: dictionary-encoded, deflate-compressed cells
+-- (RunSnapshotCodec). Reads use this; allocation rows are the queryable projection.
+CREATE TABLE run_snapshot (
+    run_id       UUID PRIMARY KEY REFERENCES run_catalog(run_id) ON DELETE CASCADE,
+    payload      BYTEA         NOT NULL
+);
+-- already compressed: keep TOAST from trying again
+ALTER TABLE run_snapshot ALTER COLUMN payload SET STORAGE EXTERNAL;
+
 -- =========================================
--- Helpful indexes
+-- Helpful indexes (created on every partition)
 -- =========================================
 CREATE INDEX IF NOT EXISTS idx_alloc_div_day_slot   ON allocation(divisionname, dayname, slotno);
 CREATE INDEX IF NOT EXISTS idx_alloc_faculty_day    ON allocation(facultyname, dayname, slotno);
@@ -92,80 +132,36 @@ FROM allocation
 WHERE generated_at = (SELECT MAX(generated_at) FROM allocation)
 ORDER BY divisionname, dayname, slotno;
 
--- History list (keeps old code happy with 'generated_at' & 'rows')
--- Also exposes run_key, run_id, version for the new UI.
+-- History list, straight from the catalog
 CREATE OR REPLACE VIEW v_timetable_runs AS
-WITH key_rows AS (
-  SELECT
-    -- Stable key per run: use run_id if present else a high-precision timestamp text
-    COALESCE(run_id::text, to_char(generated_at,'YYYY-MM-DD"T"HH24:MI:SS.USOF')) AS run_key,
-    run_id,
-    generated_at
-  FROM allocation
-),
-agg AS (
-  SELECT
-    run_key,
-    MIN(run_id)               AS run_id,        -- may be NULL if app didn't pass run_id
-    MAX(generated_at)         AS generated_at,  -- representative timestamp for the run
-    COUNT(*)                  AS rows           -- keep this name for existing Java
-  FROM key_rows
-  GROUP BY run_key
-)
-SELECT
-  run_key,
-  run_id,
-  generated_at,
-  rows,
-  DENSE_RANK() OVER (ORDER BY generated_at) AS version
-FROM agg
-ORDER BY generated_at DESC;
-
--- All rows for a specific run (filter by run_key or run_id)
-CREATE OR REPLACE VIEW v_timetable_by_run AS
-WITH rows_with_keys AS (
-  SELECT
-    COALESCE(run_id::text, to_char(generated_at,'YYYY-MM-DD"T"HH24:MI:SS.USOF')) AS run_key,
-    run_id, generated_at, divisionname, dayname, slotno,
-    subjectname, facultyname, classname, session_type, semesternumber
-  FROM allocation
-),
-run_versions AS (
-  SELECT
-    run_key,
-    MAX(generated_at) AS generated_at,
-    DENSE_RANK() OVER (ORDER BY MAX(generated_at)) AS version
-  FROM rows_with_keys
-  GROUP BY run_key
-)
-SELECT
-  r.run_key,
-  r.run_id,
-  v.version,
-  r.generated_at,
-  r.divisionname, r.dayname, r.slotno,
-  r.subjectname, r.facultyname, r.classname,
-  r.session_type, r.semesternumber
-FROM rows_with_keys r
-JOIN run_versions v USING (run_key)
-ORDER BY r.divisionname, r.dayname, r.slotno;
-
--- =====================================================================
--- 3. v_timetable_runs : summary view for history list
--- =====================================================================
+SELECT run_id, version, generated_at, rows_count, run_name
+FROM run_catalog;
 
-CREATE OR REPLACE VIEW v_timetable_runs AS
+-- All rows of a run (filter by run_key or run_id)
+CREATE OR REPLACE VIEW v_timetable_by_run AS
 SELECT
-    a.run_id,
-    MAX(a.version)      AS version,
-    MAX(a.generated_at) AS generated_at,
-    COUNT(*)            AS rows_count,
-    MAX(m.run_name)     AS run_name
-FROM allocation a
-LEFT JOIN run_meta m ON m.run_id = a.run_id
-GROUP BY a.run_id
-ORDER BY generated_at DESC;
+  COALESCE(run_id::text, to_char(generated_at,'YYYY-MM-DD"T"HH24:MI:SS.USOF')) AS run_key,
+  run_id, version, generated_at,
+  divisionname, dayname, slotno,
+  subjectname, facultyname, classname,
+  session_type, semesternumber
+FROM allocation;
 
+-- =========================================
+-- Upgrading a database created before run_catalog: run instead of this
+-- script, once. Numbers the existing runs 1..n in save order.
+-- =========================================
+-- CREATE SEQUENCE run_version_seq;
+-- CREATE TABLE run_catalog (...as above...);
+-- INSERT INTO run_catalog (run_id, version, run_name, generated_at, updated_at, rows_count, divisions, days)
+-- SELECT a.run_id,
+--        ROW_NUMBER() OVER (ORDER BY MAX(a.generated_at), a.run_id),
+--        MAX(m.run_name), MAX(a.generated_at), MAX(a.generated_at), COUNT(*),
+--        ARRAY_AGG(DISTINCT a.divisionname), ARRAY_AGG(DISTINCT a.dayname)
+-- FROM allocation a LEFT JOIN run_meta m ON m.run_id = a.run_id
+-- WHERE a.run_id IS NOT NULL
+-- GROUP BY a.run_id;
+-- SELECT setval('run_version_seq', (SELECT COALESCE(MAX(version), 0) + 1 FROM run_catalog), false);
 
 -- =========================================
 -- (Optional) seed data
@@ -206,7 +202,7 @@ ORDER BY divisionname, dayname, slotno
 LIMIT 200;
 -- History list
 SELECT * FROM v_timetable_runs
-ORDER BY generated_at DESC
+ORDER BY version DESC
 LIMIT 20;
 -- Example: inspect a specific run (pick a run_key from v_timetable_runs)
 -- SELECT * FROM v_timetable_by_run WHERE run_key = '<paste run_key here>'